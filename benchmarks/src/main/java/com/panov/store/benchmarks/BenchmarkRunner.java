@@ -0,0 +1,32 @@
+package com.panov.store.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. <br><br>
+ * Accepts the usual JMH command line options (e.g. a benchmark name pattern, {@code -f}, {@code -wi})
+ * and always adds the gc profiler, so the allocation rate per operation
+ * ({@code gc.alloc.rate.norm}) is reported next to the throughput. Repository benchmarks
+ * also report SQL statements per operation ({@code sql.statements.norm}),
+ * see {@link SqlStatementProfiler}, response benchmarks report bytes on the wire
+ * per operation ({@code wire.bytes.norm}), see {@link WireBytesProfiler}.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        var options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .addProfiler(SqlStatementProfiler.class)
+                .addProfiler(WireBytesProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,58 @@
+package com.panov.store.benchmarks;
+
+import com.panov.store.common.Access;
+import com.panov.store.common.Status;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures conversion of {@link Status} and {@link Access} to database codes and back,
+ * which Hibernate performs for every loaded order and user.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterBenchmark {
+    private final Status.StatusConverter statusConverter = new Status.StatusConverter();
+    private final Access.AccessConverter accessConverter = new Access.AccessConverter();
+
+    private String[] statusCodes;
+    private String[] accessCodes;
+
+    @Setup
+    public void setUp() {
+        Status[] statuses = Status.values();
+        statusCodes = new String[statuses.length];
+        for (int i = 0; i < statuses.length; i++)
+            statusCodes[i] = statuses[i].getCode();
+
+        Access[] accesses = Access.values();
+        accessCodes = new String[accesses.length];
+        for (int i = 0; i < accesses.length; i++)
+            accessCodes[i] = accesses[i].getCode();
+    }
+
+    @Benchmark
+    public void status(Blackhole blackhole) {
+        for (String code : statusCodes) {
+            Status status = statusConverter.convertToEntityAttribute(code);
+            blackhole.consume(statusConverter.convertToDatabaseColumn(status));
+        }
+    }
+
+    @Benchmark
+    public void access(Blackhole blackhole) {
+        for (String code : accessCodes) {
+            Access access = accessConverter.convertToEntityAttribute(code);
+            blackhole.consume(accessConverter.convertToDatabaseColumn(access));
+        }
+    }
+}
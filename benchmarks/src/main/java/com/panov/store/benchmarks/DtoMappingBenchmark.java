@@ -0,0 +1,71 @@
+package com.panov.store.benchmarks;
+
+import com.panov.store.dto.OrderDTO;
+import com.panov.store.dto.ProductDTO;
+import com.panov.store.dto.UserDTO;
+import com.panov.store.model.Order;
+import com.panov.store.model.Product;
+import com.panov.store.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures conversion of entity graphs to transfer objects, which every controller
+ * performs before the response is written. <br><br>
+ * A page is 20 entities - the size clients request most of the time. Every product has
+ * 3 product types and every order has 5 order lines.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMappingBenchmark {
+    private static final int PAGE = 20;
+
+    private Product product;
+    private List<Product> products;
+    private Order order;
+    private List<Order> orders;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        products = Fixtures.products(PAGE, Fixtures.productTypes(10), 3);
+        user = Fixtures.user(1);
+        orders = Fixtures.orders(PAGE, user, products, 5);
+        product = products.get(0);
+        order = orders.get(0);
+    }
+
+    @Benchmark
+    public ProductDTO product() {
+        return ProductDTO.of(product);
+    }
+
+    @Benchmark
+    public List<ProductDTO> productPage() {
+        return products.stream().map(ProductDTO::of).toList();
+    }
+
+    @Benchmark
+    public OrderDTO order() {
+        return OrderDTO.of(order);
+    }
+
+    @Benchmark
+    public List<OrderDTO> orderPage() {
+        return orders.stream().map(OrderDTO::of).toList();
+    }
+
+    @Benchmark
+    public UserDTO user() {
+        return UserDTO.of(user);
+    }
+}
@@ -0,0 +1,112 @@
+package com.panov.store.benchmarks;
+
+import com.panov.store.common.Access;
+import com.panov.store.common.Status;
+import com.panov.store.model.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds entity graphs of realistic size for benchmarks, the same way Hibernate
+ * returns them with the current (eager) fetch strategy.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+final class Fixtures {
+    private Fixtures() {}
+
+    static List<ProductType> productTypes(int count) {
+        List<ProductType> types = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            var type = new ProductType();
+            type.setProductTypeId(i);
+            type.setName("Product type " + i);
+            types.add(type);
+        }
+        return types;
+    }
+
+    /**
+     * @param count number of products
+     * @param types product types to assign, {@code typesPerProduct} to every product
+     * @param typesPerProduct number of product types of every product
+     */
+    static List<Product> products(int count, List<ProductType> types, int typesPerProduct) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            var product = new Product();
+            product.setProductId(i);
+            product.setName("Product " + i);
+            product.setDescription(("Description of product " + i + ". ").repeat(20));
+            product.setImage("0f1052cc96864245acde1c9319f0b904.jpg");
+            product.setPrice(new BigDecimal("199.99"));
+            product.setStock(100);
+            for (int t = 0; t < typesPerProduct; t++)
+                product.getProductTypes().add(types.get((i + t) % types.size()));
+            products.add(product);
+        }
+        return products;
+    }
+
+    static User user(int id) {
+        var user = new User();
+        user.setUserId(id);
+        user.setAccess(Access.USER);
+        user.setHashPassword("$2a$10$mCi6f0B3jCwyws/IECKXyuFSi9nfIWU/vl2mFesR0pdhSZi4gD0hG");
+        user.setPersonalInfo(new User.PersonalInfo(
+                String.format("09%08d", id), "user" + id + "@example.com", "Maksym", "Panov"
+        ));
+        var address = new Address();
+        address.setRegion("Kyiv");
+        address.setCity("Kyiv");
+        address.setStreet("Khreshchatyk");
+        address.setBuilding(1);
+        address.setPostalCode(1001);
+        user.setAddress(address);
+        return user;
+    }
+
+    /**
+     * @param count number of orders
+     * @param user owner of the orders
+     * @param products products to put into orders, {@code linesPerOrder} into every order
+     * @param linesPerOrder number of order lines of every order
+     */
+    static List<Order> orders(int count, User user, List<Product> products, int linesPerOrder) {
+        var deliveryType = new DeliveryType();
+        deliveryType.setDeliveryTypeId(1);
+        deliveryType.setName("Nova Poschta");
+
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            var order = new Order();
+            order.setOrderId(i);
+            order.setUser(user);
+            order.setDeliveryType(deliveryType);
+            order.setPostTime(new Timestamp(1688387091978L + i));
+            order.setStatus(Status.POSTED);
+
+            var total = BigDecimal.ZERO;
+            for (int l = 0; l < linesPerOrder; l++) {
+                var product = products.get((i * linesPerOrder + l) % products.size());
+                var line = new OrderProducts();
+                line.setOrderProductsId(i * linesPerOrder + l);
+                line.setOrder(order);
+                line.setProduct(product);
+                line.setQuantity(2);
+                line.setSum(product.getPrice().multiply(BigDecimal.valueOf(2)));
+                total = total.add(line.getSum());
+                order.getOrderProducts().add(line);
+                product.getOrderProducts().add(line);
+            }
+            order.setTotal(total);
+            user.getOrders().add(order);
+            orders.add(order);
+        }
+        return orders;
+    }
+}
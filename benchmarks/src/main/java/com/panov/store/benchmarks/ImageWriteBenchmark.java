@@ -0,0 +1,113 @@
+package com.panov.store.benchmarks;
+
+import com.panov.store.common.Utils;
+import com.panov.store.dao.ImageRepository;
+import com.panov.store.images.DirectoryImageStore;
+import com.panov.store.images.ImageStorage;
+import com.panov.store.images.ImageStore;
+import com.panov.store.images.PackFileImageStore;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.panov.store.common.Constants.STATIC_IMAGES_FOLDER;
+
+/**
+ * Measures {@link ImageStorage#save(byte[])} of an image sent as Base64: decoding of the image,
+ * digest of its content, counting of the reference and writing of the image to the store. <br><br>
+ * {@code saveNew} changes the image before every invocation, so every image is written,
+ * {@code saveDuplicate} saves the same image again, so only the reference is counted.
+ * Every invocation releases the image saved by the previous one, the same way an update
+ * of a product image does, so the folder does not grow during the run.
+ * References are counted in an embedded H2 database, the images folder and the segments
+ * of the pack store ({@code image-packs}) are resolved against the working directory.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageWriteBenchmark {
+    /** Size of the decoded image in bytes. */
+    @Param({ "16384", "262144" })
+    private int size;
+
+    /** Image store, see {@code images.store}. */
+    @Param({ "directory", "pack" })
+    private String store;
+
+    private EntityManagerFactory entityManagerFactory;
+    private ImageStore imageStore;
+    private ImageStorage storage;
+    private String image;
+    private String current;
+    private long version;
+
+    @Setup
+    public void setUp() throws IOException {
+        Files.createDirectories(Path.of(STATIC_IMAGES_FOLDER));
+        entityManagerFactory = Persistence.createEntityManagerFactory(
+                "test-db-context",
+                Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:images;DB_CLOSE_DELAY=-1")
+        );
+        imageStore = switch (store) {
+            case "directory" -> new DirectoryImageStore(Path.of(STATIC_IMAGES_FOLDER));
+            case "pack" -> new PackFileImageStore(Path.of("image-packs"), 64 * 1024 * 1024, 0.5, 1000);
+            default -> throw new IllegalArgumentException(store);
+        };
+        storage = new ImageStorage(
+                new ImageRepository(entityManagerFactory),
+                imageStore,
+                Path.of(STATIC_IMAGES_FOLDER),
+                Long.MAX_VALUE
+        );
+
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        // JPEG signature, so the image gets the .jpg extension
+        bytes[0] = (byte) 0xFF;
+        bytes[1] = (byte) 0xD8;
+        bytes[2] = (byte) 0xFF;
+        image = Base64.getEncoder().encodeToString(bytes);
+    }
+
+    @Benchmark
+    public String saveNew() throws IOException {
+        byte[] bytes = Utils.decodeImage(image);
+        ByteBuffer.wrap(bytes).putLong(bytes.length - Long.BYTES, ++version);
+        return replace(storage.save(bytes));
+    }
+
+    @Benchmark
+    public String saveDuplicate() throws IOException {
+        return replace(storage.save(Utils.decodeImage(image)));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storage.release(current);
+        current = null;
+        entityManagerFactory.close();
+        if (imageStore instanceof PackFileImageStore pack)
+            pack.close();
+    }
+
+    private String replace(String saved) {
+        storage.release(current);
+        current = saved;
+        return saved;
+    }
+}
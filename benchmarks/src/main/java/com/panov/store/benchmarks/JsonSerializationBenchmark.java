@@ -0,0 +1,54 @@
+package com.panov.store.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.panov.store.dto.OrderDTO;
+import com.panov.store.dto.ProductDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialization of list responses with an {@link ObjectMapper} configured
+ * the same way as the one Spring MVC uses for {@code application/json} responses.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+    /** Number of entities in the response. */
+    @Param({ "20", "100" })
+    private int size;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<ProductDTO> products;
+    private List<OrderDTO> orders;
+
+    @Setup
+    public void setUp() {
+        var productModels = Fixtures.products(size, Fixtures.productTypes(10), 3);
+        products = productModels.stream().map(ProductDTO::of).toList();
+        orders = Fixtures.orders(size, Fixtures.user(1), productModels, 5)
+                .stream()
+                .map(OrderDTO::of)
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] products() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] orders() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(orders);
+    }
+}
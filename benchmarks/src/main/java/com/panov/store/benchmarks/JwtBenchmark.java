@@ -0,0 +1,53 @@
+package com.panov.store.benchmarks;
+
+import com.panov.store.common.Access;
+import com.panov.store.jwt.JwtService;
+import com.panov.store.model.User;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creation and verification of JWT tokens. <br>
+ * Verification runs on every authenticated request, creation - on every login.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+    private final JwtService jwtService = new JwtService();
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        user = Fixtures.user(1);
+        token = jwtService.createToken(user.getUserId(), user.getUsername(), Access.USER);
+    }
+
+    @Benchmark
+    public String createToken() {
+        return jwtService.createToken(user.getUserId(), user.getUsername(), Access.USER);
+    }
+
+    @Benchmark
+    public Claims parseClaims() {
+        return jwtService.parseClaims(token);
+    }
+
+    /**
+     * The way {@link com.panov.store.jwt.JwtAuthenticationFilter} checks a token:
+     * the token is parsed once for the subject and once more for the expiration.
+     */
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token, user);
+    }
+}
@@ -0,0 +1,85 @@
+package com.panov.store.benchmarks;
+
+import com.panov.store.common.Status;
+import com.panov.store.dao.OrderRepository;
+import com.panov.store.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link OrderRepository#insert(Order)} and {@link OrderRepository#update(Order)}
+ * against the embedded H2 database. <br><br>
+ * An inserted order belongs to a random user and has 3 order lines. An update replaces
+ * the delivery type and the order lines of a random order that is still editable
+ * (posted or accepted), the most expensive path of the update.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderRepositoryBenchmark {
+    private static final int LINES = 3;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private OrderRepository repository;
+    private int products;
+    private int users;
+    private int[] editableOrders;
+
+    @Setup(Level.Trial)
+    public void setUp(RepositoryBenchmarkDatabase database) throws Exception {
+        repository = new OrderRepository(database.entityManagerFactory);
+        products = database.rows;
+        users = database.users();
+        editableOrders = database.selectIds(
+                "select orderid from \"Order\" where status in ('P', 'A') order by orderid"
+        );
+    }
+
+    @Benchmark
+    public Integer insert() {
+        var user = new User();
+        user.setUserId(1 + random.nextInt(users));
+
+        var order = new Order();
+        order.setUser(user);
+        order.setDeliveryType(deliveryType());
+        order.setStatus(Status.POSTED);
+        addLines(order);
+        return repository.insert(order);
+    }
+
+    @Benchmark
+    public Integer update() {
+        var order = new Order();
+        order.setOrderId(editableOrders[random.nextInt(editableOrders.length)]);
+        order.setDeliveryType(deliveryType());
+        addLines(order);
+        return repository.update(order);
+    }
+
+    private DeliveryType deliveryType() {
+        var deliveryType = new DeliveryType();
+        deliveryType.setDeliveryTypeId(1 + random.nextInt(RepositoryBenchmarkDatabase.DELIVERY_TYPES));
+        return deliveryType;
+    }
+
+    private void addLines(Order order) {
+        for (int i = 0; i < LINES; i++) {
+            var product = new Product();
+            product.setProductId(1 + random.nextInt(products));
+
+            var line = new OrderProducts();
+            line.setProduct(product);
+            line.setQuantity(1);
+            order.getOrderProducts().add(line);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.panov.store.benchmarks;
+
+import com.panov.store.dao.ProductRepository;
+import com.panov.store.dataset.DatasetGenerator;
+import com.panov.store.model.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reads of {@link ProductRepository} against the embedded H2 database: <br>
+ * a page of 20 products at a random offset, a page of 20 products of a random product type,
+ * a search by part of the name and a lookup by the exact name.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProductRepositoryBenchmark {
+    private static final int PAGE = 20;
+    private static final List<String> NOUNS = DatasetGenerator.nouns();
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private ProductRepository repository;
+    private int products;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setUp(RepositoryBenchmarkDatabase database) {
+        repository = new ProductRepository(database.entityManagerFactory);
+        products = database.rows;
+        names = repository.getPackage(0, 1000)
+                .stream()
+                .map(Product::getName)
+                .toArray(String[]::new);
+    }
+
+    @Benchmark
+    public List<Product> getPackage() {
+        return repository.getPackage(random.nextInt(Math.max(1, products - PAGE)), PAGE);
+    }
+
+    @Benchmark
+    public List<Product> getPackageByProductType() {
+        int productType = 1 + random.nextInt(RepositoryBenchmarkDatabase.PRODUCT_TYPES);
+        return repository.getPackageByProductType(0, PAGE, productType);
+    }
+
+    @Benchmark
+    public List<Product> getByColumnPattern() {
+        return repository.getByColumn(NOUNS.get(random.nextInt(NOUNS.size())), 0, PAGE, false);
+    }
+
+    @Benchmark
+    public List<Product> getByColumnExact() {
+        return repository.getByColumn(names[random.nextInt(names.length)], 0, PAGE, true);
+    }
+}
@@ -0,0 +1,104 @@
+package com.panov.store.benchmarks;
+
+import com.panov.store.dao.BulkLoader;
+import com.panov.store.dataset.DatasetGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Embedded H2 database of the {@code test-db-context} persistence unit, filled with
+ * a generated dataset of the requested volume before the benchmarks of a fork start. <br><br>
+ * {@code rows} is the number of products and of orders, users are ten times fewer.
+ * Product stocks are raised, so orders inserted during a long run never run out of stock. <br>
+ * Larger volumes need more heap, e.g. {@code -jvmArgsAppend -Xmx6g}, and, while reads load
+ * whole entity graphs eagerly, single shot runs ({@code -bm ss}).
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+public class RepositoryBenchmarkDatabase {
+    static final int PRODUCT_TYPES = 50;
+    static final int DELIVERY_TYPES = 4;
+
+    @Param({ "1000", "100000", "1000000" })
+    int rows;
+
+    EntityManagerFactory entityManagerFactory;
+    private JdbcDataSource dataSource;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+
+        entityManagerFactory = Persistence.createEntityManagerFactory(
+                "test-db-context",
+                Map.of(
+                        AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource,
+                        AvailableSettings.GENERATE_STATISTICS, true,
+                        "hibernate.javax.cache.missing_cache_strategy", "create"
+                )
+        );
+
+        var settings = new DatasetGenerator.Settings();
+        settings.setProductTypes(PRODUCT_TYPES);
+        settings.setProducts(rows);
+        settings.setOrders(rows);
+        settings.setUsers(users());
+
+        directory = Files.createTempDirectory("benchmark-dataset");
+        new DatasetGenerator(settings).generate(directory);
+        new BulkLoader(dataSource, new DefaultResourceLoader(), 1000, 1)
+                .load(directory.toUri().toString(), directory.resolve("images"));
+
+        try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+            statement.executeUpdate("update product set stock = 1000000000");
+        }
+
+        SqlStatementProfiler.watch(entityManagerFactory.unwrap(SessionFactory.class).getStatistics());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        entityManagerFactory.close();
+        try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    int users() {
+        return Math.max(10, rows / 10);
+    }
+
+    /**
+     * @param sql query that selects one integer column
+     * @return values of the column
+     */
+    int[] selectIds(String sql) throws SQLException {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.createStatement();
+             var resultSet = statement.executeQuery(sql)) {
+            var ids = new ArrayList<Integer>();
+            while (resultSet.next())
+                ids.add(resultSet.getInt(1));
+            return ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+}
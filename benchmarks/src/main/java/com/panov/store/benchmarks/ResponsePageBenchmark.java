@@ -0,0 +1,122 @@
+package com.panov.store.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.panov.store.dto.OrderDTO;
+import com.panov.store.dto.ProductDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures CPU time and bytes on the wire of one page of a list response, written the way
+ * the JSON message converter writes it: straight into the response stream, optionally
+ * through gzip (see {@code GzipCompressionFilter}). <br><br>
+ * Products carry inline Base64 images like the responses of {@code /api/v2/products} do.
+ * The number of written bytes per page is reported as {@code wire.bytes.norm},
+ * see {@link WireBytesProfiler}.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponsePageBenchmark {
+    private static final int IMAGE_SIZE = 32 * 1024;
+
+    /** Number of entities on the page. */
+    @Param({ "20", "100" })
+    private int size;
+
+    /** ObjectMapper of the MVC converters ({@code blackbird}) or a plain one ({@code default}). */
+    @Param({ "default", "blackbird" })
+    private String mapper;
+
+    /** Content coding of the response, gzip with the deflate level after the dash. */
+    @Param({ "identity", "gzip-1", "gzip-6" })
+    private String encoding;
+
+    private ObjectWriter writer;
+    private List<ProductDTO> products;
+    private List<OrderDTO> orders;
+    private final CountingOutputStream wire = new CountingOutputStream();
+
+    @Setup
+    public void setUp() {
+        var builder = Jackson2ObjectMapperBuilder.json();
+        if (mapper.equals("blackbird"))
+            builder.modulesToInstall(new BlackbirdModule());
+        // the converter does not close the response stream either
+        writer = builder.build().writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        var random = new Random(size);
+        var productModels = Fixtures.products(size, Fixtures.productTypes(10), 3);
+        products = productModels.stream()
+                .map(ProductDTO::of)
+                .peek(p -> {
+                    byte[] image = new byte[IMAGE_SIZE];
+                    random.nextBytes(image);
+                    p.setImage(Base64.getEncoder().encodeToString(image));
+                })
+                .toList();
+        orders = Fixtures.orders(size, Fixtures.user(1), productModels, 5)
+                .stream()
+                .map(OrderDTO::of)
+                .toList();
+    }
+
+    @Benchmark
+    public long products() throws IOException {
+        return write(products);
+    }
+
+    @Benchmark
+    public long orders() throws IOException {
+        return write(orders);
+    }
+
+    private long write(Object page) throws IOException {
+        wire.count = 0;
+        if (encoding.startsWith("gzip-")) {
+            int level = Integer.parseInt(encoding.substring("gzip-".length()));
+            var gzip = new GZIPOutputStream(wire, 8192) {{
+                def.setLevel(level);
+            }};
+            writer.writeValue(gzip, page);
+            gzip.finish();
+        } else {
+            writer.writeValue(wire, page);
+        }
+        WireBytesProfiler.record(wire.count);
+        return wire.count;
+    }
+
+    /**
+     * Stands for the response stream: counts written bytes and drops them.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.panov.store.benchmarks;
+
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JMH profiler that reports the number of SQL statements Hibernate prepared
+ * per benchmark operation ({@code sql.statements.norm}). <br><br>
+ * Statements are counted by the {@link Statistics} of the session factory registered with
+ * {@link #watch(Statistics)}, so the persistence unit has to be created with
+ * {@code hibernate.generate_statistics} enabled. Benchmarks that do not register
+ * a session factory produce no result.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class SqlStatementProfiler implements InternalProfiler {
+    private static volatile Statistics statistics;
+
+    private long statementsBefore;
+
+    /**
+     * Starts counting statements of a session factory in the current benchmark JVM.
+     *
+     * @param statistics statistics of the session factory under the benchmark
+     */
+    static void watch(Statistics statistics) {
+        SqlStatementProfiler.statistics = statistics;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Number of SQL statements prepared by Hibernate per operation";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        var current = statistics;
+        statementsBefore = current == null ? 0 : current.getPrepareStatementCount();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+            BenchmarkParams benchmarkParams,
+            IterationParams iterationParams,
+            IterationResult result
+    ) {
+        var current = statistics;
+        long operations = result.getMetadata().getAllOps();
+        if (current == null || operations == 0)
+            return List.of();
+
+        double statements = current.getPrepareStatementCount() - statementsBefore;
+        return List.of(new ScalarResult(
+                "sql.statements.norm", statements / operations, "#/op", AggregationPolicy.AVG
+        ));
+    }
+}
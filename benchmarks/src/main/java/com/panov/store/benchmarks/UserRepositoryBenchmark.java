@@ -0,0 +1,67 @@
+package com.panov.store.benchmarks;
+
+import com.panov.store.dao.UserRepository;
+import com.panov.store.dataset.DatasetGenerator;
+import com.panov.store.model.User;
+import com.panov.store.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link UserRepository#getByColumn(Object, Integer, Integer, boolean)} against
+ * the embedded H2 database: a lookup by the exact phone number and by the exact email,
+ * which is only tried after the phone number lookup finds nothing. <br><br>
+ * {@link #login()} measures logins per second as {@code UserService.login} performs them:
+ * one {@link UserRepository#getCredentials(String)} lookup and one password check by
+ * {@link BoundedPasswordEncoder} with the BCrypt encoder of the application.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserRepositoryBenchmark {
+    private final SplittableRandom random = new SplittableRandom(42);
+    private UserRepository repository;
+    private BoundedPasswordEncoder passwordEncoder;
+    private int users;
+
+    @Setup(Level.Trial)
+    public void setUp(RepositoryBenchmarkDatabase database) {
+        repository = new UserRepository(database.entityManagerFactory);
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(), 0, 64, 5000, new SimpleMeterRegistry());
+        users = database.users();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        passwordEncoder.destroy();
+    }
+
+    @Benchmark
+    public List<User> getByPhoneNumber() {
+        return repository.getByColumn(String.format("09%08d", 1 + random.nextInt(users)), null, null, true);
+    }
+
+    @Benchmark
+    public List<User> getByEmail() {
+        return repository.getByColumn("user" + (1 + random.nextInt(users)) + "@example.com", null, null, true);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean login() {
+        var credentials = repository.getCredentials(String.format("09%08d", 1 + random.nextInt(users))).orElseThrow();
+        return passwordEncoder.matches(DatasetGenerator.PASSWORD, credentials.getHashPassword());
+    }
+}
@@ -0,0 +1,63 @@
+package com.panov.store.benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JMH profiler that reports the number of response bytes a benchmark sent to the client
+ * per benchmark operation ({@code wire.bytes.norm}). <br><br>
+ * Bytes are reported by benchmarks with {@link #record(long)}. Benchmarks that do not
+ * report bytes produce no result.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class WireBytesProfiler implements InternalProfiler {
+    private static final LongAdder bytes = new LongAdder();
+
+    private long bytesBefore;
+
+    /**
+     * Adds bytes written by a benchmark operation in the current benchmark JVM.
+     *
+     * @param count number of written bytes
+     */
+    static void record(long count) {
+        bytes.add(count);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Number of response bytes sent per operation";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        bytesBefore = bytes.sum();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+            BenchmarkParams benchmarkParams,
+            IterationParams iterationParams,
+            IterationResult result
+    ) {
+        long operations = result.getMetadata().getAllOps();
+        double written = bytes.sum() - bytesBefore;
+        if (operations == 0 || written == 0)
+            return List.of();
+
+        return List.of(new ScalarResult(
+                "wire.bytes.norm", written / operations, "B/op", AggregationPolicy.AVG
+        ));
+    }
+}
@@ -0,0 +1,165 @@
+package com.panov.store.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.panov.store.dataset.DatasetGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One simulated client that runs {@link Scenario scenarios} against a dataset
+ * generated by {@link DatasetGenerator}: products, product types and users are
+ * addressed by their positions in the dataset, users log in with
+ * {@link DatasetGenerator#PASSWORD} and the first user is an administrator.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class Customer {
+    private static final int PAGE = 20;
+    private static final int DELIVERY_TYPES = 4;
+    private static final List<String> SEARCH_TERMS = DatasetGenerator.nouns();
+    // phone numbers of registered users start with 07, so they never clash with the dataset (06, 09)
+    private static final AtomicInteger registrations = new AtomicInteger();
+
+    private final StoreClient client;
+    private final DatasetGenerator.Settings dataset;
+    private final SplittableRandom random;
+    private final int totalWeight;
+
+    private String token;
+    private int userId;
+    private String managerToken;
+
+    /**
+     * @param client client of the application
+     * @param dataset settings of the dataset in the database
+     * @param seed seed of the random choices of this client
+     */
+    public Customer(StoreClient client, DatasetGenerator.Settings dataset, long seed) {
+        this.client = client;
+        this.dataset = dataset;
+        this.random = new SplittableRandom(seed);
+        int total = 0;
+        for (Scenario scenario : Scenario.values())
+            total += scenario.getWeight();
+        this.totalWeight = total;
+    }
+
+    /**
+     * Runs a scenario chosen according to the scenario weights.
+     */
+    public void runNext() throws InterruptedException {
+        run(nextScenario());
+    }
+
+    public void run(Scenario scenario) throws InterruptedException {
+        switch (scenario) {
+            case BROWSE_CATALOG -> browseCatalog();
+            case SEARCH -> search();
+            case VIEW_PRODUCT -> viewProduct();
+            case REGISTER_AND_LOGIN -> registerAndLogin();
+            case CHECKOUT -> checkout();
+            case PROCESS_ORDERS -> processOrders();
+        }
+    }
+
+    private Scenario nextScenario() {
+        int value = random.nextInt(totalWeight);
+        for (Scenario scenario : Scenario.values()) {
+            value -= scenario.getWeight();
+            if (value < 0)
+                return scenario;
+        }
+        throw new IllegalStateException();
+    }
+
+    private void browseCatalog() throws InterruptedException {
+        client.get("GET /api/v2/product_types", "/api/v2/product_types", null);
+        int offset = random.nextInt(Math.max(1, dataset.getProducts() - PAGE));
+        client.get("GET /api/v2/products", "/api/v2/products?quantity=" + PAGE + "&offset=" + offset, null);
+        int productType = 1 + random.nextInt(dataset.getProductTypes());
+        client.get("GET /api/v2/products?category",
+                "/api/v2/products?quantity=" + PAGE + "&category=" + productType, null);
+    }
+
+    private void search() throws InterruptedException {
+        String term = SEARCH_TERMS.get(random.nextInt(SEARCH_TERMS.size()));
+        client.get("GET /api/v2/products?name", "/api/v2/products?quantity=" + PAGE + "&name=" + term, null);
+    }
+
+    private void viewProduct() throws InterruptedException {
+        client.get("GET /api/v2/products/{id}", "/api/v2/products/" + product(), null);
+    }
+
+    private void registerAndLogin() throws InterruptedException {
+        String phoneNumber = String.format("07%08d", registrations.incrementAndGet());
+        var form = Map.of(
+                "firstname", "Load",
+                "lastname", "Test",
+                "phoneNumber", phoneNumber,
+                "password", DatasetGenerator.PASSWORD
+        );
+        if (client.post("POST /api/v2/users/register", "/api/v2/users/register", form, null) == null)
+            return;
+        login(phoneNumber);
+    }
+
+    private void checkout() throws InterruptedException {
+        if (token == null) {
+            int user = 2 + random.nextInt(Math.max(1, dataset.getUsers() - 1));
+            JsonNode auth = login(String.format("09%08d", user));
+            if (auth == null)
+                return;
+            token = auth.path("jwt").asText();
+            userId = auth.path("userId").asInt();
+        }
+
+        List<Map<String, Object>> lines = new ArrayList<>();
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++)
+            lines.add(Map.of("product", Map.of("productId", product()), "quantity", 1));
+        var order = Map.of(
+                "user", Map.of("userId", userId),
+                "deliveryType", Map.of("deliveryTypeId", 1 + random.nextInt(DELIVERY_TYPES)),
+                "orderProducts", lines
+        );
+        client.post("POST /api/v2/orders", "/api/v2/orders", order, token);
+    }
+
+    private void processOrders() throws InterruptedException {
+        if (managerToken == null) {
+            JsonNode auth = login(String.format("09%08d", 1));
+            if (auth == null)
+                return;
+            managerToken = auth.path("jwt").asText();
+        }
+
+        JsonNode orders = client.get("GET /api/v2/orders?status",
+                "/api/v2/orders?status=POSTED&quantity=" + PAGE, managerToken);
+        if (orders == null || orders.isEmpty())
+            return;
+
+        JsonNode order = orders.get(random.nextInt(orders.size()));
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (JsonNode line : order.path("orderProducts"))
+            lines.add(Map.of(
+                    "product", Map.of("productId", line.path("product").path("productId").asInt()),
+                    "quantity", line.path("quantity").asInt()
+            ));
+        var patch = Map.of("status", "ACCEPTED", "orderProducts", lines);
+        client.patch("PATCH /api/v2/orders/{id}", "/api/v2/orders/" + order.path("orderId").asInt(), patch, managerToken);
+    }
+
+    private JsonNode login(String phoneNumber) throws InterruptedException {
+        var form = Map.of("phoneNumber", phoneNumber, "password", DatasetGenerator.PASSWORD);
+        return client.post("POST /api/v2/users/login", "/api/v2/users/login", form, null);
+    }
+
+    private int product() {
+        return 1 + random.nextInt(dataset.getProducts());
+    }
+}
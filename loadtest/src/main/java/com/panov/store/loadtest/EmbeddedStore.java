@@ -0,0 +1,93 @@
+package com.panov.store.loadtest;
+
+import com.panov.store.configuration.DelegatingFilterProxyRegistrar;
+import com.panov.store.configuration.DispatcherServletConfiguration;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.springframework.context.ApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.SpringServletContainerInitializer;
+import org.springframework.web.servlet.FrameworkServlet;
+import org.springframework.web.servlet.support.AbstractDispatcherServletInitializer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * The application deployed to an embedded Tomcat, the same way an external container
+ * deploys the war archive: Spring's {@link SpringServletContainerInitializer} runs
+ * {@link DispatcherServletConfiguration} and {@link DelegatingFilterProxyRegistrar}.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class EmbeddedStore implements AutoCloseable {
+    private final Tomcat tomcat;
+    private final Context context;
+    private final Path baseDirectory;
+
+    private EmbeddedStore(Tomcat tomcat, Context context, Path baseDirectory) {
+        this.tomcat = tomcat;
+        this.context = context;
+        this.baseDirectory = baseDirectory;
+    }
+
+    /**
+     * Starts the container and waits until the application context is refreshed.
+     *
+     * @param port HTTP port, 0 for any free port
+     * @param maxThreads maximum number of request processing threads, ignored with virtual threads
+     * @param virtualThreads whether every request is processed on its own virtual thread
+     * @return started application
+     * @throws LifecycleException if the container or the application cannot be started
+     * @throws IOException if the working directory of the container cannot be created
+     */
+    public static EmbeddedStore start(int port, int maxThreads, boolean virtualThreads)
+            throws LifecycleException, IOException {
+        Path baseDirectory = Files.createTempDirectory("store-tomcat");
+
+        var tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDirectory.toString());
+        tomcat.setPort(port);
+        tomcat.getConnector().setProperty("maxThreads", String.valueOf(maxThreads));
+        tomcat.getConnector().setProperty("useVirtualThreads", String.valueOf(virtualThreads));
+
+        Context context = tomcat.addContext("", baseDirectory.toString());
+        context.addServletContainerInitializer(
+                new SpringServletContainerInitializer(),
+                Set.of(DispatcherServletConfiguration.class, DelegatingFilterProxyRegistrar.class)
+        );
+
+        tomcat.start();
+        return new EmbeddedStore(tomcat, context, baseDirectory);
+    }
+
+    /**
+     * @return port the container listens on
+     */
+    public int getPort() {
+        return tomcat.getConnector().getLocalPort();
+    }
+
+    /**
+     * @return application context of the dispatcher servlet
+     */
+    public ApplicationContext getApplicationContext() {
+        return (ApplicationContext) context.getServletContext().getAttribute(
+                FrameworkServlet.SERVLET_CONTEXT_PREFIX + AbstractDispatcherServletInitializer.DEFAULT_SERVLET_NAME
+        );
+    }
+
+    @Override
+    public void close() throws LifecycleException, IOException {
+        try {
+            tomcat.stop();
+            tomcat.destroy();
+        } finally {
+            FileSystemUtils.deleteRecursively(baseDirectory);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.panov.store.loadtest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects latencies and failures of requests per endpoint and prints
+ * throughput and p50/p95/p99 latencies of every endpoint. <br><br>
+ * Percentiles are computed over the whole measurement, nothing is recorded
+ * until {@link #start()} is called, so warm-up requests are excluded.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class LatencyRecorder {
+    private static final String REQUESTS = "loadtest.requests";
+    private static final String FAILURES = "loadtest.failures";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private volatile boolean recording;
+    private long startedAt;
+    private long stoppedAt;
+
+    /**
+     * Starts recording.
+     */
+    public void start() {
+        startedAt = System.nanoTime();
+        recording = true;
+    }
+
+    /**
+     * Stops recording. Requests that are still in progress are not recorded.
+     */
+    public void stop() {
+        recording = false;
+        stoppedAt = System.nanoTime();
+    }
+
+    /**
+     * @param endpoint HTTP method and path template of the request, e.g. {@code GET /api/v2/products/{id}}
+     * @param nanos time from sending the request to receiving the whole response
+     * @param successful whether the response had a successful status
+     */
+    public void record(String endpoint, long nanos, boolean successful) {
+        if (!recording)
+            return;
+
+        Timer.builder(REQUESTS)
+                .tag("endpoint", endpoint)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .percentilePrecision(2)
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (!successful)
+            Counter.builder(FAILURES).tag("endpoint", endpoint).register(registry).increment();
+    }
+
+    /**
+     * Prints a line per endpoint: number of requests, failures, requests per second
+     * and latency percentiles in milliseconds.
+     *
+     * @param out stream to print to
+     */
+    public void report(PrintStream out) {
+        double seconds = (stoppedAt - startedAt) / 1e9;
+        long total = 0;
+
+        out.printf("%-40s %9s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Failures", "Req/s", "p50 ms", "p95 ms", "p99 ms");
+        var timers = registry.find(REQUESTS).timers()
+                .stream()
+                .sorted(Comparator.comparing(t -> t.getId().getTag("endpoint")))
+                .toList();
+        for (Timer timer : timers) {
+            String endpoint = timer.getId().getTag("endpoint");
+            var failures = registry.find(FAILURES).tag("endpoint", endpoint).counter();
+            ValueAtPercentile[] percentiles = timer.takeSnapshot().percentileValues();
+
+            out.printf("%-40s %9d %9d %9.1f %9.1f %9.1f %9.1f%n",
+                    endpoint,
+                    timer.count(),
+                    failures == null ? 0 : (long) failures.count(),
+                    timer.count() / seconds,
+                    percentiles[0].value(TimeUnit.MILLISECONDS),
+                    percentiles[1].value(TimeUnit.MILLISECONDS),
+                    percentiles[2].value(TimeUnit.MILLISECONDS));
+            total += timer.count();
+        }
+        out.printf("%-40s %9d %9s %9.1f%n", "Total", total, "", total / seconds);
+    }
+}
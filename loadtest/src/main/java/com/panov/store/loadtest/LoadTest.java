@@ -0,0 +1,151 @@
+package com.panov.store.loadtest;
+
+import com.panov.store.dao.BulkLoader;
+import com.panov.store.dataset.DatasetGenerator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.FileSystemUtils;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test: starts the application in an {@link EmbeddedStore}, fills the
+ * database with a generated dataset and runs {@link Scenario scenarios} from many concurrent
+ * clients, then prints throughput and latency percentiles of every endpoint. <br><br>
+ * Arguments: <br>
+ * {@code --clients=50} number of concurrent clients, each runs scenarios one after another <br>
+ * {@code --warmup=10}, {@code --duration=60} seconds of warm-up and of measurement <br>
+ * {@code --port=0} HTTP port, {@code --serverThreads=200} request processing threads <br>
+ * {@code --virtualThreads=false} whether requests are processed on virtual threads instead <br>
+ * {@code --productTypes}, {@code --products}, {@code --users}, {@code --orders}, {@code --seed}
+ * size of the generated dataset (see {@link DatasetGenerator.Settings}) <br>
+ * {@code --load=true} whether to load the dataset, turn it off for a database that already has it <br>
+ * {@code --jdbc-url}, {@code --jdbc-user}, {@code --jdbc-password} a (local PostgreSQL) database
+ * to use instead of the embedded H2 one. Its schema is migrated by Flyway as usual. <br><br>
+ * Clients run on virtual threads.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public final class LoadTest {
+    private static final Logger log = LogManager.getLogger(LoadTest.class);
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        var dataset = new DatasetGenerator.Settings();
+        dataset.setProducts(1_000);
+        dataset.setUsers(200);
+        dataset.setOrders(1_000);
+        int clients = 50;
+        int warmup = 10;
+        int duration = 60;
+        int port = 0;
+        int serverThreads = 200;
+        boolean virtualThreads = false;
+        boolean load = true;
+        String url = null;
+        String user = null;
+        String password = null;
+
+        for (String arg : args) {
+            String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            String value = pair.length > 1 ? pair[1] : "";
+            switch (pair[0]) {
+                case "clients" -> clients = Integer.parseInt(value);
+                case "warmup" -> warmup = Integer.parseInt(value);
+                case "duration" -> duration = Integer.parseInt(value);
+                case "port" -> port = Integer.parseInt(value);
+                case "serverThreads" -> serverThreads = Integer.parseInt(value);
+                case "virtualThreads" -> virtualThreads = Boolean.parseBoolean(value);
+                case "seed" -> dataset.setSeed(Long.parseLong(value));
+                case "productTypes" -> dataset.setProductTypes(Integer.parseInt(value));
+                case "products" -> dataset.setProducts(Integer.parseInt(value));
+                case "users" -> dataset.setUsers(Integer.parseInt(value));
+                case "orders" -> dataset.setOrders(Integer.parseInt(value));
+                case "load" -> load = Boolean.parseBoolean(value);
+                case "jdbc-url" -> url = value;
+                case "jdbc-user" -> user = value;
+                case "jdbc-password" -> password = value;
+                default -> throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        if (url == null) {
+            // the migrations are written for PostgreSQL, Hibernate creates the schema in H2
+            System.setProperty("db.migration.enabled", "false");
+            System.setProperty("db.schema.action", "create");
+        } else {
+            System.setProperty("db.driver", "org.postgresql.Driver");
+            System.setProperty("db.url", url);
+            System.setProperty("db.user", user == null ? "" : user);
+            System.setProperty("db.password", password == null ? "" : password);
+        }
+
+        try (var store = EmbeddedStore.start(port, serverThreads, virtualThreads)) {
+            if (load)
+                load(store.getApplicationContext().getBean(DataSource.class), dataset);
+
+            var recorder = new LatencyRecorder();
+            var client = new StoreClient("http://localhost:" + store.getPort(), recorder);
+            run(client, recorder, dataset, clients, warmup, duration);
+
+            recorder.report(System.out);
+        }
+    }
+
+    private static void load(DataSource dataSource, DatasetGenerator.Settings dataset) throws Exception {
+        Path directory = Files.createTempDirectory("loadtest-dataset");
+        try {
+            new DatasetGenerator(dataset).generate(directory);
+            new BulkLoader(dataSource, new DefaultResourceLoader(), 1000, 1)
+                    .load(directory.toUri().toString(), directory.resolve("images"));
+        } finally {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+
+        // orders placed during the test never run out of stock
+        try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+            statement.executeUpdate("update product set stock = 1000000000");
+        }
+    }
+
+    private static void run(StoreClient client, LatencyRecorder recorder, DatasetGenerator.Settings dataset,
+                            int clients, int warmup, int duration) throws Exception {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup + duration);
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                var customer = new Customer(client, dataset, dataset.getSeed() * 31 + i);
+                futures.add(executor.submit(() -> {
+                    while (System.nanoTime() < end)
+                        customer.runNext();
+                    return null;
+                }));
+            }
+
+            log.info("{} clients are warming up for {} s", clients, warmup);
+            TimeUnit.SECONDS.sleep(warmup);
+            recorder.start();
+            log.info("Measuring for {} s", duration);
+            TimeUnit.SECONDS.sleep(duration);
+            recorder.stop();
+
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.panov.store.loadtest;
+
+/**
+ * Scripted sequences of requests of one simulated client, with the share
+ * of every scenario in the traffic.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ * @see Customer
+ */
+public enum Scenario {
+    /** Product types, a page of products and a page of products of some product type. */
+    BROWSE_CATALOG(40),
+    /** Search of products by part of the name. */
+    SEARCH(20),
+    /** A single product. */
+    VIEW_PRODUCT(20),
+    /** Registration of a new user and login. */
+    REGISTER_AND_LOGIN(5),
+    /** Login of an existing user (once per client) and a new order. */
+    CHECKOUT(10),
+    /** A manager lists posted orders and accepts one of them. */
+    PROCESS_ORDERS(5);
+
+    private final int weight;
+
+    Scenario(int weight) {
+        this.weight = weight;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
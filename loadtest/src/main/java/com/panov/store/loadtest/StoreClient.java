@@ -0,0 +1,88 @@
+package com.panov.store.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * HTTP client of the application API that records latency of every request
+ * in a {@link LatencyRecorder}. One instance is shared by all simulated clients.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class StoreClient {
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(TIMEOUT)
+            .build();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String baseUrl;
+    private final LatencyRecorder recorder;
+
+    /**
+     * @param baseUrl url of the application, e.g. {@code http://localhost:8080}
+     * @param recorder recorder of request latencies
+     */
+    public StoreClient(String baseUrl, LatencyRecorder recorder) {
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+    }
+
+    /**
+     * @return body of the response or {@code null} if the request failed
+     */
+    public JsonNode get(String endpoint, String path, String token) throws InterruptedException {
+        return send(endpoint, request(path, token).GET());
+    }
+
+    /**
+     * @return body of the response or {@code null} if the request failed
+     */
+    public JsonNode post(String endpoint, String path, Object body, String token) throws InterruptedException {
+        return send(endpoint, request(path, token).POST(json(body)));
+    }
+
+    /**
+     * @return body of the response or {@code null} if the request failed
+     */
+    public JsonNode patch(String endpoint, String path, Object body, String token) throws InterruptedException {
+        return send(endpoint, request(path, token).method("PATCH", json(body)));
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        var builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT);
+        if (token != null)
+            builder.header("Authorization", "Bearer " + token);
+        return builder;
+    }
+
+    private HttpRequest.BodyPublisher json(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private JsonNode send(String endpoint, HttpRequest.Builder builder) throws InterruptedException {
+        var request = builder.header("Content-Type", "application/json").build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            boolean successful = response.statusCode() / 100 == 2;
+            recorder.record(endpoint, System.nanoTime() - start, successful);
+            return successful ? mapper.readTree(response.body()) : null;
+        } catch (IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, false);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.panov.store.cache;
+
+import com.panov.store.dao.CatalogVersion;
+
+import java.util.Set;
+
+/**
+ * Serialized body of a response kept by {@link ResponseCache}.
+ *
+ * @param body JSON bytes of the body
+ * @param version version of the catalog page in the body, {@code null} if the response has no ETag
+ * @param products identities of the products in the body, {@code null} if they are not known,
+ *                 then a change of any product removes the response
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public record CachedResponse(byte[] body, CatalogVersion version, int[] products) {
+    public CachedResponse(byte[] body, CatalogVersion version) {
+        this(body, version, null);
+    }
+
+    /**
+     * @param changedProducts identities of changed products
+     * @return {@code true} if the body may contain some of the products
+     */
+    boolean contains(Set<Integer> changedProducts) {
+        if (products == null)
+            return true;
+        for (int product : products) {
+            if (changedProducts.contains(product))
+                return true;
+        }
+        return false;
+    }
+}
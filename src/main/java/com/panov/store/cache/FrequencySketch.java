@@ -0,0 +1,86 @@
+package com.panov.store.cache;
+
+/**
+ * Approximate counter of recent accesses to keys (Count-Min sketch of 4-bit counters),
+ * used by {@link ResponseCache} to decide which of two entries is more valuable. <br><br>
+ * Every key has a counter in each of four rows, its frequency is the smallest of them,
+ * so collisions may only overestimate it. When the number of increments reaches ten times
+ * the number of counters, all counters are halved, so the history of old popular keys fades out.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+final class FrequencySketch {
+    private static final int ROWS = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long[] SEEDS = {
+            0x97CB3127C0B8B6B3L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L
+    };
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedKeys expected number of distinct keys in the cache
+     */
+    FrequencySketch(int expectedKeys) {
+        int counters = Integer.highestOneBit(Math.max(64, Math.min(1 << 26, expectedKeys)) - 1) << 1;
+        this.table = new long[counters / 16 * ROWS];
+        this.counterMask = counters * ROWS - 1;
+        this.sampleSize = 10 * counters;
+    }
+
+    /**
+     * @param key key of an access
+     * @return estimated number of recent accesses, at most 15
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < ROWS; row++) {
+            int index = indexOf(hash, row);
+            frequency = Math.min(frequency, (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 0xF));
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access to the key.
+     *
+     * @param key key of the access
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < ROWS; row++) {
+            int index = indexOf(hash, row);
+            int shift = (index & 15) << 2;
+            if (((table[index >>> 4] >>> shift) & 0xF) < MAX_COUNT) {
+                table[index >>> 4] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize)
+            reset();
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++)
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        long mixed = (hash + SEEDS[row]) * SEEDS[row];
+        mixed ^= mixed >>> 32;
+        return (int) mixed & counterMask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45D9F3B;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,408 @@
+package com.panov.store.cache;
+
+import com.panov.store.dao.CatalogChanges;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Cache of serialized catalog responses, so a popular page is sent with a single write
+ * of its bytes instead of a query, mapping to DTOs and serialization. <br><br>
+ * The cache is bounded by the total size of the bodies ({@code http.responseCache.maxBytes}).
+ * Which entries stay is decided the way of W-TinyLFU: a new entry gets into a small window
+ * (1% of the size), and an entry pushed out of the window stays in the cache only if it was
+ * requested more often recently than the entry it would evict, judged by a {@link FrequencySketch}.
+ * The rest of the cache is split into a probation part and a protected part (80%) for entries
+ * requested again, so a scan of many pages requested once cannot flush the popular ones. <br><br>
+ * A committed change of the catalog ({@link CatalogChanges}) empties the cache, but a change of only
+ * stocks and prices (e.g. by an order) removes only the responses that contain the changed products.
+ * A response computed before a change that affects it is not stored, see {@link #generation()}. Entries also expire after
+ * {@code http.responseCache.maxAgeMillis}, which bounds the staleness of pages read from a replica
+ * that lags behind the primary. {@code http.responseCache.enabled=false} turns the cache off. <br><br>
+ * A hit takes no lock: the entry is looked up in a concurrent map and the request is recorded
+ * in a small lossy buffer. The buffer is applied to the sketch and the segments under the lock
+ * of the cache by the thread that fills it up (if the lock is free) or by the next {@code put}.
+ * Losing a record when the buffer is contended only makes the frequencies a bit less precise.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Component
+public class ResponseCache implements DisposableBean {
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int EXPECTED_ENTRY_SIZE = 8 * 1024;
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+    private static final int MAX_INVALIDATIONS = 64;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long windowMaxBytes;
+    private final long protectedMaxBytes;
+    private final long maxAgeNanos;
+    private final FrequencySketch sketch;
+
+    private final Map<String, Node> index = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Segment window = new Segment();
+    private final Segment probation = new Segment();
+    private final Segment protectedSegment = new Segment();
+    private volatile long generation;
+    private final Deque<Invalidation> invalidations = new ArrayDeque<>();
+
+    private final AtomicReferenceArray<String> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicInteger readPosition = new AtomicInteger();
+    private final AtomicInteger pendingReads = new AtomicInteger();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Consumer<CatalogChanges.Change> invalidation = this::invalidate;
+
+    public ResponseCache(@Value("${http.responseCache.enabled:true}") boolean enabled,
+                         @Value("${http.responseCache.maxBytes:67108864}") long maxBytes,
+                         @Value("${http.responseCache.maxAgeMillis:60000}") long maxAgeMillis,
+                         MeterRegistry registry) {
+        this.enabled = enabled && maxBytes > 0;
+        this.maxBytes = maxBytes;
+        this.windowMaxBytes = Math.max(1, maxBytes / 100);
+        this.protectedMaxBytes = (maxBytes - windowMaxBytes) * 4 / 5;
+        this.maxAgeNanos = maxAgeMillis * 1_000_000;
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, maxBytes / EXPECTED_ENTRY_SIZE));
+
+        this.hits = Counter.builder("http.responseCache.requests")
+                .tag("result", "hit")
+                .description("Catalog responses served from the cache")
+                .register(registry);
+        this.misses = Counter.builder("http.responseCache.requests")
+                .tag("result", "miss")
+                .description("Catalog responses that were not in the cache")
+                .register(registry);
+        Gauge.builder("http.responseCache.bytes", this, ResponseCache::size)
+                .description("Size of the cached responses")
+                .register(registry);
+
+        CatalogChanges.addListener(invalidation);
+    }
+
+    /**
+     * @param endpoint name of the endpoint
+     * @param parameters normalized parameters of the request, {@code null} for absent ones
+     * @return key of the response
+     */
+    public static String key(String endpoint, Object... parameters) {
+        var key = new StringJoiner("|", endpoint + "|", "");
+        for (var parameter : parameters)
+            key.add(parameter == null ? "" : parameter.toString().replace("\\", "\\\\").replace("|", "\\|"));
+        return key.toString();
+    }
+
+    /**
+     * @param key key of the response
+     * @return the cached response or {@code null}
+     */
+    public CachedResponse get(String key) {
+        if (!enabled)
+            return null;
+
+        var node = index.get(key);
+        recordRead(key);
+        if (node != null && System.nanoTime() - node.storedAt > maxAgeNanos) {
+            expire(node);
+            node = null;
+        }
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return node.response;
+    }
+
+    /**
+     * @return the current generation of the cache, it changes when the cache is invalidated.
+     *         A response is stored only if no invalidation since the generation in which it was
+     *         computed affects it, so take it before reading the data of the response.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Stores a response, if no invalidation since its generation affects it and it is not too large.
+     *
+     * @param key key of the response
+     * @param response the response
+     * @param generation generation of the cache taken before the data of the response was read
+     */
+    public void put(String key, CachedResponse response, long generation) {
+        if (!enabled)
+            return;
+
+        long size = response.body().length + 2L * key.length() + ENTRY_OVERHEAD;
+        lock.lock();
+        try {
+            drainReads();
+            if (size > maxBytes - windowMaxBytes || invalidatedSince(generation, response))
+                return;
+
+            var existing = index.get(key);
+            if (existing != null)
+                remove(existing);
+
+            var node = new Node(key, response, size, System.nanoTime());
+            index.put(key, node);
+            window.add(node);
+            while (window.bytes > windowMaxBytes)
+                admit(window.removeEldest());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all responses.
+     */
+    public void invalidate() {
+        lock.lock();
+        try {
+            logInvalidation(null);
+            index.clear();
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the responses that may contain some of the products.
+     *
+     * @param products identities of the changed products
+     */
+    public void invalidate(Set<Integer> products) {
+        lock.lock();
+        try {
+            logInvalidation(products);
+            for (var iterator = index.values().iterator(); iterator.hasNext(); ) {
+                var node = iterator.next();
+                if (node.response.contains(products)) {
+                    iterator.remove();
+                    node.segment.remove(node);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return total size of the cached responses in bytes
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return window.bytes + probation.bytes + protectedSegment.bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        CatalogChanges.removeListener(invalidation);
+    }
+
+    private void invalidate(CatalogChanges.Change change) {
+        if (change.affectsEverything())
+            invalidate();
+        else
+            invalidate(change.products());
+    }
+
+    /**
+     * Starts a new generation. Must be called with {@code lock} held.
+     *
+     * @param products identities of the changed products, {@code null} for all of them
+     */
+    private void logInvalidation(Set<Integer> products) {
+        generation++;
+        if (invalidations.size() == MAX_INVALIDATIONS)
+            invalidations.removeFirst();
+        invalidations.addLast(new Invalidation(generation, products));
+    }
+
+    /**
+     * Checks if the response was invalidated after it was computed in the generation. If the
+     * invalidations since then are not known anymore, the response is considered invalidated.
+     * Must be called with {@code lock} held.
+     */
+    private boolean invalidatedSince(long generation, CachedResponse response) {
+        if (generation == this.generation)
+            return false;
+        var oldest = invalidations.peekFirst();
+        if (oldest == null || oldest.generation > generation + 1)
+            return true;
+        for (var iterator = invalidations.descendingIterator(); iterator.hasNext(); ) {
+            var invalidation = iterator.next();
+            if (invalidation.generation <= generation)
+                break;
+            if (invalidation.products == null || response.contains(invalidation.products))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a request of the key in the read buffer, the record is dropped if its slot is taken.
+     * The buffer is drained by the thread that fills it up, unless another thread holds the lock.
+     */
+    private void recordRead(String key) {
+        int slot = readPosition.getAndIncrement() & (READ_BUFFER_SIZE - 1);
+        if (!readBuffer.compareAndSet(slot, null, key))
+            return;
+        if (pendingReads.incrementAndGet() >= DRAIN_THRESHOLD && lock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies the recorded requests to the sketch and the segments. Must be called with {@code lock} held.
+     */
+    private void drainReads() {
+        for (int slot = 0; slot < READ_BUFFER_SIZE; slot++) {
+            String key = readBuffer.getAndSet(slot, null);
+            if (key == null)
+                continue;
+            pendingReads.decrementAndGet();
+            sketch.increment(key);
+            var node = index.get(key);
+            if (node == null || node.segment == null)
+                continue;
+            if (node.segment == probation) {
+                probation.remove(node);
+                protectedSegment.add(node);
+                while (protectedSegment.bytes > protectedMaxBytes)
+                    probation.add(protectedSegment.removeEldest());
+            } else {
+                node.segment.touch(node);
+            }
+        }
+    }
+
+    private void expire(Node node) {
+        lock.lock();
+        try {
+            if (index.get(node.key) == node)
+                remove(node);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves an entry pushed out of the window to probation, if there is room for it or
+     * it was requested more often than the entries that have to be evicted for it.
+     */
+    private void admit(Node candidate) {
+        int frequency = sketch.frequency(candidate.key);
+        while (probation.bytes + protectedSegment.bytes + candidate.size > maxBytes - windowMaxBytes) {
+            var victim = probation.eldest();
+            if (victim == null)
+                victim = protectedSegment.eldest();
+            if (sketch.frequency(victim.key) >= frequency) {
+                index.remove(candidate.key);
+                return;
+            }
+            remove(victim);
+        }
+        probation.add(candidate);
+    }
+
+    private void remove(Node node) {
+        index.remove(node.key);
+        node.segment.remove(node);
+    }
+
+    /**
+     * @param generation the generation started by the invalidation
+     * @param products identities of the changed products, {@code null} for all of them
+     */
+    private record Invalidation(long generation, Set<Integer> products) {}
+
+    private static final class Node {
+        final String key;
+        final CachedResponse response;
+        final long size;
+        final long storedAt;
+        Segment segment;
+
+        Node(String key, CachedResponse response, long size, long storedAt) {
+            this.key = key;
+            this.response = response;
+            this.size = size;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * Entries in the order from the least to the most recently used.
+     */
+    private static final class Segment {
+        final LinkedHashMap<String, Node> nodes = new LinkedHashMap<>();
+        long bytes;
+
+        void add(Node node) {
+            nodes.put(node.key, node);
+            node.segment = this;
+            bytes += node.size;
+        }
+
+        void remove(Node node) {
+            if (nodes.remove(node.key, node))
+                bytes -= node.size;
+        }
+
+        void touch(Node node) {
+            nodes.remove(node.key);
+            nodes.put(node.key, node);
+        }
+
+        Node eldest() {
+            Iterator<Node> iterator = nodes.values().iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        Node removeEldest() {
+            var node = Objects.requireNonNull(eldest());
+            remove(node);
+            return node;
+        }
+
+        void clear() {
+            nodes.clear();
+            bytes = 0;
+        }
+    }
+}
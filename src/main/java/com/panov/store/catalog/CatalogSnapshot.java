@@ -0,0 +1,375 @@
+package com.panov.store.catalog;
+
+import com.panov.store.dao.CatalogVersion;
+import com.panov.store.model.Product;
+import com.panov.store.model.ProductType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable copy of the catalog, kept in memory by {@link CatalogSnapshots}. <br><br>
+ * The products are stored column by column in arrays ordered by identity, so a page is
+ * a slice of positions and its version is computed without creating objects per product.
+ * Product types are interned: every product keeps the dense indexes of its types, and every
+ * type keeps the ascending positions of its products, so a page of a category is a slice
+ * of that list. A snapshot is never changed, a change of the catalog publishes a new one.
+ * When only prices and stocks change, the new snapshot copies just those columns.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public final class CatalogSnapshot {
+    private static final int DEFAULT_QUANTITY = 500;
+    private static final long NO_PRICE = Long.MIN_VALUE;
+    private static final int NO_STOCK = Integer.MIN_VALUE;
+    private static final int[] EMPTY = new int[0];
+
+    private final int[] ids;
+    private final String[] names;
+    private final String[] lowerCaseNames;
+    private final String[] descriptions;
+    private final String[] images;
+    private final long[] priceCents;
+    private final int[] stocks;
+    private final Timestamp[] updatedAt;
+    private final int[][] productTypes;
+
+    private final int[] typeIds;
+    private final String[] typeNames;
+    private final int[][] typeProducts;
+
+    final Probe probe;
+    final long generation;
+    final long loadedAt;
+
+    private CatalogSnapshot(CatalogSnapshot data, Probe probe, long generation, long loadedAt) {
+        this(data, data.priceCents, data.stocks, data.updatedAt, probe, generation, loadedAt);
+    }
+
+    private CatalogSnapshot(CatalogSnapshot data, long[] priceCents, int[] stocks, Timestamp[] updatedAt,
+                            Probe probe, long generation, long loadedAt) {
+        this.ids = data.ids;
+        this.names = data.names;
+        this.lowerCaseNames = data.lowerCaseNames;
+        this.descriptions = data.descriptions;
+        this.images = data.images;
+        this.priceCents = priceCents;
+        this.stocks = stocks;
+        this.updatedAt = updatedAt;
+        this.productTypes = data.productTypes;
+        this.typeIds = data.typeIds;
+        this.typeNames = data.typeNames;
+        this.typeProducts = data.typeProducts;
+        this.probe = probe;
+        this.generation = generation;
+        this.loadedAt = loadedAt;
+    }
+
+    private CatalogSnapshot(Builder builder, Probe probe, long generation, long loadedAt) {
+        int size = builder.ids.size();
+        this.ids = new int[size];
+        this.names = builder.names.toArray(new String[0]);
+        this.lowerCaseNames = new String[size];
+        this.descriptions = builder.descriptions.toArray(new String[0]);
+        this.images = builder.images.toArray(new String[0]);
+        this.priceCents = new long[size];
+        this.stocks = new int[size];
+        this.updatedAt = builder.updatedAt.toArray(new Timestamp[0]);
+        for (int i = 0; i < size; i++) {
+            ids[i] = builder.ids.get(i);
+            lowerCaseNames[i] = names[i] == null ? null : names[i].toLowerCase(Locale.ROOT);
+            priceCents[i] = builder.priceCents.get(i);
+            stocks[i] = builder.stocks.get(i);
+        }
+
+        int types = builder.typeIds.size();
+        this.typeIds = new int[types];
+        this.typeNames = builder.typeNames.toArray(new String[0]);
+        for (int i = 0; i < types; i++)
+            typeIds[i] = builder.typeIds.get(i);
+
+        int[] typesOfProduct = new int[size];
+        int[] productsOfType = new int[types];
+        var memberships = new ArrayList<int[]>(builder.memberships.size());
+        for (int[] membership : builder.memberships) {
+            int position = indexOf(membership[0]);
+            int type = Arrays.binarySearch(typeIds, membership[1]);
+            if (position < 0 || type < 0)
+                continue;
+            memberships.add(new int[] { position, type });
+            typesOfProduct[position]++;
+            productsOfType[type]++;
+        }
+        memberships.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+
+        this.productTypes = new int[size][];
+        this.typeProducts = new int[types][];
+        for (int i = 0; i < size; i++)
+            productTypes[i] = typesOfProduct[i] == 0 ? EMPTY : new int[typesOfProduct[i]];
+        for (int i = 0; i < types; i++)
+            typeProducts[i] = productsOfType[i] == 0 ? EMPTY : new int[productsOfType[i]];
+        Arrays.fill(typesOfProduct, 0);
+        Arrays.fill(productsOfType, 0);
+        for (int[] membership : memberships) {
+            int position = membership[0];
+            int type = membership[1];
+            productTypes[position][typesOfProduct[position]++] = type;
+            typeProducts[type][productsOfType[type]++] = position;
+        }
+
+        this.probe = probe;
+        this.generation = generation;
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * @return number of products in the snapshot
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param id an identity of a product
+     * @return position of the product or a negative number if there is no such product
+     */
+    public int indexOf(int id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    /**
+     * Positions of the page of products ordered by identity, the same page as
+     * {@code ProductRepository.getPackage} and {@code ProductRepository.getPackageByProductType} return.
+     *
+     * @param offset number of skipped products, {@code null} or a negative one means 0
+     * @param quantity maximal number of products, {@code null} or a negative one means 500
+     * @param typeId if not {@code null}, only products of the product type with this identity
+     * @return positions of the products on the page
+     */
+    public int[] range(Integer offset, Integer quantity, Integer typeId) {
+        if (typeId == null)
+            return slice(null, ids.length, offset, quantity);
+
+        int type = Arrays.binarySearch(typeIds, typeId);
+        if (type < 0)
+            return EMPTY;
+        return slice(typeProducts[type], typeProducts[type].length, offset, quantity);
+    }
+
+    /**
+     * Positions of the page of products with names that contain the pattern, ignoring case,
+     * the same page as {@code ProductRepository.getByColumn} returns. As in {@code LIKE},
+     * {@code %} and {@code _} in the pattern are wildcards and {@code \} escapes them.
+     *
+     * @param pattern a part of the name
+     * @param offset number of skipped products, {@code null} or a negative one means 0
+     * @param quantity maximal number of products, {@code null} or a negative one means 500
+     * @return positions of the products on the page or {@code null} if the pattern is not
+     *         a valid {@code LIKE} pattern and has to be evaluated by the database
+     */
+    public int[] byName(String pattern, Integer offset, Integer quantity) {
+        if (pattern == null || pattern.isBlank())
+            return EMPTY;
+
+        String lowerCasePattern = pattern.toLowerCase(Locale.ROOT);
+        Pattern like = null;
+        if (lowerCasePattern.indexOf('%') >= 0 || lowerCasePattern.indexOf('_') >= 0
+                || lowerCasePattern.indexOf('\\') >= 0) {
+            like = like(lowerCasePattern);
+            if (like == null)
+                return null;
+        }
+
+        int[] matches = new int[Math.min(ids.length, 64)];
+        int count = 0;
+        for (int i = 0; i < ids.length; i++) {
+            String name = lowerCaseNames[i];
+            if (name == null)
+                continue;
+            if (like == null ? !name.contains(lowerCasePattern) : !like.matcher(name).matches())
+                continue;
+            if (count == matches.length)
+                matches = Arrays.copyOf(matches, matches.length * 2);
+            matches[count++] = i;
+        }
+        return slice(matches, count, offset, quantity);
+    }
+
+    /**
+     * @param positions positions of the products on a page
+     * @return version of the page, equal to the one computed by the repository for the same page
+     */
+    public CatalogVersion version(int[] positions) {
+        var rows = new ArrayList<Object[]>(positions.length);
+        for (int position : positions)
+            rows.add(new Object[] { ids[position], updatedAt[position] });
+        return CatalogVersion.of(rows);
+    }
+
+    /**
+     * Creates a detached {@link Product} with its product types. The image is
+     * the name of the stored image, as in the database.
+     *
+     * @param position position of the product
+     * @return the product
+     */
+    public Product product(int position) {
+        var product = new Product();
+        product.setProductId(ids[position]);
+        product.setName(names[position]);
+        product.setDescription(descriptions[position]);
+        product.setImage(images[position]);
+        product.setPrice(priceCents[position] == NO_PRICE ? null : BigDecimal.valueOf(priceCents[position], 2));
+        product.setStock(stocks[position] == NO_STOCK ? null : stocks[position]);
+        product.setUpdatedAt(updatedAt[position]);
+
+        List<ProductType> types = new ArrayList<>(productTypes[position].length);
+        for (int type : productTypes[position]) {
+            var productType = new ProductType();
+            productType.setProductTypeId(typeIds[type]);
+            productType.setName(typeNames[type]);
+            types.add(productType);
+        }
+        product.setProductTypes(types);
+        return product;
+    }
+
+    /**
+     * @return a snapshot with the same data, confirmed to be current at {@code loadedAt}
+     */
+    CatalogSnapshot renewed(long generation, long loadedAt) {
+        return new CatalogSnapshot(this, probe, generation, loadedAt);
+    }
+
+    /**
+     * Creates a snapshot with new prices, stocks and update times of some products. Only these
+     * columns are copied, the rest of the data is shared with this snapshot.
+     *
+     * @param rows the changed products, only their prices, stocks and update times are used
+     * @return the new snapshot or {@code null} if some of the products are not in this snapshot
+     */
+    CatalogSnapshot patched(Builder rows, long generation) {
+        long[] newPriceCents = priceCents.clone();
+        int[] newStocks = stocks.clone();
+        Timestamp[] newUpdatedAt = updatedAt.clone();
+        for (int i = 0; i < rows.ids.size(); i++) {
+            int position = indexOf(rows.ids.get(i));
+            if (position < 0)
+                return null;
+            newPriceCents[position] = rows.priceCents.get(i);
+            newStocks[position] = rows.stocks.get(i);
+            newUpdatedAt[position] = rows.updatedAt.get(i);
+        }
+        return new CatalogSnapshot(this, newPriceCents, newStocks, newUpdatedAt, probe, generation, loadedAt);
+    }
+
+    private static int[] slice(int[] positions, int length, Integer offset, Integer quantity) {
+        int from = offset == null || offset < 0 ? 0 : offset;
+        int max = quantity == null || quantity < 0 ? DEFAULT_QUANTITY : quantity;
+        if (from >= length || max == 0)
+            return EMPTY;
+
+        int to = (int) Math.min(length, (long) from + max);
+        if (positions != null)
+            return Arrays.copyOfRange(positions, from, to);
+
+        int[] page = new int[to - from];
+        for (int i = 0; i < page.length; i++)
+            page[i] = from + i;
+        return page;
+    }
+
+    /**
+     * Translates {@code %pattern%} with {@code LIKE} wildcards into a regular expression.
+     *
+     * @return the expression or {@code null} if the pattern ends with a lone escape character
+     */
+    private static Pattern like(String pattern) {
+        var regex = new StringBuilder(".*");
+        var literal = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                if (++i == pattern.length())
+                    return null;
+                literal.append(pattern.charAt(i));
+            } else if (c == '%' || c == '_') {
+                if (!literal.isEmpty())
+                    regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty())
+            regex.append(Pattern.quote(literal.toString()));
+        return Pattern.compile(regex.append(".*").toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * Cheap summary of the catalog tables, compared to find out if the catalog has changed.
+     *
+     * @param products number of products
+     * @param productsUpdatedAt the latest update time of products
+     * @param types number of product types
+     * @param typesUpdatedAt the latest update time of product types
+     * @param memberships number of links between products and product types
+     */
+    record Probe(long products, Timestamp productsUpdatedAt,
+                 long types, Timestamp typesUpdatedAt, long memberships) {}
+
+    /**
+     * Collects the rows of a snapshot. Products must be added in the order of their identities,
+     * product types in the order of theirs. Rows of changed products for {@link #patched(Builder, long)}
+     * may come in any order.
+     */
+    static final class Builder {
+        private final List<Integer> ids = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<String> descriptions = new ArrayList<>();
+        private final List<String> images = new ArrayList<>();
+        private final List<Long> priceCents = new ArrayList<>();
+        private final List<Integer> stocks = new ArrayList<>();
+        private final List<Timestamp> updatedAt = new ArrayList<>();
+        private final List<Integer> typeIds = new ArrayList<>();
+        private final List<String> typeNames = new ArrayList<>();
+        private final List<int[]> memberships = new ArrayList<>();
+
+        Builder product(int id, String name, String description, String image,
+                        BigDecimal price, Integer stock, Timestamp updatedAt) {
+            ids.add(id);
+            names.add(name);
+            descriptions.add(description);
+            images.add(image);
+            priceCents.add(price == null
+                    ? NO_PRICE
+                    : price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+            stocks.add(stock == null ? NO_STOCK : stock);
+            this.updatedAt.add(updatedAt);
+            return this;
+        }
+
+        Builder productType(int id, String name) {
+            typeIds.add(id);
+            typeNames.add(name);
+            return this;
+        }
+
+        Builder membership(int productId, int productTypeId) {
+            memberships.add(new int[] { productId, productTypeId });
+            return this;
+        }
+
+        CatalogSnapshot build(Probe probe, long generation, long loadedAt) {
+            return new CatalogSnapshot(this, probe, generation, loadedAt);
+        }
+    }
+}
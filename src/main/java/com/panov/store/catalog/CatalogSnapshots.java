@@ -0,0 +1,336 @@
+package com.panov.store.catalog;
+
+import com.panov.store.dao.CatalogChanges;
+import com.panov.store.images.ImageStorage;
+import com.panov.store.metrics.ServerTiming;
+import com.panov.store.model.Product;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Keeps a {@link CatalogSnapshot} of products and product types in memory, so catalog reads
+ * take no locks and do not touch the database. <br><br>
+ * The snapshot is published through a volatile reference and replaced as a whole (copy-on-write).
+ * It is updated by a background thread right after every committed change of the catalog
+ * made by this instance ({@link CatalogChanges}), and until the new one is published the old one
+ * is not served. A change of only stocks and prices (e.g. by an order) reads just the changed
+ * products and copies only the price and stock columns, any other change reloads the whole
+ * snapshot. Changes made by other instances are found by a cheap probe of the catalog tables
+ * (counts and the latest update times) every {@code maxStalenessMillis / 2}, the snapshot is
+ * rebuilt only if the probe differs. A snapshot that was not confirmed for
+ * {@code catalog.snapshot.maxStalenessMillis} is not served either. <br><br>
+ * The snapshot is read from the primary database in one transaction. When it is not served,
+ * {@link #current()} returns {@code null} and the callers read the database as usual.
+ * {@code catalog.snapshot.enabled=false} turns the snapshot off.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Component
+public class CatalogSnapshots implements DisposableBean {
+    private static final Logger LOGGER = LogManager.getLogger(CatalogSnapshots.class);
+    private static final int FETCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private final ImageStorage imageStorage;
+    private final long maxStalenessNanos;
+    private final ScheduledExecutorService refresher;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    private final AtomicBoolean reloadPending = new AtomicBoolean();
+    private final Set<Integer> pendingProducts = ConcurrentHashMap.newKeySet();
+    private final Consumer<CatalogChanges.Change> changeListener = this::changed;
+    private volatile CatalogSnapshot snapshot;
+
+    public CatalogSnapshots(DataSource dataSource,
+                            ImageStorage imageStorage,
+                            @Value("${catalog.snapshot.enabled:true}") boolean enabled,
+                            @Value("${catalog.snapshot.maxStalenessMillis:30000}") long maxStalenessMillis,
+                            MeterRegistry registry) {
+        this.dataSource = dataSource;
+        this.imageStorage = imageStorage;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+
+        Gauge.builder("catalog.snapshot.products", this, snapshots -> {
+                    var current = snapshots.snapshot;
+                    return current == null ? 0 : current.size();
+                })
+                .description("Products in the in-memory catalog snapshot")
+                .register(registry);
+        Gauge.builder("catalog.snapshot.age", this, snapshots -> {
+                    var current = snapshots.snapshot;
+                    return current == null ? Double.NaN : (System.nanoTime() - current.loadedAt) / 1e9;
+                })
+                .description("Seconds since the catalog snapshot was last confirmed to be current")
+                .register(registry);
+
+        if (enabled && maxStalenessMillis > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "catalog-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = Math.max(100, maxStalenessMillis / 2);
+            refresher.scheduleWithFixedDelay(() -> refresh(false), 0, interval, TimeUnit.MILLISECONDS);
+            CatalogChanges.addListener(changeListener);
+        } else {
+            refresher = null;
+        }
+    }
+
+    /**
+     * @return the current snapshot or {@code null} if it is not loaded yet, the catalog has been
+     *         changed since it was loaded, or it was not confirmed for longer than the staleness bound
+     */
+    public CatalogSnapshot current() {
+        var current = snapshot;
+        if (current == null
+                || current.generation != generation.get()
+                || System.nanoTime() - current.loadedAt > maxStalenessNanos)
+            return null;
+        return current;
+    }
+
+    /**
+     * @param snapshot a snapshot
+     * @param position position of a product in the snapshot
+     * @return the product with its image encoded in Base64, as {@code ProductService} returns it
+     */
+    public Product product(CatalogSnapshot snapshot, int position) {
+        var product = snapshot.product(position);
+        fetchImage(product);
+        return product;
+    }
+
+    /**
+     * @param snapshot a snapshot
+     * @param positions positions of products in the snapshot
+     * @return the products with their images encoded in Base64, as {@code ProductService} returns them
+     */
+    public List<Product> products(CatalogSnapshot snapshot, int[] positions) {
+        var products = new ArrayList<Product>(positions.length);
+        for (int position : positions)
+            products.add(product(snapshot, position));
+        return products;
+    }
+
+    /**
+     * Checks if the catalog has changed and loads a new snapshot if it has.
+     *
+     * @param force load a new snapshot without checking
+     */
+    void refresh(boolean force) {
+        refresh(force, generation.get());
+    }
+
+    @Override
+    public void destroy() {
+        if (refresher == null)
+            return;
+        CatalogChanges.removeListener(changeListener);
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Publishes a snapshot that contains the changes up to {@code current}. If the catalog has been
+     * changed since, the snapshot is not served until the update scheduled by that change.
+     *
+     * @return {@code true} if a snapshot was published
+     */
+    private boolean refresh(boolean force, long current) {
+        long startedAt = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                var probe = probe(connection);
+                var previous = snapshot;
+                if (!force && previous != null && previous.generation == current && previous.probe.equals(probe)) {
+                    snapshot = previous.renewed(current, startedAt);
+                } else {
+                    snapshot = load(connection, probe, current, startedAt);
+                    LOGGER.debug("Loaded a catalog snapshot of {} products in {} ms",
+                            snapshot.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                }
+                return true;
+            } finally {
+                connection.rollback();
+            }
+        } catch (Exception e) {
+            LOGGER.error("Could not refresh the catalog snapshot", e);
+            return false;
+        }
+    }
+
+    /**
+     * Stops serving the snapshot and schedules its update. Changes that come
+     * before the scheduled update starts are covered by it.
+     */
+    private void changed(CatalogChanges.Change change) {
+        // the change must be recorded before the generation is incremented, so an update
+        // that has read the generation finds every change up to it
+        if (change.affectsEverything())
+            reloadPending.set(true);
+        else
+            pendingProducts.addAll(change.products());
+        generation.incrementAndGet();
+
+        if (updateScheduled.compareAndSet(false, true)) {
+            refresher.execute(() -> {
+                updateScheduled.set(false);
+                update();
+            });
+        }
+    }
+
+    /**
+     * Patches the products with changed stocks and prices into a copy of the current snapshot,
+     * or reloads the snapshot if anything else has changed or it cannot be patched.
+     */
+    private void update() {
+        long current = generation.get();
+        boolean reload = reloadPending.getAndSet(false);
+        var changedProducts = new ArrayList<Integer>();
+        for (var iterator = pendingProducts.iterator(); iterator.hasNext(); ) {
+            changedProducts.add(iterator.next());
+            iterator.remove();
+        }
+
+        var previous = snapshot;
+        if (!reload && previous != null && changedProducts.isEmpty()) {
+            snapshot = previous.renewed(current, previous.loadedAt);
+            return;
+        }
+        if (!reload && previous != null && changedProducts.size() <= FETCH_SIZE) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                connection.setReadOnly(true);
+                try {
+                    var rows = changedRows(connection, changedProducts);
+                    var next = rows == null ? null : previous.patched(rows, current);
+                    if (next != null) {
+                        snapshot = next;
+                        return;
+                    }
+                } finally {
+                    connection.rollback();
+                }
+            } catch (Exception e) {
+                LOGGER.error("Could not patch the catalog snapshot", e);
+            }
+        }
+        // the drained products are lost if the reload fails, so the next update must reload again
+        if (!refresh(true, current))
+            reloadPending.set(true);
+    }
+
+    private static CatalogSnapshot.Probe probe(Connection connection) throws SQLException {
+        try (var statement = connection.createStatement();
+             var result = statement.executeQuery(
+                     "select (select count(*) from product), (select max(updatedat) from product), " +
+                             "(select count(*) from producttype), (select max(updatedat) from producttype), " +
+                             "(select count(*) from product_producttype)")) {
+            result.next();
+            return new CatalogSnapshot.Probe(
+                    result.getLong(1), result.getTimestamp(2),
+                    result.getLong(3), result.getTimestamp(4),
+                    result.getLong(5)
+            );
+        }
+    }
+
+    /**
+     * @return rows of the products or {@code null} if some of them do not exist anymore
+     */
+    private static CatalogSnapshot.Builder changedRows(Connection connection, List<Integer> ids)
+            throws SQLException {
+        int found = 0;
+        var builder = new CatalogSnapshot.Builder();
+        var sql = "select productid, price, stock, updatedat from product where productid in ("
+                + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        try (var statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++)
+                statement.setInt(i + 1, ids.get(i));
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    Integer stock = result.getInt(3);
+                    if (result.wasNull())
+                        stock = null;
+                    builder.product(result.getInt(1), null, null, null,
+                            result.getBigDecimal(2), stock, result.getTimestamp(4));
+                    found++;
+                }
+            }
+        }
+        return found == ids.size() ? builder : null;
+    }
+
+    private static CatalogSnapshot load(Connection connection, CatalogSnapshot.Probe probe,
+                                        long generation, long loadedAt) throws SQLException {
+        var builder = new CatalogSnapshot.Builder();
+        try (var statement = connection.createStatement()) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet result = statement.executeQuery(
+                    "select productid, name, description, image, price, stock, updatedat " +
+                            "from product order by productid")) {
+                while (result.next()) {
+                    Integer stock = result.getInt(6);
+                    if (result.wasNull())
+                        stock = null;
+                    builder.product(
+                            result.getInt(1),
+                            result.getString(2),
+                            result.getString(3),
+                            result.getString(4),
+                            result.getBigDecimal(5),
+                            stock,
+                            result.getTimestamp(7)
+                    );
+                }
+            }
+            try (ResultSet result = statement.executeQuery(
+                    "select producttypeid, name from producttype order by producttypeid")) {
+                while (result.next())
+                    builder.productType(result.getInt(1), result.getString(2));
+            }
+            try (ResultSet result = statement.executeQuery(
+                    "select product_productid, producttypes_producttypeid from product_producttype")) {
+                while (result.next())
+                    builder.membership(result.getInt(1), result.getInt(2));
+            }
+        }
+        return builder.build(probe, generation, loadedAt);
+    }
+
+    private void fetchImage(Product product) {
+        if (product.getImage() == null)
+            return;
+
+        try (var span = ServerTiming.span(ServerTiming.IMAGES)) {
+            product.setImage(Base64.getEncoder().encodeToString(imageStorage.read(product.getImage())));
+        } catch (Exception ignored) {}
+    }
+}
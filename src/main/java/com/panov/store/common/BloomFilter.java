@@ -0,0 +1,83 @@
+package com.panov.store.common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free set of strings that answers "maybe contains" in about 10 bits per element,
+ * with about 1% of false positives and no false negatives. <br><br>
+ * Elements may be added while other threads check them. Every filter takes a seed of its
+ * hash functions, so two filters with different seeds do not give false positives for the same strings.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class BloomFilter {
+    private static final int BITS_PER_ELEMENT = 10;
+    private static final int HASHES = 7;
+    private static final long MAX_BITS = (long) Integer.MAX_VALUE * Long.SIZE;
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final long seed;
+
+    /**
+     * @param expectedElements expected number of added elements
+     */
+    public BloomFilter(long expectedElements) {
+        this(expectedElements, 0);
+    }
+
+    /**
+     * @param expectedElements expected number of added elements
+     * @param seed seed of the hash functions
+     */
+    public BloomFilter(long expectedElements, long seed) {
+        long wanted = Math.min(MAX_BITS, Math.max(Long.SIZE, expectedElements * BITS_PER_ELEMENT));
+        this.words = new AtomicLongArray((int) ((wanted + Long.SIZE - 1) / Long.SIZE));
+        this.bits = (long) words.length() * Long.SIZE;
+        this.seed = seed;
+    }
+
+    public void put(String element) {
+        long hash = hash(element);
+        long h1 = hash, h2 = mix(hash ^ seed) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = words.get(word);
+                if ((current & mask) != 0)
+                    break;
+            } while (!words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String element) {
+        long hash = hash(element);
+        long h1 = hash, h2 = mix(hash ^ seed) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    private long hash(String element) {
+        long hash = seed;
+        for (int i = 0; i < element.length(); i++)
+            hash = (hash ^ element.charAt(i)) * 0x100000001B3L;
+        return mix(hash);
+    }
+
+    /**
+     * Finalizer of SplitMix64, spreads every input bit over the whole result.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -4,6 +4,8 @@ public class Constants {
     public static final String SECRET = "8dcbb6cce5c8870b3fd57c60d5f280c33e47529ce64966a0ff024df61f8c6dcf";
     public static final long EXPIRATION = 24 * 60 * 60 * 1000;
     public static final String STATIC_IMAGES_FOLDER = "images";
+    // upper bound of multipart requests, images.upload.maxBytes is checked while the image is saved
+    public static final long MAX_MULTIPART_REQUEST_SIZE = 32L * 1024 * 1024;
 
     private Constants() {}
 }
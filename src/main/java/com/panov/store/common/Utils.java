@@ -2,13 +2,6 @@ package com.panov.store.common;
 
 import org.postgresql.shaded.com.ongres.scram.common.bouncycastle.base64.Base64;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStream;
-import java.util.UUID;
-
-import static com.panov.store.common.Constants.STATIC_IMAGES_FOLDER;
-
 /**
  * Methods of this class are used to process lists.
  *
@@ -18,40 +11,21 @@ import static com.panov.store.common.Constants.STATIC_IMAGES_FOLDER;
 public final class Utils {
     private Utils() {}
 
-    public static String saveImageToFilesystem(String newImage, String currentImageName) {
-        if (currentImageName != null) {
-            File currentImage = new File(STATIC_IMAGES_FOLDER + "/" + currentImageName);
-            if (currentImage.exists())
-                currentImage.delete();
-        }
-
-        if (newImage.isBlank()) {
+    /**
+     * Decodes an image sent as a Base64 string in a JSON body.
+     *
+     * @param image Base64 representation of the image
+     * @return bytes of the image or {@code null} if the string is blank or not valid Base64
+     */
+    public static byte[] decodeImage(String image) {
+        if (image == null || image.isBlank())
             return null;
-        }
 
-        String imageType = switch (newImage.substring(0, 5).toUpperCase()) {
-            case ("/9J/4") -> ".jpg";
-            case ("PHN2Z") -> ".svg";
-            case ("UKLGR") -> ".webp";
-            default -> ".png";
-        };
-
-        String newImageName = UUID.randomUUID()
-                .toString()
-                .replaceAll("-", "") + imageType;
-
-        try (
-                OutputStream out =
-                        new FileOutputStream(
-                                STATIC_IMAGES_FOLDER + "/" + newImageName
-                        )
-        ) {
-            byte[] imageBytes = Base64.decode(newImage);
-            out.write(imageBytes);
-        } catch(Exception e) {
+        try {
+            return Base64.decode(image);
+        } catch (Exception e) {
             e.printStackTrace();
+            return null;
         }
-
-        return newImageName;
     }
 }
@@ -0,0 +1,124 @@
+package com.panov.store.compression;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Compresses JSON responses with gzip if the client accepts it
+ * ({@code Accept-Encoding}) and the body is at least {@code http.compression.minResponseSize}
+ * bytes long. <br><br>
+ * Smaller bodies are not worth the CPU time and the gzip header, so they are sent as they are.
+ * The fastest deflate level ({@code http.compression.level=1}) compresses JSON text almost
+ * as well as the default level 6 at a fraction of its CPU time.
+ * The body is compressed while it is written (see {@link GzipResponseWrapper}), so large
+ * list responses are not kept in memory. Compression is turned off by
+ * {@code http.compression.enabled=false}.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Component
+public class GzipCompressionFilter extends OncePerRequestFilter {
+    private final boolean enabled;
+    private final int minResponseSize;
+    private final int level;
+
+    public GzipCompressionFilter(@Value("${http.compression.enabled:true}") boolean enabled,
+                                 @Value("${http.compression.minResponseSize:2048}") int minResponseSize,
+                                 @Value("${http.compression.level:1}") int level) {
+        this.enabled = enabled;
+        this.minResponseSize = minResponseSize;
+        this.level = level;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NotNull HttpServletRequest request,
+            @NotNull HttpServletResponse response,
+            @NotNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        if (!enabled) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        var compressingResponse = new GzipResponseWrapper(response, minResponseSize, level);
+        try {
+            filterChain.doFilter(request, compressingResponse);
+        } finally {
+            compressingResponse.finish();
+        }
+    }
+
+    /**
+     * @param acceptEncoding value of the {@code Accept-Encoding} header
+     * @return {@code true} if gzip is accepted with a non-zero quality,
+     *         explicitly or by a wildcard
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+
+        Double gzip = null;
+        Double wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals("gzip"))
+                gzip = quality(parameters);
+            else if (name.equals("*"))
+                wildcard = quality(parameters);
+        }
+
+        if (gzip != null)
+            return gzip > 0;
+        return wildcard != null && wildcard > 0;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @param contentType content type of a response
+     * @return {@code true} if the content type is JSON
+     */
+    static boolean isCompressible(String contentType) {
+        if (contentType == null)
+            return false;
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return MediaType.APPLICATION_JSON.includes(mediaType)
+                    || mediaType.getSubtype().endsWith("+json");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.panov.store.compression;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response that compresses its body with gzip if the body is at least {@code minSize}
+ * bytes long and has a compressible content type. <br><br>
+ * The first {@code minSize} bytes are kept in memory. When the body grows beyond them,
+ * the response is switched either to a gzip stream or to the original output stream,
+ * and the rest of the body is written through without buffering. Smaller bodies are
+ * written uncompressed by {@link #finish()}. <br>
+ * The body is compressed with the given deflate {@code level}.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+class GzipResponseWrapper extends HttpServletResponseWrapper {
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    private final int minSize;
+    private final int level;
+    private final ByteArrayOutputStream head;
+    private OutputStream target;
+    private CompressingOutputStream outputStream;
+    private PrintWriter writer;
+
+    GzipResponseWrapper(HttpServletResponse response, int minSize, int level) {
+        super(response);
+        this.minSize = minSize;
+        this.level = level;
+        this.head = new ByteArrayOutputStream(Math.min(minSize, GZIP_BUFFER_SIZE));
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null)
+            throw new IllegalStateException("getWriter() has already been called");
+        if (outputStream == null)
+            outputStream = new CompressingOutputStream();
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null)
+                throw new IllegalStateException("getOutputStream() has already been called");
+            outputStream = new CompressingOutputStream();
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? StandardCharsets.ISO_8859_1 : Charset.forName(encoding);
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, charset));
+        }
+        return writer;
+    }
+
+    // the length of the body is known only after it is written
+    @Override
+    public void setContentLength(int len) {}
+
+    @Override
+    public void setContentLengthLong(long len) {}
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null)
+            writer.flush();
+        if (target != null) {
+            target.flush();
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void reset() {
+        if (target != null)
+            throw new IllegalStateException("The body has already been written");
+        super.reset();
+        head.reset();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (target != null)
+            throw new IllegalStateException("The body has already been written");
+        super.resetBuffer();
+        head.reset();
+    }
+
+    /**
+     * Writes the rest of the body. If the body has not reached {@code minSize} bytes,
+     * it is written uncompressed with its length.
+     *
+     * @throws IOException if the body could not be written
+     */
+    void finish() throws IOException {
+        if (writer != null)
+            writer.flush();
+        if (target == null) {
+            if (head.size() == 0)
+                return;
+            if (!isCommitted())
+                super.setContentLength(head.size());
+            head.writeTo(super.getOutputStream());
+        } else if (target instanceof GZIPOutputStream gzip) {
+            gzip.finish();
+        }
+    }
+
+    private void switchTarget() throws IOException {
+        if (isCompressible()) {
+            setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            target = new GZIPOutputStream(super.getOutputStream(), GZIP_BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+
+                // the stream is never closed, because closing it would close the response stream,
+                // so the native memory of the deflater is released here
+                @Override
+                public void finish() throws IOException {
+                    try {
+                        super.finish();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
+        } else {
+            target = super.getOutputStream();
+        }
+        head.writeTo(target);
+        head.reset();
+    }
+
+    private boolean isCompressible() {
+        return !isCommitted()
+                && !containsHeader(HttpHeaders.CONTENT_ENCODING)
+                && GzipCompressionFilter.isCompressible(getContentType());
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            if (target == null) {
+                head.write(b);
+                if (head.size() >= minSize)
+                    switchTarget();
+            } else {
+                target.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (target == null) {
+                head.write(b, off, len);
+                if (head.size() >= minSize)
+                    switchTarget();
+            } else {
+                target.write(b, off, len);
+            }
+        }
+
+        // a flush of a small body does not commit the response, so it can still be finished uncompressed
+        @Override
+        public void flush() throws IOException {
+            if (target != null)
+                target.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Non-blocking writes are not supported");
+        }
+    }
+}
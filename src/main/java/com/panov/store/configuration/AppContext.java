@@ -1,6 +1,8 @@
 package com.panov.store.configuration;
 
-import lombok.RequiredArgsConstructor;
+import com.panov.store.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -18,15 +20,14 @@ import org.springframework.security.crypto.password.PasswordEncoder;
  * @version 1.0
  */
 @Configuration
-@RequiredArgsConstructor
 public class AppContext {
-    private final UserDetailsService userDetailsService;
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(UserDetailsService userDetailsService,
+                                                         PasswordEncoder passwordEncoder) {
         var provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(userDetailsService);
-        provider.setPasswordEncoder(passwordEncoder());
+        provider.setPasswordEncoder(passwordEncoder);
         return provider;
     }
 
@@ -35,8 +36,29 @@ public class AppContext {
         return configuration.getAuthenticationManager();
     }
 
+    /**
+     * Provides BCrypt password encoder that hashes passwords on a dedicated bounded executor,
+     * so authentication bursts cannot occupy all the servlet container threads.
+     *
+     * @param registry registry for hashing metrics
+     * @param threads number of hashing threads, 0 means "number of available processors"
+     * @param queueCapacity maximal number of hashing tasks waiting for a free thread
+     * @param timeoutMillis maximal time a request waits for hashing result
+     * @return {@link BoundedPasswordEncoder} instance
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            MeterRegistry registry,
+            @Value("${auth.hashing.threads:0}") int threads,
+            @Value("${auth.hashing.queueCapacity:64}") int queueCapacity,
+            @Value("${auth.hashing.timeoutMillis:5000}") long timeoutMillis
+    ) {
+        return new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(),
+                threads,
+                queueCapacity,
+                timeoutMillis,
+                registry
+        );
     }
 }
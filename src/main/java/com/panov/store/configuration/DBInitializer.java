@@ -1,146 +1,78 @@
 package com.panov.store.configuration;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.panov.store.dao.DAO;
-import com.panov.store.model.*;
-import com.panov.store.services.UnregisteredCustomerService;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityManagerFactory;
+import com.panov.store.dao.BulkLoader;
+import com.panov.store.images.ImageStore;
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
-
-import java.io.*;
-import java.net.URL;
-import java.util.List;
-import java.util.Properties;
-
-import static com.panov.store.common.Constants.STATIC_IMAGES_FOLDER;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * If {@code fillDatabaseWithInitialData} property in META-INF/app.properties is equal
- * to true, then this method will seed the database with initial data.
+ * to true, then this class will seed the database with initial data. <br><br>
+ * Seeding is started in the background after the context is refreshed,
+ * so it does not delay the application startup. The data is loaded by {@link BulkLoader}
+ * from {@code db.seed.location}, which is the bundled META-INF/initial folder by default,
+ * and the images are put to the {@link ImageStore}.
  *
  * @author Maksym Panov
  * @version 1.0
  */
-
-@Configuration
+@Component
 @RequiredArgsConstructor
 public class DBInitializer {
-    private final EntityManagerFactory emf;
-    private final DAO<Order> orderRepository;
-    private final UnregisteredCustomerService unregisteredCustomerService;
-
-    @Bean
-    public void seedDatabase() {
-        File imageDirectory = new File(STATIC_IMAGES_FOLDER);
-        if (!imageDirectory.exists() || !imageDirectory.isDirectory()) {
-            imageDirectory.mkdir();
-        }
-
-        EntityManager em = emf.createEntityManager();
-        try {
-            ClassPathResource cpr = new ClassPathResource("META-INF/app.properties");
-            File file = cpr.getFile();
-            if (!file.exists())
-                return;
-            Properties properties = new Properties();
-            InputStream fis = new FileInputStream(file);
-            properties.load(fis);
-            boolean seed = Boolean.parseBoolean(properties.getProperty("fillDatabaseWithInitialData"));
-            fis.close();
-            if (!seed)
-                return;
-
-            em.getTransaction().begin();
-            seedProductTypes(em);
-            seedProducts(em);
-            seedUsers(em);
-            seedDeliveryTypes(em);
-            em.getTransaction().commit();
-
-            seedOrders();
-            System.out.println("DATABASE HAS BEEN SUCCESSFULLY SEEDED");
-
-        } catch (Exception e) {
-            System.out.println("COULD NOT SEED THE DATABASE");
-            e.printStackTrace();
-        }
-    }
-
-    private <T> List<T> getList(String filename, Class<T> classname) throws IOException {
-        URL url = getClass().getClassLoader().getResource("META-INF/initial/" + filename);
-        ObjectMapper mapper = new ObjectMapper();
-        var reader = mapper.readerForListOf(classname);
-        return (List<T>) reader.readValue(url);
-    }
-
-    private void seedProductTypes(EntityManager em) throws IOException {
-        List<ProductType> productTypes = getList("product_types.json", ProductType.class);
-
-        productTypes.forEach(em::persist);
-    }
-
-    private void seedProducts(EntityManager em) throws IOException {
-        List<Product> products = getList("products.json", Product.class);
-
-        products.forEach(em::persist);
-
-        products.stream()
-                .map(Product::getImage)
-                .forEach(this::transferInitialImageToFilesystem);
-    }
-
-    private void seedUsers(EntityManager em) throws IOException {
-        List<User> users = getList("users.json", User.class);
-
-        users.forEach(em::persist);
-
-        users.stream()
-                .map(User::getImage)
-                .forEach(this::transferInitialImageToFilesystem);
-    }
-
-    private void seedDeliveryTypes(EntityManager em) throws IOException {
-        List<DeliveryType> deliveryTypes = getList("delivery_types.json", DeliveryType.class);
-
-        deliveryTypes.forEach(em::persist);
-    }
+    private static final Logger LOGGER = LogManager.getLogger(DBInitializer.class);
+
+    private final DataSource dataSource;
+    private final ResourceLoader resourceLoader;
+    private final Environment environment;
+    private final ApplicationStartup applicationStartup;
+    private final ImageStore imageStore;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void onContextRefreshed() {
+        if (!started.compareAndSet(false, true))
+            return;
 
-    private void seedOrders() throws IOException {
-        List<Order> orders = getList("orders.json", Order.class);
+        if (!environment.getProperty("fillDatabaseWithInitialData", Boolean.class, false))
+            return;
 
-        orders.forEach(o -> {
-            if (o.getUnregisteredCustomer() != null) {
-                unregisteredCustomerService.createUnregisteredCustomer(
-                        o.getUnregisteredCustomer()
-                );
-            }
-            orderRepository.insert(o);
-        });
+        Thread seeding = new Thread(this::seedDatabase, "database-seeding");
+        seeding.setDaemon(true);
+        seeding.start();
     }
 
-    private void transferInitialImageToFilesystem(String imageName) {
-        if (imageName == null) {
-            return;
+    /**
+     * Seeds the database with the data from {@code db.seed.location}.
+     */
+    void seedDatabase() {
+        StartupStep step = applicationStartup.start(StartupReport.STEP_SEEDING);
+        try {
+            var loader = new BulkLoader(
+                    dataSource,
+                    resourceLoader,
+                    environment.getProperty("db.seed.batchSize", Integer.class, 1000),
+                    environment.getProperty("db.seed.imageCopyThreads", Integer.class, 4)
+            );
+            loader.load(
+                    environment.getProperty("db.seed.location", "classpath:META-INF/initial/"),
+                    imageStore
+            );
+            LOGGER.info("Database has been successfully seeded");
+        } catch (Exception e) {
+            LOGGER.error("Could not seed the database", e);
+        } finally {
+            step.end();
         }
-
-        try (
-                InputStream is =
-                        getClass()
-                                .getClassLoader()
-                                .getResourceAsStream("META-INF/initial/" + imageName);
-                OutputStream os =
-                        new FileOutputStream(
-                                STATIC_IMAGES_FOLDER + "/" + imageName
-                        )
-        ) {
-            if (is == null) {
-                return;
-            }
-            os.write(is.readAllBytes());
-        } catch(Exception ignored) {}
     }
 }
@@ -0,0 +1,227 @@
+package com.panov.store.configuration;
+
+import com.panov.store.datasource.BoundedDataSource;
+import com.panov.store.datasource.DataSourceRouting;
+import com.panov.store.datasource.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.flywaydb.core.Flyway;
+import org.hibernate.jpa.boot.internal.ParsedPersistenceXmlDescriptor;
+import org.hibernate.jpa.boot.internal.PersistenceXmlParser;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Provides a pooled {@link DataSource} for the persistence unit. <br><br>
+ * Connection settings ({@code jakarta.persistence.jdbc.*}) are still taken from
+ * {@code META-INF/persistence.xml}, unless overridden with {@code db.driver}, {@code db.url},
+ * {@code db.user} and {@code db.password} (e.g. system properties), while pool settings
+ * are taken from {@code META-INF/app.properties}.
+ * Pool usage, saturation and connection wait time are published to the {@link MeterRegistry}. <br><br>
+ * If {@code db.replicas.urls} is not empty, read-only operations (see {@link DataSourceRouting})
+ * are routed to the listed replicas by {@link ReadWriteRoutingDataSource}. <br><br>
+ * Database schema is migrated by Flyway (migrations from {@code db/migration})
+ * before the persistence unit is bootstrapped.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Configuration
+@RequiredArgsConstructor
+public class DataSourceConfiguration {
+    public static final String UNIT_NAME = "com.panov.store";
+
+    private final Environment environment;
+
+    @Bean
+    public DataSource dataSource(MeterRegistry registry) {
+        Properties unit = persistenceUnitProperties();
+        String driver = environment.getProperty("db.driver", unit.getProperty("jakarta.persistence.jdbc.driver"));
+        String user = environment.getProperty("db.user", unit.getProperty("jakarta.persistence.jdbc.user"));
+        String password = environment.getProperty("db.password", unit.getProperty("jakarta.persistence.jdbc.password"));
+
+        var primary = createPool(
+                "store-primary",
+                driver,
+                environment.getProperty("db.url", unit.getProperty("jakarta.persistence.jdbc.url")),
+                user,
+                password,
+                "db.pool",
+                registry
+        );
+
+        List<String> replicaUrls = Arrays.stream(environment.getProperty("db.replicas.urls", "").split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        if (replicaUrls.isEmpty())
+            return primary;
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            replicas.add(createPool(
+                    "store-replica-" + i,
+                    driver,
+                    replicaUrls.get(i),
+                    environment.getProperty("db.replicas.user", user),
+                    environment.getProperty("db.replicas.password", password),
+                    "db.replicas.pool",
+                    registry
+            ));
+        }
+
+        return new RoutingDataSourceProxy(new ReadWriteRoutingDataSource(
+                primary,
+                replicas,
+                environment.getProperty("db.replicas.healthCheckIntervalMillis", Long.class, 5000L)
+        ));
+    }
+
+    /**
+     * Applies pending Flyway migrations to the primary database. <br>
+     * Can be turned off with {@code db.migration.enabled=false}, e.g. if migrations
+     * are applied by a separate deployment step.
+     *
+     * @param dataSource data source of the application
+     * @param applicationStartup startup metrics of the context
+     * @return configured Flyway instance
+     */
+    @Bean
+    public Flyway flyway(DataSource dataSource, ApplicationStartup applicationStartup) {
+        var flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .locations(environment.getProperty("db.migration.locations", "classpath:db/migration"))
+                .baselineOnMigrate(environment.getProperty("db.migration.baselineOnMigrate", Boolean.class, false))
+                .load();
+
+        if (environment.getProperty("db.migration.enabled", Boolean.class, true)) {
+            StartupStep step = applicationStartup.start(StartupReport.STEP_MIGRATION);
+            try {
+                flyway.migrate();
+            } finally {
+                step.end();
+            }
+        }
+
+        return flyway;
+    }
+
+    /**
+     * Creates a connection pool with settings taken from properties with specified prefix.
+     * Unless {@code <prefix>.permits} is 0, the pool is wrapped into {@link BoundedDataSource},
+     * so that requests wait for a connection in a fair queue in front of the pool.
+     *
+     * @param name name of the pool, used as a tag of pool metrics
+     * @param driver JDBC driver class name
+     * @param url JDBC url of the database
+     * @param user database user
+     * @param password password of the database user
+     * @param prefix prefix of the pool settings in {@code META-INF/app.properties}
+     * @param registry registry for pool metrics
+     * @return pooled data source
+     */
+    private DataSource createPool(String name, String driver, String url, String user, String password,
+                                  String prefix, MeterRegistry registry) {
+        int maximumPoolSize = environment.getProperty(prefix + ".maximumPoolSize", Integer.class, 10);
+
+        var config = new HikariConfig();
+        config.setPoolName(name);
+        config.setDriverClassName(driver);
+        config.setJdbcUrl(url);
+        config.setUsername(user);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(Math.min(
+                environment.getProperty(prefix + ".minimumIdle", Integer.class, maximumPoolSize),
+                maximumPoolSize
+        ));
+        config.setConnectionTimeout(environment.getProperty(prefix + ".connectionTimeoutMillis", Long.class, 5000L));
+        config.setLeakDetectionThreshold(
+                environment.getProperty(prefix + ".leakDetectionThresholdMillis", Long.class, 0L));
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+
+        if (url != null && url.startsWith("jdbc:postgresql:")) {
+            // server-side prepared statements cached per connection, multi-row batched inserts
+            config.addDataSourceProperty("prepareThreshold",
+                    environment.getProperty("db.pool.prepareThreshold", Integer.class, 3));
+            config.addDataSourceProperty("preparedStatementCacheQueries",
+                    environment.getProperty("db.pool.preparedStatementCacheQueries", Integer.class, 256));
+            config.addDataSourceProperty("reWriteBatchedInserts",
+                    environment.getProperty("db.pool.reWriteBatchedInserts", Boolean.class, true));
+        }
+
+        var pool = new PooledDataSource(config);
+        int permits = environment.getProperty(prefix + ".permits", Integer.class, maximumPoolSize);
+        if (permits <= 0)
+            return pool;
+        return new BoundedDataSource(pool, name, permits, config.getConnectionTimeout(), registry);
+    }
+
+    /**
+     * Reads properties of the application persistence unit declared in {@code META-INF/persistence.xml}.
+     *
+     * @return properties of the persistence unit
+     */
+    static Properties persistenceUnitProperties() {
+        return PersistenceXmlParser.locatePersistenceUnits(Collections.emptyMap())
+                .stream()
+                .filter(u -> UNIT_NAME.equals(u.getName()))
+                .findFirst()
+                .map(ParsedPersistenceXmlDescriptor::getProperties)
+                .orElseThrow(() -> new IllegalStateException(
+                        "Persistence unit " + UNIT_NAME + " is not declared in META-INF/persistence.xml"));
+    }
+
+    /**
+     * Hibernate passes {@code jakarta.persistence.jdbc.user/password} of the persistence unit
+     * to {@code getConnection(user, password)} of a provided {@link DataSource}, which is not supported
+     * by the pool. The pool already holds these credentials, so they are ignored here.
+     */
+    static class PooledDataSource extends HikariDataSource {
+        PooledDataSource(HikariConfig config) {
+            super(config);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+    }
+
+    /**
+     * Transaction managers acquire a connection when the transaction begins, before it is known
+     * whether the transaction is read-only. This proxy postpones acquiring the connection
+     * from {@link ReadWriteRoutingDataSource} until the first statement, so the routing
+     * decision can take the transaction into account.
+     */
+    static class RoutingDataSourceProxy extends LazyConnectionDataSourceProxy implements DisposableBean {
+        private final ReadWriteRoutingDataSource routingDataSource;
+
+        RoutingDataSourceProxy(ReadWriteRoutingDataSource routingDataSource) {
+            super(routingDataSource);
+            this.routingDataSource = routingDataSource;
+        }
+
+        @Override
+        public void destroy() throws Exception {
+            routingDataSource.destroy();
+        }
+    }
+}
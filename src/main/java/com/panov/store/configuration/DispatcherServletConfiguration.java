@@ -1,8 +1,14 @@
 package com.panov.store.configuration;
 
+import jakarta.servlet.MultipartConfigElement;
+import jakarta.servlet.ServletRegistration;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
+import static com.panov.store.common.Constants.MAX_MULTIPART_REQUEST_SIZE;
+
 /**
  * Class of Dispatcher Servlet configuration.
  *
@@ -23,6 +29,28 @@ public class DispatcherServletConfiguration extends AbstractAnnotationConfigDisp
         return new Class[] { WebConfiguration.class };
     }
 
+    /**
+     * Application context that reports time spent in every startup phase.
+     *
+     * @see StartupReport
+     */
+    @Override
+    protected @NotNull WebApplicationContext createServletApplicationContext() {
+        var context = (AnnotationConfigWebApplicationContext) super.createServletApplicationContext();
+        context.setApplicationStartup(new StartupReport());
+        return context;
+    }
+
+    /**
+     * Parts of multipart requests (image uploads) are written to temporary files by the container
+     * right away, so they are not kept in memory.
+     */
+    @Override
+    protected void customizeRegistration(ServletRegistration.@NotNull Dynamic registration) {
+        registration.setMultipartConfig(new MultipartConfigElement(
+                "", MAX_MULTIPART_REQUEST_SIZE, MAX_MULTIPART_REQUEST_SIZE, 0));
+    }
+
     /**
      * Specify mappings for Dispatcher Servlet
      */
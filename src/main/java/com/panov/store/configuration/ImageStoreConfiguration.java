@@ -0,0 +1,75 @@
+package com.panov.store.configuration;
+
+import com.panov.store.dao.ImageRepository;
+import com.panov.store.images.DirectoryImageStore;
+import com.panov.store.images.ImageCollector;
+import com.panov.store.images.ImageStorage;
+import com.panov.store.images.ImageStore;
+import com.panov.store.images.PackFileImageStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+
+import static com.panov.store.common.Constants.STATIC_IMAGES_FOLDER;
+
+/**
+ * Provides the {@link ImageStore} selected by the {@code images.store} property: <br>
+ * {@code directory} (default) keeps every image in its own file in {@code STATIC_IMAGES_FOLDER}, <br>
+ * {@code pack} appends images to segment files in {@code images.pack.directory}. <br><br>
+ * Also provides the {@link ImageCollector} of unreferenced images, configured by {@code images.gc.*}.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Configuration
+@RequiredArgsConstructor
+public class ImageStoreConfiguration {
+    private final Environment environment;
+
+    @Bean
+    public ImageStore imageStore(MeterRegistry registry) throws IOException {
+        String type = environment.getProperty("images.store", "directory");
+        return switch (type) {
+            case "directory" -> new DirectoryImageStore(Path.of(STATIC_IMAGES_FOLDER));
+            case "pack" -> {
+                var store = new PackFileImageStore(
+                        Path.of(environment.getProperty("images.pack.directory", "image-packs")),
+                        environment.getProperty("images.pack.segmentBytes", Integer.class, 64 * 1024 * 1024),
+                        environment.getProperty("images.pack.compactionThreshold", Double.class, 0.5),
+                        environment.getProperty("images.pack.compactionIntervalMillis", Long.class, 60_000L)
+                );
+                Gauge.builder("images.pack.segments", store, PackFileImageStore::segmentCount)
+                        .description("Segment files of the image store")
+                        .register(registry);
+                Gauge.builder("images.pack.images", store, PackFileImageStore::imageCount)
+                        .description("Images in the image store")
+                        .register(registry);
+                yield store;
+            }
+            default -> throw new IllegalStateException("Unknown image store " + type);
+        };
+    }
+
+    @Bean
+    public ImageCollector imageCollector(ImageStorage storage, ImageStore store,
+                                         ImageRepository references, MeterRegistry registry) {
+        return new ImageCollector(
+                storage,
+                store,
+                references,
+                Duration.ofMillis(environment.getProperty("images.gc.gracePeriodMillis", Long.class, 86_400_000L)),
+                environment.getProperty("images.gc.intervalMillis", Long.class, 3_600_000L),
+                environment.getProperty("images.gc.namesPerSecond", Integer.class, 2000),
+                Clock.systemUTC(),
+                registry
+        );
+    }
+}
@@ -0,0 +1,54 @@
+package com.panov.store.configuration;
+
+import com.panov.store.controllers.MetricsController;
+import com.panov.store.metrics.MetricsAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.HibernateMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+
+import java.util.Collections;
+
+/**
+ * Provides a {@link MeterRegistry} that collects application metrics. <br><br>
+ * Metrics are kept in Prometheus format and scraped from {@link MetricsController}.
+ * Repositories, services and controllers are timed by {@link MetricsAspect}, database
+ * work is published from Hibernate statistics. Beans are proxied by class,
+ * because they are injected by their classes, not by interfaces.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Configuration
+@EnableAspectJAutoProxy(proxyTargetClass = true)
+public class MetricsConfiguration {
+
+    @Bean
+    public PrometheusMeterRegistry meterRegistry() {
+        return new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    }
+
+    /**
+     * Publishes Hibernate statistics: executed queries, entity loads, collection fetches,
+     * flushes, transactions and cache hits.
+     *
+     * @param entityManagerFactory EntityManager factory with enabled statistics
+     * @param registry registry to publish to
+     * @return bound Hibernate metrics
+     */
+    @Bean
+    public HibernateMetrics hibernateMetrics(EntityManagerFactory entityManagerFactory, MeterRegistry registry) {
+        var metrics = new HibernateMetrics(
+                entityManagerFactory.unwrap(SessionFactory.class),
+                DataSourceConfiguration.UNIT_NAME,
+                Collections.emptyList()
+        );
+        metrics.bindTo(registry);
+        return metrics;
+    }
+}
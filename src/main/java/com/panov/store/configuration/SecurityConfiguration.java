@@ -1,6 +1,8 @@
 package com.panov.store.configuration;
 
+import com.panov.store.compression.GzipCompressionFilter;
 import com.panov.store.jwt.JwtAuthenticationFilter;
+import com.panov.store.metrics.ServerTimingFilter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,6 +13,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.session.DisableEncodeUrlFilter;
 
 /**
  * Application security configuration class.
@@ -27,6 +30,8 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @RequiredArgsConstructor
 public class SecurityConfiguration {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final ServerTimingFilter serverTimingFilter;
+    private final GzipCompressionFilter gzipCompressionFilter;
     private final AuthenticationProvider authenticationProvider;
 
 
@@ -35,6 +40,8 @@ public class SecurityConfiguration {
      * This implementation sets stateless session policy to allow JWT-authentication
      * and also adds {@link JwtAuthenticationFilter} into the filter chain to check
      * authentication tokens in the incoming HTTP requests.
+     * {@link ServerTimingFilter} is the first filter of the chain, so it times
+     * the whole request, {@link GzipCompressionFilter} follows it.
      *
      * @param http security configuration build object
      * @return configured instance of {@link SecurityFilterChain}
@@ -56,6 +63,8 @@ public class SecurityConfiguration {
                 .permitAll()
 
                 .and()
+                .addFilterBefore(serverTimingFilter, DisableEncodeUrlFilter.class)
+                .addFilterAfter(gzipCompressionFilter, ServerTimingFilter.class)
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
                 .authenticationProvider(authenticationProvider);
 
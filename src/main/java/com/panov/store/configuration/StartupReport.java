@@ -0,0 +1,139 @@
+package com.panov.store.configuration;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * {@link ApplicationStartup} that measures how much time the application spends
+ * in every startup phase and logs a report when the context is refreshed. <br><br>
+ * Phases are recorded from Spring's own startup steps (component scan, whole refresh)
+ * and from the steps started by the application (see the {@code STEP_*} constants).
+ * Phases that end after the refresh (e.g. seeding in the background) are logged separately.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class StartupReport implements ApplicationStartup {
+    public static final String STEP_MIGRATION = "store.persistence.migrate";
+    public static final String STEP_EMF_BOOTSTRAP = "store.persistence.bootstrap";
+    public static final String STEP_SEEDING = "store.persistence.seed";
+
+    private static final String STEP_SCAN = "spring.context.config-classes.parse";
+    private static final String STEP_REFRESH = "spring.context.refresh";
+
+    private static final Logger LOGGER = LogManager.getLogger(StartupReport.class);
+
+    private static final Map<String, String> PHASES = Map.of(
+            STEP_SCAN, "context scan",
+            STEP_EMF_BOOTSTRAP, "EMF bootstrap",
+            STEP_MIGRATION, "migration",
+            STEP_SEEDING, "seeding"
+    );
+
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<String, Long> durations = new ConcurrentHashMap<>();
+    private volatile boolean reported;
+
+    @Override
+    public StartupStep start(String name) {
+        if (!PHASES.containsKey(name) && !STEP_REFRESH.equals(name))
+            return ApplicationStartup.DEFAULT.start(name);
+        return new TimedStep(name, ids.incrementAndGet());
+    }
+
+    private void record(String name, long nanos) {
+        long millis = nanos / 1_000_000;
+        if (STEP_REFRESH.equals(name)) {
+            report(millis);
+            return;
+        }
+
+        durations.merge(name, millis, Long::sum);
+        if (reported)
+            LOGGER.info("Startup phase '{}' finished after the context refresh: {} ms", PHASES.get(name), millis);
+    }
+
+    private void report(long refreshMillis) {
+        reported = true;
+
+        var report = new StringBuilder("Context refreshed in ").append(refreshMillis).append(" ms");
+        for (String step : List.of(STEP_SCAN, STEP_EMF_BOOTSTRAP, STEP_MIGRATION, STEP_SEEDING)) {
+            Long millis = durations.get(step);
+            report.append(System.lineSeparator())
+                    .append("    ")
+                    .append(PHASES.get(step))
+                    .append(": ")
+                    .append(millis == null ? "not finished or skipped" : millis + " ms");
+        }
+        LOGGER.info(report);
+    }
+
+    private class TimedStep implements StartupStep {
+        private final String name;
+        private final long id;
+        private final long startedAt = System.nanoTime();
+        private final List<Tag> tags = new ArrayList<>();
+
+        TimedStep(String name, long id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public Long getParentId() {
+            return null;
+        }
+
+        @Override
+        public StartupStep tag(String key, String value) {
+            tags.add(new SimpleTag(key, value));
+            return this;
+        }
+
+        @Override
+        public StartupStep tag(String key, Supplier<String> value) {
+            return tag(key, value.get());
+        }
+
+        @Override
+        public Tags getTags() {
+            return tags::iterator;
+        }
+
+        @Override
+        public void end() {
+            record(name, System.nanoTime() - startedAt);
+        }
+    }
+
+    private record SimpleTag(String key, String value) implements StartupStep.Tag {
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public String getValue() {
+            return value;
+        }
+    }
+}
@@ -1,16 +1,42 @@
 package com.panov.store.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.panov.store.datasource.DataSourceRoutingInterceptor;
+import com.panov.store.metrics.QueryCountInterceptor;
+import com.panov.store.metrics.QueryCountingStatementInspector;
+import com.panov.store.metrics.ServerTimingFilter;
+import com.panov.store.metrics.TimedJsonMessageConverter;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.cfg.AvailableSettings;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
 
 /**
  *
@@ -22,9 +48,11 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 @EnableWebMvc
 @ComponentScan(basePackages = { "com.panov.store" })
+@PropertySource("classpath:META-INF/app.properties")
+@EnableTransactionManagement
 @RequiredArgsConstructor
 public class WebConfiguration implements WebMvcConfigurer {
-    private final String UNIT_NAME = "com.panov.store";
+    private final QueryCountInterceptor queryCountInterceptor;
 
     /**
      * Configuration of origins permissions
@@ -32,16 +60,99 @@ public class WebConfiguration implements WebMvcConfigurer {
      */
     @Override
     public void addCorsMappings(@NotNull CorsRegistry registry) {
-        registry.addMapping("/**").allowedHeaders("*").allowedMethods("*");
+        registry.addMapping("/**")
+                .allowedHeaders("*")
+                .allowedMethods("*")
+                .exposedHeaders(QueryCountInterceptor.HEADER, ServerTimingFilter.HEADER,
+                        HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED);
+    }
+
+    /**
+     * Registration of interceptors
+     * @param registry - interceptor registry
+     */
+    @Override
+    public void addInterceptors(@NotNull InterceptorRegistry registry) {
+        registry.addInterceptor(new DataSourceRoutingInterceptor());
+        registry.addInterceptor(queryCountInterceptor);
+    }
+
+    /**
+     * Replaces the default JSON message converter with one that times serialization
+     * of response bodies (see {@link ServerTimingFilter}) and uses {@link #objectMapper()}
+     * @param converters - default message converters
+     */
+    @Override
+    public void extendMessageConverters(@NotNull List<HttpMessageConverter<?>> converters) {
+        converters.replaceAll(c -> c instanceof MappingJackson2HttpMessageConverter
+                ? new TimedJsonMessageConverter(objectMapper())
+                : c);
     }
 
     /**
-     * Provides an EntityManager factory
+     * Provides the ObjectMapper of JSON responses, also used to serialize cached responses.
+     * It has the defaults of Spring MVC and accesses properties of DTOs with generated lambdas
+     * instead of reflection ({@link BlackbirdModule})
+     * @return ObjectMapper instance.
+     */
+    @Bean
+    public ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .modulesToInstall(new BlackbirdModule())
+                .build();
+    }
+
+    /**
+     * Provides an EntityManager factory built on the pooled {@link DataSource}. <br>
+     * Schema is created by Flyway migrations, so by default Hibernate only validates
+     * that it matches the entities ({@code db.schema.action}). <br>
+     * Second-level cache is enabled with an in-memory JCache provider,
+     * so natural-id to identity resolutions ({@code @NaturalIdCache}) are shared between sessions. <br>
+     * Statistics are collected for {@link MetricsConfiguration#hibernateMetrics},
+     * statements of every request are counted by {@link QueryCountInterceptor}.
      *
+     * @param dataSource pooled data source from {@link DataSourceConfiguration}
+     * @param schemaAction value of {@code hibernate.hbm2ddl.auto}
+     * @param applicationStartup startup metrics of the context
      * @return EntityManagerFactory instance.
      */
     @Bean
-    public EntityManagerFactory entityManagerFactory() {
-        return Persistence.createEntityManagerFactory(UNIT_NAME);
+    @DependsOn("flyway")
+    public EntityManagerFactory entityManagerFactory(DataSource dataSource,
+                                                     @Value("${db.schema.action:validate}") String schemaAction,
+                                                     ApplicationStartup applicationStartup) {
+        StartupStep step = applicationStartup.start(StartupReport.STEP_EMF_BOOTSTRAP);
+        try {
+            return Persistence.createEntityManagerFactory(
+                    DataSourceConfiguration.UNIT_NAME,
+                    Map.of(
+                            AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource,
+                            AvailableSettings.HBM2DDL_AUTO, schemaAction,
+                            AvailableSettings.GENERATE_STATISTICS, "true",
+                            AvailableSettings.STATEMENT_INSPECTOR, new QueryCountingStatementInspector(),
+                            AvailableSettings.USE_SECOND_LEVEL_CACHE, "true",
+                            AvailableSettings.CACHE_REGION_FACTORY, "jcache",
+                            "hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider",
+                            "hibernate.javax.cache.missing_cache_strategy", "create"
+                    )
+            );
+        } finally {
+            step.end();
+        }
+    }
+
+    /**
+     * Provides a transaction manager for {@code @Transactional} service methods. <br>
+     * Repositories join the transaction of the service method, so one service call
+     * uses one persistence context and one connection.
+     *
+     * @param entityManagerFactory EntityManager factory of the persistence unit
+     * @return PlatformTransactionManager instance.
+     */
+    @Bean
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        var transactionManager = new JpaTransactionManager(entityManagerFactory);
+        transactionManager.setJpaDialect(new HibernateJpaDialect());
+        return transactionManager;
     }
 }
@@ -0,0 +1,92 @@
+package com.panov.store.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.panov.store.cache.CachedResponse;
+import com.panov.store.cache.ResponseCache;
+import com.panov.store.dao.CatalogVersion;
+import com.panov.store.metrics.ServerTiming;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Serves catalog responses from the {@link ResponseCache}. <br><br>
+ * On a miss the body is loaded, serialized to JSON bytes once, stored and sent as it is.
+ * A cached list keeps the version of its page, so a conditional request is answered
+ * with {@code 304 Not Modified} without a query (see {@link ConditionalRequests}).
+ * A cached response keeps the identities of its products, so a change of their stocks
+ * or prices removes only the responses that contain them.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+class CatalogResponses {
+    private final ResponseCache cache;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param key key of the response, see {@link ResponseCache#key(String, Object...)}
+     * @param request current request, used to evaluate {@code If-None-Match}
+     * @param version computes the version of the list without loading it
+     * @param body loads the list
+     * @param productId gets the identity of the product of an element
+     * @return the response or {@code null} if the list is not modified
+     */
+    <T> ResponseEntity<byte[]> list(String key, WebRequest request, Supplier<CatalogVersion> version,
+                                    Supplier<List<T>> body, ToIntFunction<T> productId) {
+        var cached = cache.get(key);
+        if (cached != null)
+            return ConditionalRequests.notModified(request, cached.version()) ? null : ok(cached);
+
+        long generation = cache.generation();
+        var current = version.get();
+        if (ConditionalRequests.notModified(request, current))
+            return null;
+
+        var list = body.get();
+        var response = new CachedResponse(serialize(list), current, list.stream().mapToInt(productId).toArray());
+        cache.put(key, response, generation);
+        return ok(response);
+    }
+
+    /**
+     * @param key key of the response, see {@link ResponseCache#key(String, Object...)}
+     * @param body loads the entity
+     * @param productId gets the identity of the product of the entity
+     * @return the response
+     */
+    <T> ResponseEntity<byte[]> single(String key, Supplier<T> body, ToIntFunction<T> productId) {
+        var cached = cache.get(key);
+        if (cached != null)
+            return ok(cached);
+
+        long generation = cache.generation();
+        var entity = body.get();
+        var response = new CachedResponse(serialize(entity), null, new int[] { productId.applyAsInt(entity) });
+        cache.put(key, response, generation);
+        return ok(response);
+    }
+
+    private byte[] serialize(Object body) {
+        try (var span = ServerTiming.span(ServerTiming.SERIALIZATION)) {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the response", e);
+        }
+    }
+
+    private static ResponseEntity<byte[]> ok(CachedResponse response) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response.body());
+    }
+}
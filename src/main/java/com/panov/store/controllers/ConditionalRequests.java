@@ -0,0 +1,43 @@
+package com.panov.store.controllers;
+
+import com.panov.store.dao.CatalogVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Evaluates conditional {@code GET} requests to catalog lists. <br><br>
+ * The version of a list is computed before the list is loaded. If it matches
+ * {@code If-None-Match} of the request, the controller returns {@code 304 Not Modified}
+ * without loading, mapping and serializing the list. Otherwise, the response gets
+ * the {@code ETag} and {@code Last-Modified} of the list and {@code Cache-Control: no-cache},
+ * so that clients revalidate it on every use. <br>
+ * {@code If-Modified-Since} is not used on its own, because the latest update time
+ * of a list does not change when an entity is removed from it.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ * @see CatalogVersion
+ */
+final class ConditionalRequests {
+    private ConditionalRequests() {}
+
+    /**
+     * @param request current request
+     * @param version version of the requested list
+     * @return {@code true} if the client has the current version of the list and
+     *         the response has been set to {@code 304 Not Modified}
+     */
+    static boolean notModified(WebRequest request, CatalogVersion version) {
+        if (request.checkNotModified(version.eTag()))
+            return true;
+
+        if (request instanceof ServletWebRequest servletRequest && servletRequest.getResponse() != null) {
+            var response = servletRequest.getResponse();
+            if (version.lastModified() != null)
+                response.setDateHeader(HttpHeaders.LAST_MODIFIED, version.lastModified().getTime());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        }
+        return false;
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import com.panov.store.model.DeliveryType;
 
 import java.util.List;
@@ -39,6 +40,8 @@ public class DeliveryTypeController {
      * to customize the output. <br><br>
      * HTTP method: {@code GET} <br>
      * Endpoint: {@code /delivery_types{?pattern=&quantity=&offset=}} <br>
+     * Supports conditional requests: if {@code If-None-Match} contains <br>
+     * the current ETag of the list, responds with {@code 304 Not Modified}. <br>
      *
      * @param pattern if specified, the method will search for delivery types
      *                with {@code pattern} in the name (case-insensitive).
@@ -46,17 +49,26 @@ public class DeliveryTypeController {
      *                 {@code quantity} delivery types.
      * @param offset if specified, the method will skip first {@code offset}
      *               delivery types.
-     * @return a list of {@link DeliveryType} objects.
+     * @param request current request, used to evaluate {@code If-None-Match}
+     * @return a list of {@link DeliveryType} objects or {@code null} if the list is not modified.
      */
     @GetMapping
     public List<DeliveryTypeDTO> deliveryTypesRange(
             @RequestBody(required = false) String pattern,
             @RequestParam(name = "quantity", required = false) Integer quantity,
-            @RequestParam(name = "offset", required = false) Integer offset) {
+            @RequestParam(name = "offset", required = false) Integer offset,
+            WebRequest request) {
+        boolean byPattern = pattern != null && !pattern.isBlank();
+        var version = byPattern
+                ? service.getByNamePatternVersion(pattern, false)
+                : service.getDeliveryTypeListVersion(offset, quantity);
+        if (ConditionalRequests.notModified(request, version))
+            return null;
+
         List<DeliveryType> types;
-        if (pattern == null || pattern.isBlank())
-            types = service.getDeliveryTypeList(offset, quantity);
-        else types = service.getByNamePattern(pattern, false);
+        if (byPattern)
+            types = service.getByNamePattern(pattern, false);
+        else types = service.getDeliveryTypeList(offset, quantity);
 
         return types
                 .stream()
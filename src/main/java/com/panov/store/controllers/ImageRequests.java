@@ -0,0 +1,50 @@
+package com.panov.store.controllers;
+
+import com.panov.store.exceptions.ImageNotAcceptedException;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.Part;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Gives access to the image uploaded with a request without reading it into memory. <br><br>
+ * The image is either the whole request body ({@code image/*} or {@code application/octet-stream})
+ * or the {@value #PART_NAME} part of a {@code multipart/form-data} request. Parts are written to
+ * temporary files by the servlet container (see {@code DispatcherServletConfiguration}).
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+final class ImageRequests {
+    static final String PART_NAME = "image";
+
+    private ImageRequests() {}
+
+    /**
+     * @param request request with an uploaded image
+     * @return stream of the image bytes
+     * @throws ImageNotAcceptedException if a multipart request has no image part or is too large
+     * @throws IOException if the request could not be read
+     * @throws ServletException if a multipart request could not be parsed
+     */
+    static InputStream body(HttpServletRequest request) throws IOException, ServletException {
+        String contentType = request.getContentType();
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith(MediaType.MULTIPART_FORM_DATA_VALUE))
+            return request.getInputStream();
+
+        Part part;
+        try {
+            part = request.getPart(PART_NAME);
+        } catch (IllegalStateException e) {
+            throw new ImageNotAcceptedException("The request is too large", HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+        if (part == null)
+            throw new ImageNotAcceptedException("The request has no \"" + PART_NAME + "\" part", HttpStatus.BAD_REQUEST);
+        return part.getInputStream();
+    }
+}
@@ -0,0 +1,29 @@
+package com.panov.store.controllers;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Exposes application metrics for Prometheus. <br><br>
+ * HTTP method: {@code GET} <br>
+ * Endpoint: {@code /metrics} <br>
+ * Only {@code ADMINISTRATOR} can scrape them, the metrics reveal internals of the application. <br>
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@RestController
+@RequiredArgsConstructor
+public class MetricsController {
+    private final PrometheusMeterRegistry registry;
+
+    @GetMapping(value = "/metrics", produces = TextFormat.CONTENT_TYPE_004)
+    @PreAuthorize("hasAuthority('ADMINISTRATOR')")
+    public String scrape() {
+        return registry.scrape();
+    }
+}
@@ -2,38 +2,37 @@ package com.panov.store.controllers;
 
 import com.panov.store.common.Access;
 import com.panov.store.jwt.JwtService;
-import com.panov.store.model.User;
-import com.panov.store.services.UserService;
+import com.panov.store.jwt.TokenRevocationRegistry;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Set;
+
 /**
- * This controller helps client check if its auth token is not expired yet
+ * This controller helps client check if its auth token is not expired yet. <br>
+ * Checks are answered from verified token claims and {@link TokenRevocationRegistry}
+ * only, without loading the user from the data storage.
  *
  * @author Maksym Panov
- * @version 1.0
+ * @version 2.0
  */
 @RestController
 @RequestMapping("/api/v2/ping")
 @RequiredArgsConstructor
 public class PingController {
     private final JwtService jwtService;
-    private final UserService userService;
+    private final TokenRevocationRegistry revocationRegistry;
 
     @PostMapping("/{id}")
     public ResponseEntity<Boolean> checkToken(
             @PathVariable("id") Integer id,
             @RequestBody String jwt
     ) {
-        if (jwtService.isTokenExpired(jwt)) {
-            return new ResponseEntity<>(false, HttpStatus.OK);
-        }
-
-        User user = userService.getById(id);
         return new ResponseEntity<>(
-                jwtService.isTokenValid(jwt, user),
+                isTokenValid(jwt, id, Set.of(Access.values())),
                 HttpStatus.OK
         );
     }
@@ -43,16 +42,8 @@ public class PingController {
             @PathVariable("id") Integer id,
             @RequestBody String jwt
     ) {
-        if (jwtService.isTokenExpired(jwt)) {
-            return new ResponseEntity<>(false, HttpStatus.OK);
-        }
-
-        User user = userService.getById(id);
-        Access a = user.getAccess();
-
         return new ResponseEntity<>(
-                jwtService.isTokenValid(jwt, user) &&
-                        (a == Access.MANAGER || a == Access.ADMINISTRATOR),
+                isTokenValid(jwt, id, Set.of(Access.MANAGER, Access.ADMINISTRATOR)),
                 HttpStatus.OK
         );
     }
@@ -62,17 +53,30 @@ public class PingController {
             @PathVariable("id") Integer id,
             @RequestBody String jwt
     ) {
-        if (jwtService.isTokenExpired(jwt)) {
-            return new ResponseEntity<>(false, HttpStatus.OK);
-        }
-
-        User user = userService.getById(id);
-        Access a = user.getAccess();
-
         return new ResponseEntity<>(
-                jwtService.isTokenValid(jwt, user) &&
-                        a == Access.ADMINISTRATOR,
+                isTokenValid(jwt, id, Set.of(Access.ADMINISTRATOR)),
                 HttpStatus.OK
         );
     }
+
+    /**
+     * Checks that the token is signed, not expired, not revoked, belongs to the user
+     * with specified identity and grants one of the allowed access levels. <br>
+     * Tokens issued without user identity and access level claims are not accepted.
+     *
+     * @param jwt token to check
+     * @param id identity of the user that should own the token
+     * @param allowed access levels that satisfy the check
+     * @return {@code true} if all the conditions are met and {@code false} - otherwise
+     */
+    private boolean isTokenValid(String jwt, Integer id, Set<Access> allowed) {
+        Claims claims = jwtService.parseClaims(jwt);
+        if (claims == null || revocationRegistry.isRevoked(claims))
+            return false;
+
+        Access access = jwtService.extractAccess(claims);
+        return id.equals(jwtService.extractUserId(claims)) &&
+                access != null &&
+                allowed.contains(access);
+    }
 }
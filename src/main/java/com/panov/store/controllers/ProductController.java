@@ -1,16 +1,27 @@
 package com.panov.store.controllers;
 
+import com.panov.store.cache.ResponseCache;
+import com.panov.store.catalog.CatalogSnapshots;
+import com.panov.store.dao.CatalogVersion;
 import com.panov.store.dto.ProductDTO;
 import com.panov.store.exceptions.ResourceNotCreatedException;
 import com.panov.store.exceptions.ResourceNotUpdatedException;
 import com.panov.store.model.Product;
 import com.panov.store.services.ProductService;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
 
 /**
  * Web controller that handles requests associated with {@link Product}. <br>
@@ -23,11 +34,19 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/v2/products")
 public class ProductController {
+    private static final int DEFAULT_QUANTITY = 500;
+
     private final ProductService service;
+    private final CatalogResponses responses;
+    private final CatalogSnapshots snapshots;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService,
+                             CatalogResponses responses,
+                             CatalogSnapshots snapshots) {
         this.service = productService;
+        this.responses = responses;
+        this.snapshots = snapshots;
     }
 
     /**
@@ -36,6 +55,10 @@ public class ProductController {
      * to customize the output. <br><br>
      * HTTP method: {@code GET} <br>
      * Endpoint: {@code /products{?pattern=&category=&quantity=&offset=}} <br>
+     * Supports conditional requests: if {@code If-None-Match} contains <br>
+     * the current ETag of the list, responds with {@code 304 Not Modified}. <br>
+     * Serialized lists are cached by the normalized parameters (see {@link ResponseCache}), <br>
+     * and are read from the in-memory catalog snapshot if it is current (see {@link CatalogSnapshots}). <br>
      *
      * @param pattern if specified, the method will search for products
      *                with {@code pattern} in the name (case-insensitive).
@@ -45,38 +68,77 @@ public class ProductController {
      *                 {@code quantity} products.
      * @param offset if specified, the method will skip first {@code offset}
      *               products.
-     * @return a list of {@link Product} objects.
+     * @param request current request, used to evaluate {@code If-None-Match}
+     * @return JSON of a list of {@link Product} objects or {@code null} if the list is not modified.
      */
     @GetMapping
-    public List<ProductDTO> productsRange(
+    public ResponseEntity<byte[]> productsRange(
             @RequestParam(name = "name", required = false) String pattern,
             @RequestParam(name = "category", required = false) Integer typeId,
             @RequestParam(name = "quantity", required = false) Integer quantity,
-            @RequestParam(name = "offset", required = false) Integer offset) {
-        List<Product> products;
-        if (pattern == null || pattern.isBlank())
-            products = service.getRangeOfProducts(offset, quantity, typeId);
-        else
-            products = service.getByNamePattern(pattern, offset, quantity, false);
-
-        return products
-                .stream()
-                .map(ProductDTO::of)
-                .filter(p -> typeId == null || p.inCategory(typeId))
-                .toList();
+            @RequestParam(name = "offset", required = false) Integer offset,
+            WebRequest request) {
+        boolean byPattern = pattern != null && !pattern.isBlank();
+        String key = ResponseCache.key(
+                "products",
+                byPattern ? pattern.toLowerCase(Locale.ROOT) : null,
+                typeId,
+                offset == null || offset < 0 ? 0 : offset,
+                quantity == null || quantity < 0 ? DEFAULT_QUANTITY : quantity
+        );
+
+        Supplier<CatalogVersion> version;
+        Supplier<List<Product>> products;
+        var snapshot = snapshots.current();
+        int[] page = snapshot == null
+                ? null
+                : byPattern ? snapshot.byName(pattern, offset, quantity) : snapshot.range(offset, quantity, typeId);
+        if (page != null) {
+            version = () -> snapshot.version(page);
+            products = () -> snapshots.products(snapshot, page);
+        } else if (byPattern) {
+            version = () -> service.getByNamePatternVersion(pattern, offset, quantity, false);
+            products = () -> service.getByNamePattern(pattern, offset, quantity, false);
+        } else {
+            version = () -> service.getRangeOfProductsVersion(offset, quantity, typeId);
+            products = () -> service.getRangeOfProducts(offset, quantity, typeId);
+        }
+
+        return responses.list(
+                key,
+                request,
+                version,
+                () -> products.get()
+                        .stream()
+                        .map(ProductDTO::of)
+                        .filter(p -> typeId == null || p.inCategory(typeId))
+                        .toList(),
+                ProductDTO::getProductId
+        );
     }
 
     /**
      * Retrieves a {@link Product} with specified ID. <br><br>
      * HTTP method: {@code GET} <br>
      * Endpoint: {@code /products/{productId}} <br>
+     * The product is read from the in-memory catalog snapshot if it is current and has it. <br>
      *
      * @param id an identifier of a {@link Product}
      * @return retrieved product instance with specified identifier
      */
     @GetMapping("/{id}")
-    public ProductDTO specificProduct(@PathVariable("id") Integer id) {
-        return ProductDTO.of(service.getById(id));
+    public ResponseEntity<byte[]> specificProduct(@PathVariable("id") Integer id) {
+        return responses.single(
+                ResponseCache.key("product", id),
+                () -> {
+                    var snapshot = snapshots.current();
+                    int position = snapshot == null || id == null ? -1 : snapshot.indexOf(id);
+                    if (position < 0)
+                        return ProductDTO.of(service.getById(id));
+                    return ProductDTO.of(snapshots.product(snapshot, position));
+                },
+                ProductDTO::getProductId
+        );
     }
 
     /**
@@ -123,4 +185,23 @@ public class ProductController {
 
         return service.changeProduct(productDTO.toModel());
     }
+
+    /**
+     * Replaces the image of {@link Product} object with specified ID. The image is sent as <br>
+     * the request body or as the {@code image} part of a {@code multipart/form-data} request, <br>
+     * and is streamed to the image folder without Base64 encoding. <br><br>
+     * Http method: {@code PUT} <br>
+     * Endpoint: /products/{productId}/image <br>
+     *
+     * @param id an identifier of a product which image user wants to change.
+     * @param request a request with the image.
+     * @return an identifier of provided {@link Product}.
+     */
+    @PutMapping(value = "/{id}/image", consumes = {
+            "image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.MULTIPART_FORM_DATA_VALUE
+    })
+    public Integer changeProductImage(@PathVariable("id") Integer id,
+                                      HttpServletRequest request) throws IOException, ServletException {
+        return service.changeProductImage(id, ImageRequests.body(request));
+    }
 }
@@ -12,6 +12,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import com.panov.store.model.ProductType;
 
 import java.util.List;
@@ -41,6 +42,8 @@ public class ProductTypeController {
      * to customize the output. <br><br>
      * HTTP method: {@code GET} <br>
      * Endpoint: {@code /product_types{?pattern=&quantity=&offset=}} <br>
+     * Supports conditional requests: if {@code If-None-Match} contains <br>
+     * the current ETag of the list, responds with {@code 304 Not Modified}. <br>
      *
      * @param pattern if specified, the method will search for product types
      *                with {@code pattern} in the name (case-insensitive).
@@ -48,18 +51,27 @@ public class ProductTypeController {
      *                 {@code quantity} product types.
      * @param offset if specified, the method will skip first {@code offset}
      *               product types.
-     * @return a list of {@link ProductType} objects.
+     * @param request current request, used to evaluate {@code If-None-Match}
+     * @return a list of {@link ProductType} objects or {@code null} if the list is not modified.
      */
     @GetMapping
     public List<ProductTypeDTO> productTypesRange(
             @RequestParam(name = "name", required = false) String pattern,
             @RequestParam(name = "quantity", required = false) Integer quantity,
-            @RequestParam(name = "offset", required = false) Integer offset) {
+            @RequestParam(name = "offset", required = false) Integer offset,
+            WebRequest request) {
+        boolean byPattern = pattern != null && !pattern.isBlank();
+        var version = byPattern
+                ? service.getByNamePatternVersion(pattern, offset, quantity, false)
+                : service.getProductTypeListVersion(offset, quantity);
+        if (ConditionalRequests.notModified(request, version))
+            return null;
+
         List<ProductType> types;
-        if (pattern == null || pattern.isBlank())
-            types = service.getProductTypeList(offset, quantity);
-        else
+        if (byPattern)
             types = service.getByNamePattern(pattern, offset, quantity, false);
+        else
+            types = service.getProductTypeList(offset, quantity);
 
         return types
                 .stream()
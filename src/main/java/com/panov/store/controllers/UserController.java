@@ -8,15 +8,17 @@ import com.panov.store.exceptions.ResourceNotUpdatedException;
 import com.panov.store.model.User;
 import com.panov.store.services.UserService;
 import com.panov.store.common.Access;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.http.MediaType;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -36,7 +38,6 @@ import java.util.List;
 public class UserController {
     private final UserService userService;
     private final JwtService jwtService;
-    private final AuthenticationManager authenticationManager;
     private final PasswordEncoder passwordEncoder;
 
     /**
@@ -153,20 +154,7 @@ public class UserController {
         if (bindingResult.hasErrors())
             throw new ResourceNotFoundException("There is no such user");
 
-        User user = userService.getByNaturalId(loginForm.getPhoneNumber(), null, null).get(0);
-
-
-        if (user == null)
-            throw new ResourceNotFoundException("There is no such user");
-
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        loginForm.getPhoneNumber(),
-                        loginForm.getPassword()
-                )
-        );
-
-        return new AuthEntity(jwtService.createToken(user), user.getUserId());
+        return userService.login(loginForm.getPhoneNumber(), loginForm.getPassword());
     }
 
     /**
@@ -192,6 +180,25 @@ public class UserController {
         return userService.changeUserWithPhoneNumber(userDTO.toModel());
     }
 
+    /**
+     * Replaces the profile image of {@link User} object with specified ID. The image is sent as <br>
+     * the request body or as the {@code image} part of a {@code multipart/form-data} request, <br>
+     * and is streamed to the image folder without Base64 encoding. <br><br>
+     * Http method: {@code PUT} <br>
+     * Endpoint: /users/{userId}/image <br>
+     *
+     * @param id an identifier of a user whose image you want to change.
+     * @param request a request with the image.
+     * @return an identifier of provided {@link User}.
+     */
+    @PutMapping(value = "/{id}/image", consumes = {
+            "image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.MULTIPART_FORM_DATA_VALUE
+    })
+    public Integer changeUserImage(@PathVariable("id") Integer id,
+                                   HttpServletRequest request) throws IOException, ServletException {
+        return userService.changeUserImage(id, ImageRequests.body(request));
+    }
+
     @GetMapping("/access/{id}")
     @PreAuthorize("hasAuthority('ADMINISTRATOR')")
     public Access getUserAccessLevel(@PathVariable("id") Integer id) {
@@ -222,6 +229,18 @@ public class UserController {
             throw new ResourceNotUpdatedException("Could not update access level of this user");
         }
 
-        return userService.changeUser(user);
+        return userService.changeUserAccess(user);
+    }
+
+    /**
+     * Revokes provided JWT token, so it cannot be used anymore. <br><br>
+     * HTTP method: {@code POST} <br>
+     * Endpoint: /users/logout <br>
+     *
+     * @param jwt token to revoke
+     */
+    @PostMapping("/logout")
+    public void logoutUser(@RequestBody String jwt) {
+        userService.logout(jwt);
     }
 }
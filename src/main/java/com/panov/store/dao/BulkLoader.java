@@ -0,0 +1,555 @@
+package com.panov.store.dao;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.panov.store.common.Access;
+import com.panov.store.common.Status;
+import com.panov.store.images.DirectoryImageStore;
+import com.panov.store.images.ImageStore;
+import com.panov.store.model.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads large amounts of data (initial data, staging dumps) into the database. <br><br>
+ * The data is read from JSON files in the specified location: {@code product_types.json},
+ * {@code delivery_types.json}, {@code products.json}, {@code users.json} and {@code orders.json}.
+ * Every file contains an array of objects in the same format as the REST API entities.
+ * References between objects (e.g. {@code "product": { "productId": 13 }}) are 1-based
+ * positions of the referenced object in its file, so the data can be loaded
+ * into a non-empty database too. <br><br>
+ * Files are streamed, and rows are inserted with JDBC batches of {@code batchSize} rows,
+ * one transaction per batch, so the memory usage does not depend on the size of the files.
+ * Only identities of inserted rows are kept to resolve references (4 bytes per row),
+ * and prices of products (8 bytes per row). <br><br>
+ * Orders are loaded as {@code OrderRepository} places them: the sum of every ordered product
+ * is its price multiplied by the quantity, the total of an order is the sum of its products,
+ * and the ordered quantities are taken from the stock of the products in the same batch
+ * (except abolished orders, which returned them). Sums and totals in the file are ignored,
+ * and an order that exceeds the stock fails the load. <br><br>
+ * Image files are copied to the image store by a pool of threads in parallel with the inserts.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class BulkLoader {
+    private static final Logger LOGGER = LogManager.getLogger(BulkLoader.class);
+
+    private final DataSource dataSource;
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final int batchSize;
+    private final int imageCopyThreads;
+
+    /**
+     * @param dataSource data source of the database to load the data into
+     * @param resourceLoader loader of the data files and images
+     * @param batchSize number of rows inserted by one JDBC batch and committed at once
+     * @param imageCopyThreads number of threads that copy image files
+     */
+    public BulkLoader(DataSource dataSource, ResourceLoader resourceLoader, int batchSize, int imageCopyThreads) {
+        this.dataSource = dataSource;
+        this.resourceLoader = resourceLoader;
+        this.batchSize = Math.max(1, batchSize);
+        this.imageCopyThreads = Math.max(1, imageCopyThreads);
+    }
+
+    /**
+     * Loads all the data files from the location and copies referenced images.
+     *
+     * @param location location of the data files, e.g. {@code classpath:META-INF/initial/}
+     *                 or {@code file:/var/dumps/staging/}
+     * @param imageDirectory directory to copy the images to
+     * @throws IOException if the data files cannot be read
+     * @throws SQLException if the data cannot be inserted
+     */
+    public void load(String location, Path imageDirectory) throws IOException, SQLException {
+        load(location, new DirectoryImageStore(imageDirectory));
+    }
+
+    /**
+     * Loads all the data files from the location and puts referenced images to the store.
+     *
+     * @param location location of the data files, e.g. {@code classpath:META-INF/initial/}
+     *                 or {@code file:/var/dumps/staging/}
+     * @param imageStore store to put the images to
+     * @throws IOException if the data files cannot be read
+     * @throws SQLException if the data cannot be inserted
+     */
+    public void load(String location, ImageStore imageStore) throws IOException, SQLException {
+        String base = location.endsWith("/") ? location : location + "/";
+
+        try (var connection = dataSource.getConnection();
+             var images = new ImageCopier(base, imageStore)) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                var load = new Load(connection, base, images);
+                load.productTypes();
+                load.deliveryTypes();
+                load.products();
+                load.users();
+                load.orders();
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        CatalogChanges.changed();
+    }
+
+    /**
+     * State of one load: the connection and identities of the inserted rows.
+     */
+    private class Load {
+        private final Connection connection;
+        private final String base;
+        private final ImageCopier images;
+
+        private final Ids productTypeIds = new Ids();
+        private final Ids deliveryTypeIds = new Ids();
+        private final Ids productIds = new Ids();
+        private final Prices productPrices = new Prices();
+        private final Ids userIds = new Ids();
+
+        Load(Connection connection, String base, ImageCopier images) {
+            this.connection = connection;
+            this.base = base;
+            this.images = images;
+        }
+
+        void productTypes() throws IOException, SQLException {
+            stream("product_types.json", ProductType.class, batch -> productTypeIds.addAll(insert(
+                    "insert into producttype (name) values (?)",
+                    "producttypeid",
+                    batch,
+                    (st, type) -> st.setString(1, type.getName())
+            )));
+        }
+
+        void deliveryTypes() throws IOException, SQLException {
+            stream("delivery_types.json", DeliveryType.class, batch -> deliveryTypeIds.addAll(insert(
+                    "insert into deliverytype (name) values (?)",
+                    "deliverytypeid",
+                    batch,
+                    (st, type) -> st.setString(1, type.getName())
+            )));
+        }
+
+        void products() throws IOException, SQLException {
+            stream("products.json", Product.class, batch -> {
+                int[] ids = insert(
+                        "insert into product (name, description, price, stock, image) values (?, ?, ?, ?, ?)",
+                        "productid",
+                        batch,
+                        (st, product) -> {
+                            st.setString(1, product.getName());
+                            st.setString(2, product.getDescription());
+                            st.setBigDecimal(3, product.getPrice());
+                            setInteger(st, 4, product.getStock());
+                            st.setString(5, product.getImage());
+                        }
+                );
+
+                List<int[]> links = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++)
+                    for (var type : batch.get(i).getProductTypes())
+                        links.add(new int[] { ids[i], productTypeIds.resolve(type.getProductTypeId(), "product type") });
+                insert(
+                        "insert into product_producttype (product_productid, producttypes_producttypeid) values (?, ?)",
+                        null,
+                        links,
+                        (st, link) -> {
+                            st.setInt(1, link[0]);
+                            st.setInt(2, link[1]);
+                        }
+                );
+
+                productIds.addAll(ids);
+                batch.forEach(product -> {
+                    productPrices.add(product.getPrice());
+                    images.copy(product.getImage());
+                });
+            });
+        }
+
+        void users() throws IOException, SQLException {
+            var accessConverter = new Access.AccessConverter();
+
+            stream("users.json", User.class, batch -> {
+                userIds.addAll(insert(
+                        "insert into \"User\" (phonenumber, email, firstname, lastname, hashpassword, access, image, " +
+                                "region, district, city, street, building, apartment, postalcode) " +
+                                "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                        "userid",
+                        batch,
+                        (st, user) -> {
+                            var info = user.getPersonalInfo();
+                            st.setString(1, info.getPhoneNumber());
+                            st.setString(2, info.getEmail());
+                            st.setString(3, info.getFirstname());
+                            st.setString(4, info.getLastname());
+                            st.setString(5, user.getHashPassword());
+                            st.setString(6, accessConverter.convertToDatabaseColumn(user.getAccess()));
+                            st.setString(7, user.getImage());
+                            setAddress(st, 8, user.getAddress());
+                        }
+                ));
+                batch.forEach(user -> images.copy(user.getImage()));
+            });
+        }
+
+        void orders() throws IOException, SQLException {
+            var statusConverter = new Status.StatusConverter();
+
+            stream("orders.json", Order.class, batch -> {
+                var orderedQuantities = new LinkedHashMap<Integer, Integer>();
+                for (var order : batch) {
+                    var total = BigDecimal.ZERO;
+                    for (var line : order.getOrderProducts()) {
+                        Integer position = line.getProduct().getProductId();
+                        if (line.getQuantity() == null || line.getQuantity() < 1)
+                            throw new IllegalStateException("Invalid quantity of product " + position);
+                        line.setSum(productPrices.resolve(position).multiply(BigDecimal.valueOf(line.getQuantity())));
+                        total = total.add(line.getSum());
+                        if (order.getStatus() != Status.ABOLISHED)
+                            orderedQuantities.merge(productIds.resolve(position, "product"), line.getQuantity(), Integer::sum);
+                    }
+                    order.setTotal(total);
+                }
+
+                var guests = batch.stream()
+                        .map(Order::getUnregisteredCustomer)
+                        .filter(Objects::nonNull)
+                        .toList();
+                int[] guestIds = insert(
+                        "insert into unregisteredcustomer (phonenumber, firstname, lastname, " +
+                                "region, district, city, street, building, apartment, postalcode) " +
+                                "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                        "unregisteredcustomerid",
+                        guests,
+                        (st, guest) -> {
+                            st.setString(1, guest.getPhoneNumber());
+                            st.setString(2, guest.getFirstname());
+                            st.setString(3, guest.getLastname());
+                            setAddress(st, 4, guest.getAddress());
+                        }
+                );
+
+                var nextGuest = new AtomicInteger();
+                int[] orderIds = insert(
+                        "insert into \"Order\" (userid, unregisteredcustomerid, deliverytypeid, " +
+                                "posttime, completetime, status, total) values (?, ?, ?, ?, ?, ?, ?)",
+                        "orderid",
+                        batch,
+                        (st, order) -> {
+                            setInteger(st, 1, order.getUser() == null
+                                    ? null
+                                    : userIds.resolve(order.getUser().getUserId(), "user"));
+                            setInteger(st, 2, order.getUnregisteredCustomer() == null
+                                    ? null
+                                    : guestIds[nextGuest.getAndIncrement()]);
+                            setInteger(st, 3, order.getDeliveryType() == null
+                                    ? null
+                                    : deliveryTypeIds.resolve(order.getDeliveryType().getDeliveryTypeId(), "delivery type"));
+                            st.setTimestamp(4, order.getPostTime());
+                            st.setTimestamp(5, order.getCompleteTime());
+                            st.setString(6, statusConverter.convertToDatabaseColumn(order.getStatus()));
+                            st.setBigDecimal(7, order.getTotal());
+                        }
+                );
+
+                List<OrderProducts> lines = new ArrayList<>();
+                List<Integer> lineOrderIds = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    for (var line : batch.get(i).getOrderProducts()) {
+                        lines.add(line);
+                        lineOrderIds.add(orderIds[i]);
+                    }
+                }
+                var nextLine = new AtomicInteger();
+                insert(
+                        "insert into orderproducts (orderid, productid, quantity, sum) values (?, ?, ?, ?)",
+                        null,
+                        lines,
+                        (st, line) -> {
+                            st.setInt(1, lineOrderIds.get(nextLine.getAndIncrement()));
+                            st.setInt(2, productIds.resolve(line.getProduct().getProductId(), "product"));
+                            setInteger(st, 3, line.getQuantity());
+                            st.setBigDecimal(4, line.getSum());
+                        }
+                );
+
+                takeFromStock(orderedQuantities);
+            });
+        }
+
+        /**
+         * Decreases the stock of the products by the ordered quantities with one JDBC batch.
+         *
+         * @param quantities ordered quantities by identities of the products
+         * @throws IllegalStateException if a product has less stock than ordered
+         */
+        private void takeFromStock(Map<Integer, Integer> quantities) throws SQLException {
+            if (quantities.isEmpty())
+                return;
+
+            var products = new ArrayList<>(quantities.keySet());
+            try (var st = connection.prepareStatement(
+                    "update product set stock = stock - ? where productid = ? and stock >= ?")) {
+                for (Integer product : products) {
+                    int quantity = quantities.get(product);
+                    st.setInt(1, quantity);
+                    st.setInt(2, product);
+                    st.setInt(3, quantity);
+                    st.addBatch();
+                }
+                int[] updated = st.executeBatch();
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0)
+                        throw new IllegalStateException("Not enough stock of product " + products.get(i)
+                                + " for " + quantities.get(products.get(i)) + " ordered items");
+                }
+            }
+        }
+
+        /**
+         * Reads the array of objects from the file one by one and passes them to the handler
+         * in batches of {@code batchSize} objects. Every batch is committed after the handler returns.
+         */
+        private <T> void stream(String file, Class<T> type, BatchHandler<T> handler) throws IOException, SQLException {
+            Resource resource = resourceLoader.getResource(base + file);
+            if (!resource.exists()) {
+                LOGGER.info("{} is not found in {}, skipped", file, base);
+                return;
+            }
+
+            long rows = 0;
+            try (InputStream in = resource.getInputStream();
+                 JsonParser parser = mapper.getFactory().createParser(in)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY)
+                    throw new IOException(file + " must contain an array of objects");
+
+                List<T> batch = new ArrayList<>(batchSize);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    batch.add(mapper.readValue(parser, type));
+                    if (batch.size() == batchSize) {
+                        rows += handle(handler, batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty())
+                    rows += handle(handler, batch);
+            }
+
+            LOGGER.info("Loaded {} rows from {}", rows, file);
+        }
+
+        private <T> int handle(BatchHandler<T> handler, List<T> batch) throws SQLException {
+            try {
+                handler.handle(batch);
+                connection.commit();
+                return batch.size();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+
+        /**
+         * Inserts the rows with one JDBC batch.
+         *
+         * @return generated identities of the rows in the same order, if {@code idColumn} is specified
+         */
+        private <T> int[] insert(String sql, String idColumn, List<T> rows, Binder<T> binder) throws SQLException {
+            if (rows.isEmpty())
+                return new int[0];
+
+            try (var st = idColumn == null
+                    ? connection.prepareStatement(sql)
+                    : connection.prepareStatement(sql, new String[] { idColumn })) {
+                for (T row : rows) {
+                    binder.bind(st, row);
+                    st.addBatch();
+                }
+                st.executeBatch();
+
+                if (idColumn == null)
+                    return new int[0];
+
+                int[] ids = new int[rows.size()];
+                int count = 0;
+                try (var keys = st.getGeneratedKeys()) {
+                    while (keys.next() && count < ids.length)
+                        ids[count++] = keys.getInt(1);
+                }
+                if (count != ids.length)
+                    throw new SQLException("Expected " + ids.length + " generated keys, got " + count);
+                return ids;
+            }
+        }
+    }
+
+    private static void setAddress(PreparedStatement st, int from, Address address) throws SQLException {
+        var a = address == null ? new Address() : address;
+        st.setString(from, a.getRegion());
+        st.setString(from + 1, a.getDistrict());
+        st.setString(from + 2, a.getCity());
+        st.setString(from + 3, a.getStreet());
+        setInteger(st, from + 4, a.getBuilding());
+        setInteger(st, from + 5, a.getApartment());
+        setInteger(st, from + 6, a.getPostalCode());
+    }
+
+    private static void setInteger(PreparedStatement st, int index, Integer value) throws SQLException {
+        if (value == null)
+            st.setNull(index, Types.INTEGER);
+        else
+            st.setInt(index, value);
+    }
+
+    @FunctionalInterface
+    private interface BatchHandler<T> {
+        void handle(List<T> batch) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface Binder<T> {
+        void bind(PreparedStatement statement, T row) throws SQLException;
+    }
+
+    /**
+     * Identities of inserted rows in the order of their positions in the file.
+     */
+    private static class Ids {
+        private int[] ids = new int[1024];
+        private int size;
+
+        void addAll(int[] values) {
+            if (size + values.length > ids.length)
+                ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + values.length));
+            System.arraycopy(values, 0, ids, size, values.length);
+            size += values.length;
+        }
+
+        int resolve(Integer position, String what) {
+            if (position == null || position < 1 || position > size)
+                throw new IllegalStateException("Reference to unknown " + what + " " + position);
+            return ids[position - 1];
+        }
+    }
+
+    /**
+     * Prices of inserted products in cents, in the order of their positions in the file.
+     */
+    private static class Prices {
+        private static final long NO_PRICE = Long.MIN_VALUE;
+
+        private long[] cents = new long[1024];
+        private int size;
+
+        void add(BigDecimal price) {
+            if (size == cents.length)
+                cents = Arrays.copyOf(cents, cents.length * 2);
+            cents[size++] = price == null
+                    ? NO_PRICE
+                    : price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+
+        BigDecimal resolve(Integer position) {
+            if (position == null || position < 1 || position > size)
+                throw new IllegalStateException("Reference to unknown product " + position);
+            if (cents[position - 1] == NO_PRICE)
+                throw new IllegalStateException("Product " + position + " has no price");
+            return BigDecimal.valueOf(cents[position - 1], 2);
+        }
+    }
+
+    /**
+     * Copies image files from the data location to the image store with a pool of threads.
+     * The queue of the pool is bounded, so if copying falls behind the inserts,
+     * the loading thread copies images itself.
+     */
+    private class ImageCopier implements AutoCloseable {
+        private final String base;
+        private final ImageStore imageStore;
+        private final ThreadPoolExecutor executor;
+        private final AtomicInteger copied = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        ImageCopier(String base, ImageStore imageStore) {
+            this.base = base;
+            this.imageStore = imageStore;
+
+            var threadNumber = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(
+                    imageCopyThreads,
+                    imageCopyThreads,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(imageCopyThreads * 64),
+                    r -> {
+                        Thread thread = new Thread(r, "image-copy-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy()
+            );
+        }
+
+        void copy(String imageName) {
+            if (imageName == null || imageName.isBlank())
+                return;
+            executor.execute(() -> doCopy(imageName));
+        }
+
+        private void doCopy(String imageName) {
+            String name = Path.of(imageName).getFileName().toString();
+            Resource image = resourceLoader.getResource(base + imageName);
+            try {
+                if (!image.exists())
+                    return;
+                try (InputStream in = image.getInputStream()) {
+                    imageStore.put(name, in);
+                }
+                copied.incrementAndGet();
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                LOGGER.warn("Could not copy image {}: {}", imageName, e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(1, TimeUnit.HOURS))
+                    executor.shutdownNow();
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            LOGGER.info("Copied {} images, {} failed", copied.get(), failed.get());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.panov.store.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Notifies listeners about committed changes of catalog entities (products, their images,
+ * stock and product types), e.g. to invalidate copies of catalog responses. <br><br>
+ * Repositories call {@link #changed()} after every change of the catalog, or
+ * {@link #valuesChanged(Collection)} if only the stock or the price of some products has changed
+ * (e.g. by an order), so listeners can update only those products. Inside a Spring-managed
+ * transaction the listeners are notified once after the transaction is committed, with all the
+ * changes of the transaction, and not at all if it is rolled back, so a listener never sees
+ * the catalog before the change is visible. Outside of it the repository has already committed
+ * its own transaction.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public final class CatalogChanges {
+    private static final Logger LOGGER = LogManager.getLogger(CatalogChanges.class);
+    private static final List<Consumer<Change>> listeners = new CopyOnWriteArrayList<>();
+
+    private CatalogChanges() {}
+
+    /**
+     * A committed change of the catalog.
+     *
+     * @param products identities of the products of which only the stock or the price has changed,
+     *                 {@code null} if anything in the catalog may have changed
+     */
+    public record Change(Set<Integer> products) {
+        static final Change ANY = new Change(null);
+
+        /**
+         * @return {@code true} if anything in the catalog may have changed
+         */
+        public boolean affectsEverything() {
+            return products == null;
+        }
+    }
+
+    /**
+     * @param listener action called after every committed change of the catalog
+     */
+    public static void addListener(Consumer<Change> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener listener added by {@link #addListener(Consumer)}
+     */
+    public static void removeListener(Consumer<Change> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Records a change of the catalog made by the current thread.
+     */
+    static void changed() {
+        record(null);
+    }
+
+    /**
+     * Records a change of only the stock or the price of products made by the current thread.
+     *
+     * @param productIds identities of the changed products
+     */
+    static void valuesChanged(Collection<Integer> productIds) {
+        if (!productIds.isEmpty())
+            record(productIds);
+    }
+
+    private static void record(Collection<Integer> productIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notifyListeners(productIds == null ? Change.ANY : new Change(Set.copyOf(productIds)));
+            return;
+        }
+
+        var pending = (Pending) TransactionSynchronizationManager.getResource(CatalogChanges.class);
+        if (pending == null) {
+            var created = new Pending();
+            TransactionSynchronizationManager.bindResource(CatalogChanges.class, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CatalogChanges.class);
+                    if (status == STATUS_COMMITTED)
+                        notifyListeners(created.change());
+                }
+            });
+            pending = created;
+        }
+        pending.add(productIds);
+    }
+
+    private static void notifyListeners(Change change) {
+        for (var listener : listeners) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException e) {
+                LOGGER.error("Catalog change listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Changes of the catalog made in a Spring-managed transaction.
+     */
+    private static final class Pending {
+        private boolean everything;
+        private final Set<Integer> products = new HashSet<>();
+
+        void add(Collection<Integer> productIds) {
+            if (productIds == null)
+                everything = true;
+            else
+                products.addAll(productIds);
+        }
+
+        Change change() {
+            return everything ? Change.ANY : new Change(Set.copyOf(products));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.panov.store.dao;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Version of a page of catalog entities (products, product types, delivery types),
+ * computed from identities and update times of the entities on the page. <br><br>
+ * The version changes if an entity on the page is changed, or if entities are added to
+ * or removed from the page, so it is used as a weak ETag of list responses.
+ * Computing it needs only the identities and update times, not the entities.
+ *
+ * @param tag digest of the page
+ * @param lastModified the latest update time on the page or {@code null} for an empty page
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public record CatalogVersion(String tag, Timestamp lastModified) {
+
+    /**
+     * @param rows pairs of an identity and an update time, in the order of the page
+     * @return version of the page
+     */
+    public static CatalogVersion of(List<Object[]> rows) {
+        long digest = 1;
+        Timestamp lastModified = null;
+        for (var row : rows) {
+            var updatedAt = (Timestamp) row[1];
+            digest = 31 * digest + ((Number) row[0]).longValue();
+            if (updatedAt == null)
+                continue;
+            digest = 31 * digest + updatedAt.getTime();
+            digest = 31 * digest + updatedAt.getNanos();
+            if (lastModified == null || updatedAt.after(lastModified))
+                lastModified = updatedAt;
+        }
+        return new CatalogVersion(rows.size() + "-" + Long.toHexString(digest), lastModified);
+    }
+
+    /**
+     * @return the current time as an update time of catalog entities. It has the microsecond
+     *         precision of the database, so that quick successive changes get different times.
+     */
+    static Timestamp now() {
+        return Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    /**
+     * @return the version as a weak entity tag, e.g. {@code W/"20-5f3a0c1e9b7d2a44"}
+     */
+    public String eTag() {
+        return "W/\"" + tag + "\"";
+    }
+}
@@ -1,13 +1,16 @@
 package com.panov.store.dao;
 
+import com.panov.store.datasource.DataSourceRouting;
 import com.panov.store.model.DeliveryType;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -17,7 +20,7 @@ import java.util.Optional;
  * @version 1.0
  */
 @Repository
-public class DeliveryTypeRepository implements DAO<DeliveryType> {
+public class DeliveryTypeRepository implements NaturalIdDAO<DeliveryType> {
     private final EntityManagerFactory entityManagerFactory;
 
     @Autowired
@@ -37,7 +40,7 @@ public class DeliveryTypeRepository implements DAO<DeliveryType> {
 
         Optional<DeliveryType> deliveryType;
 
-        try {
+        try (var readOnly = DataSourceRouting.readOnly()) {
             deliveryType = Optional.ofNullable(entityManager.find(DeliveryType.class, id));
         } finally {
             entityManager.close();
@@ -62,9 +65,9 @@ public class DeliveryTypeRepository implements DAO<DeliveryType> {
         if (quantity == null || quantity < 0)
             quantity = 500;
 
-        try {
+        try (var readOnly = DataSourceRouting.readOnly()) {
             list = entityManager
-                    .createQuery("select dt from DeliveryType dt", DeliveryType.class)
+                    .createQuery("select dt from DeliveryType dt order by dt.deliveryTypeId", DeliveryType.class)
                     .setFirstResult(offset)
                     .setMaxResults(quantity)
                     .getResultList();
@@ -89,14 +92,15 @@ public class DeliveryTypeRepository implements DAO<DeliveryType> {
 
         List<DeliveryType> deliveryTypes;
 
-        try {
+        try (var readOnly = DataSourceRouting.readOnly()) {
             String probablyName = value.toString();
 
             if (!strict)
                 probablyName = "%" + probablyName + "%";
 
             deliveryTypes =
-                    entityManager.createQuery("select dt from DeliveryType dt where lower(name) like lower(:name)", DeliveryType.class)
+                    entityManager.createQuery("select dt from DeliveryType dt where lower(name) like lower(:name) " +
+                                    "order by dt.deliveryTypeId", DeliveryType.class)
                             .setParameter("name", probablyName)
                             .getResultList();
         } finally {
@@ -106,6 +110,98 @@ public class DeliveryTypeRepository implements DAO<DeliveryType> {
         return deliveryTypes;
     }
 
+    /**
+     * Computes the version of the page returned by {@link #getPackage(Integer, Integer)}
+     * with the same arguments, without loading the delivery types.
+     *
+     * @return a {@link CatalogVersion} of the page
+     */
+    public CatalogVersion getPackageVersion(Integer offset, Integer quantity) {
+        var entityManager = getManager();
+
+        if (offset == null || offset < 0)
+            offset = 0;
+        if (quantity == null || quantity < 0)
+            quantity = 500;
+
+        try (var readOnly = DataSourceRouting.readOnly()) {
+            return CatalogVersion.of(entityManager
+                    .createQuery(
+                            "select dt.deliveryTypeId, dt.updatedAt from DeliveryType dt order by dt.deliveryTypeId",
+                            Object[].class
+                    )
+                    .setFirstResult(offset)
+                    .setMaxResults(quantity)
+                    .getResultList());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Computes the version of the list returned by {@link #getByColumn(Object, Integer, Integer, boolean)}
+     * with the same arguments, without loading the delivery types.
+     *
+     * @return a {@link CatalogVersion} of the list
+     */
+    public CatalogVersion getByColumnVersion(Object value, boolean strict) {
+        if (value == null || value.toString().isBlank()) {
+            return CatalogVersion.of(Collections.emptyList());
+        }
+
+        var entityManager = getManager();
+
+        try (var readOnly = DataSourceRouting.readOnly()) {
+            String probablyName = value.toString();
+
+            if (!strict)
+                probablyName = "%" + probablyName + "%";
+
+            return CatalogVersion.of(entityManager
+                    .createQuery(
+                            "select dt.deliveryTypeId, dt.updatedAt from DeliveryType dt " +
+                                    "where lower(name) like lower(:name) order by dt.deliveryTypeId",
+                            Object[].class
+                    )
+                    .setParameter("name", probablyName)
+                    .getResultList());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Checks if there is a {@link DeliveryType}, other than the one with {@code excludedId} identity,
+     * with exactly the provided name. The name is resolved through the natural identifier,
+     * so the check is answered from the natural-id cache or by one probe of the unique index
+     * and does not load the entity.
+     *
+     * @param value a name to check
+     * @param excludedId an identity of the {@link DeliveryType} that should not be taken into account
+     * @return {@code true} if such a {@link DeliveryType} exists and {@code false} - otherwise
+     */
+    @Override
+    public boolean exists(Object value, Integer excludedId) {
+        if (value == null || value.toString().isBlank()) {
+            return false;
+        }
+
+        var entityManager = getManager();
+
+        try {
+            DeliveryType reference = entityManager
+                    .unwrap(Session.class)
+                    .bySimpleNaturalId(DeliveryType.class)
+                    .getReference(value.toString());
+            if (reference == null)
+                return false;
+            Object id = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(reference);
+            return !Objects.equals(id, excludedId);
+        } finally {
+            entityManager.close();
+        }
+    }
+
     /**
      * Created new {@link DeliveryType} instance and saves it to <br>
      * the database.
@@ -118,7 +214,9 @@ public class DeliveryTypeRepository implements DAO<DeliveryType> {
         var entityManager = getManager();
 
         try {
+            DataSourceRouting.markWritten();
             entityManager.getTransaction().begin();
+            deliveryType.setUpdatedAt(CatalogVersion.now());
             entityManager.persist(deliveryType);
             entityManager.getTransaction().commit();
         } finally {
@@ -138,7 +236,9 @@ public class DeliveryTypeRepository implements DAO<DeliveryType> {
         var entityManager = getManager();
 
         try {
+            DataSourceRouting.markWritten();
             entityManager.getTransaction().begin();
+            deliveryType.setUpdatedAt(CatalogVersion.now());
             entityManager.merge(deliveryType);
             entityManager.getTransaction().commit();
         } finally {
@@ -157,6 +257,7 @@ public class DeliveryTypeRepository implements DAO<DeliveryType> {
         var entityManager = getManager();
 
         try {
+            DataSourceRouting.markWritten();
             entityManager.getTransaction().begin();
 
             // Deleting from all the orders
@@ -175,11 +276,13 @@ public class DeliveryTypeRepository implements DAO<DeliveryType> {
     }
 
     /**
-     * Gets new instance of {@link EntityManager} from {@link EntityManagerFactory} instance.
+     * Gets an {@link EntityManager} of the current Spring-managed transaction or new instance
+     * of {@link EntityManager} from {@link EntityManagerFactory} instance.
      *
      * @return an {@link EntityManager} instance
+     * @see TransactionalEntityManagers
      */
     private EntityManager getManager() {
-        return entityManagerFactory.createEntityManager();
+        return TransactionalEntityManagers.getManager(entityManagerFactory);
     }
 }
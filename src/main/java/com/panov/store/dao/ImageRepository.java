@@ -0,0 +1,293 @@
+package com.panov.store.dao;
+
+import com.panov.store.datasource.DataSourceRouting;
+import com.panov.store.model.StoredImage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The repository of {@link StoredImage} objects, i.e. of reference counts of image files. <br><br>
+ * There is no row for an image that was stored before the counts were introduced
+ * (or loaded by {@link BulkLoader}). Its count is computed from the actual references
+ * of products and users on its first change, and kept in the table since then.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Repository
+public class ImageRepository {
+    private static final Logger LOGGER = LogManager.getLogger(ImageRepository.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public ImageRepository(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Retrieves the number of references to an image.
+     *
+     * @param name name of the image
+     * @return an optional of the number, empty if the image is not counted yet
+     */
+    public Optional<Integer> getReferenceCount(String name) {
+        var entityManager = getManager();
+
+        try {
+            return Optional.ofNullable(entityManager.find(StoredImage.class, name))
+                    .map(StoredImage::getReferenceCount);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Adds a reference to an image. Must be called before a product or a user refers to it. <br>
+     * The reference is committed in its own transaction, even inside a Spring-managed one,
+     * so a failed insert of the row by one of two concurrent first uploads of the image does not
+     * abort the transaction of the caller and can be retried. If the caller is rolled back
+     * after that, the image is left to the collector of unreferenced images.
+     *
+     * @param name name of the image
+     */
+    public void acquire(String name) {
+        var entityManager = entityManagerFactory.createEntityManager();
+
+        try {
+            DataSourceRouting.markWritten();
+            entityManager.getTransaction().begin();
+            var now = Timestamp.from(Instant.now());
+            int updated = entityManager
+                    .createQuery("update StoredImage i set i.referenceCount = i.referenceCount + 1, i.acquiredAt = :now " +
+                            "where i.name = :name")
+                    .setParameter("now", now)
+                    .setParameter("name", name)
+                    .executeUpdate();
+            if (updated == 0)
+                entityManager.persist(new StoredImage(name, (int) countReferences(entityManager, name) + 1, now));
+            entityManager.getTransaction().commit();
+        } catch (RuntimeException e) {
+            rollback(entityManager);
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Removes a reference to an image. Must be called after a product or a user stopped referring to it. <br>
+     * If it was the last reference, {@code deleteImage} is called while the row of the image
+     * is locked, before the transaction is committed. So a concurrent {@link #acquire(String)}
+     * of the same image waits for the file to be deleted and then stores it again. <br><br>
+     * Inside a Spring-managed transaction a deleted file could not be restored if the transaction
+     * were rolled back, so the row is kept with no references, and the file is deleted in its own
+     * transaction after the commit, unless the image has been acquired again in the meantime.
+     *
+     * @param name name of the image
+     * @param deleteImage action that deletes the image file
+     * @return {@code true} if it was the last reference
+     */
+    public boolean release(String name, Consumer<String> deleteImage) {
+        var entityManager = getManager();
+
+        try {
+            DataSourceRouting.markWritten();
+            entityManager.getTransaction().begin();
+            var image = entityManager.find(StoredImage.class, name, LockModeType.PESSIMISTIC_WRITE);
+            long remaining = image == null
+                    ? countReferences(entityManager, name)
+                    : image.getReferenceCount() - 1;
+
+            if (remaining > 0) {
+                if (image == null)
+                    entityManager.persist(new StoredImage(name, (int) remaining, null));
+                else
+                    image.setReferenceCount((int) remaining);
+            } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                if (image == null)
+                    entityManager.persist(new StoredImage(name, 0, null));
+                else
+                    image.setReferenceCount(0);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        deleteUnreferenced(name, deleteImage);
+                    }
+                });
+            } else {
+                if (image != null)
+                    entityManager.remove(image);
+                entityManager.flush();
+                deleteImage.accept(name);
+            }
+            entityManager.getTransaction().commit();
+            return remaining <= 0;
+        } catch (RuntimeException e) {
+            rollback(entityManager);
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Deletes an image nobody refers to, e.g. one left by a crash between an upload and
+     * the update of a product. The actual references of products and users are checked
+     * while the row of the image is locked, as in {@link #release(String, Consumer)},
+     * and the row is removed together with the image. <br>
+     * An image acquired since {@code acquiredBefore} is kept: an upload of the same image may
+     * have found it stored and not be attached to a product yet.
+     *
+     * @param name name of the image
+     * @param acquiredBefore only images last acquired before this instant are deleted
+     * @param deleteImage action that deletes the image file
+     * @return {@code true} if the image had no references and was deleted
+     */
+    public boolean collect(String name, Instant acquiredBefore, Consumer<String> deleteImage) {
+        var entityManager = getManager();
+
+        try {
+            DataSourceRouting.markWritten();
+            entityManager.getTransaction().begin();
+            var image = entityManager.find(StoredImage.class, name, LockModeType.PESSIMISTIC_WRITE);
+            boolean acquiredRecently = image != null && image.getAcquiredAt() != null
+                    && !image.getAcquiredAt().toInstant().isBefore(acquiredBefore);
+            boolean unreferenced = !acquiredRecently && countReferences(entityManager, name) == 0;
+            if (unreferenced) {
+                if (image != null)
+                    entityManager.remove(image);
+                entityManager.flush();
+                deleteImage.accept(name);
+            }
+            entityManager.getTransaction().commit();
+            return unreferenced;
+        } catch (RuntimeException e) {
+            rollback(entityManager);
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Retrieves the number of references of products and users to all images.
+     *
+     * @return the number of references
+     */
+    public long countReferences() {
+        var entityManager = getManager();
+
+        try {
+            long products = entityManager
+                    .createQuery("select count(p) from Product p where p.image is not null", Long.class)
+                    .getSingleResult();
+            long users = entityManager
+                    .createQuery("select count(u) from User u where u.image is not null", Long.class)
+                    .getSingleResult();
+            return products + users;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Passes the names of images referred to by products and users to the consumer, a name per reference.
+     * The names are read with a cursor in batches of {@code fetchSize}, so they are never all in memory.
+     *
+     * @param fetchSize number of names fetched from the database at once
+     * @param consumer consumer of the names
+     */
+    public void forEachReference(int fetchSize, Consumer<String> consumer) {
+        var entityManager = getManager();
+
+        try {
+            // PostgreSQL reads a result with a cursor only inside a transaction
+            entityManager.getTransaction().begin();
+            for (String query : List.of(
+                    "select p.image from Product p where p.image is not null",
+                    "select u.image from User u where u.image is not null")) {
+                try (var names = entityManager.createQuery(query, String.class)
+                        .setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize)
+                        .setHint(AvailableHints.HINT_READ_ONLY, true)
+                        .getResultStream()) {
+                    names.forEach(consumer);
+                }
+            }
+            entityManager.getTransaction().commit();
+        } catch (RuntimeException e) {
+            rollback(entityManager);
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Deletes an image released inside a committed Spring-managed transaction, if its row still
+     * has no references. A failure only leaves the image to the collector of unreferenced images.
+     */
+    private void deleteUnreferenced(String name, Consumer<String> deleteImage) {
+        // the transaction of the release is committed, but its resources are still bound to the thread
+        var entityManager = entityManagerFactory.createEntityManager();
+
+        try {
+            DataSourceRouting.markWritten();
+            entityManager.getTransaction().begin();
+            var image = entityManager.find(StoredImage.class, name, LockModeType.PESSIMISTIC_WRITE);
+            if (image != null && image.getReferenceCount() <= 0) {
+                entityManager.remove(image);
+                entityManager.flush();
+                deleteImage.accept(name);
+            }
+            entityManager.getTransaction().commit();
+        } catch (RuntimeException e) {
+            rollback(entityManager);
+            LOGGER.error("Could not delete released image {}", name, e);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private long countReferences(EntityManager entityManager, String name) {
+        long products = entityManager
+                .createQuery("select count(p) from Product p where p.image = :name", Long.class)
+                .setParameter("name", name)
+                .getSingleResult();
+        long users = entityManager
+                .createQuery("select count(u) from User u where u.image = :name", Long.class)
+                .setParameter("name", name)
+                .getSingleResult();
+        return products + users;
+    }
+
+    private void rollback(EntityManager entityManager) {
+        if (entityManager.getTransaction().isActive())
+            entityManager.getTransaction().rollback();
+    }
+
+    /**
+     * Gets an {@link EntityManager} of the current Spring-managed transaction or new instance
+     * of {@link EntityManager} from {@link EntityManagerFactory} instance.
+     *
+     * @return an {@link EntityManager} instance
+     * @see TransactionalEntityManagers
+     */
+    private EntityManager getManager() {
+        return TransactionalEntityManagers.getManager(entityManagerFactory);
+    }
+}
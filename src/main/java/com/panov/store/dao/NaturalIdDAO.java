@@ -0,0 +1,24 @@
+package com.panov.store.dao;
+
+/**
+ * Data access level of entities with a natural identifier (e.g. a unique name),
+ * which lets services check that a new value is not taken before saving it.
+ *
+ * @param <E>
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public interface NaturalIdDAO<E> extends DAO<E> {
+
+    /**
+     * Checks if there is an entity, other than the one with {@code excludedId} identity,
+     * whose natural identifier (e.g. name) is equal to the provided value.
+     *
+     * @param value a natural identifier value to check
+     * @param excludedId an identity of the entity that should not be taken into account
+     *                   (e.g. the entity that is being updated), may be null
+     * @return {@code true} if such an entity exists and {@code false} - otherwise
+     */
+    boolean exists(Object value, Integer excludedId);
+
+}
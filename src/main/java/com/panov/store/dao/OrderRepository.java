@@ -1,5 +1,6 @@
 package com.panov.store.dao;
 
+import com.panov.store.datasource.DataSourceRouting;
 import com.panov.store.exceptions.ResourceNotUpdatedException;
 import com.panov.store.model.*;
 import com.panov.store.common.Status;
@@ -11,8 +12,10 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * The repository of {@link Order} objects. Implements {@link DAO} interface.
@@ -153,6 +156,7 @@ public class OrderRepository implements DAO<Order> {
         var entityManager = getManager();
 
         try {
+            DataSourceRouting.markWritten();
             entityManager.getTransaction().begin();
 
             // Attach this order to its User-owner
@@ -185,7 +189,8 @@ public class OrderRepository implements DAO<Order> {
                 op.setOrder(order);
             }
 
-            manageProductStocks(order);
+            var changedProducts = new HashSet<Integer>();
+            manageProductStocks(order, changedProducts);
             calculateSumsInOrderProducts(order);
             calculateTotal(order);
 
@@ -193,6 +198,7 @@ public class OrderRepository implements DAO<Order> {
             entityManager.persist(order);
 
             entityManager.getTransaction().commit();
+            CatalogChanges.valuesChanged(changedProducts);
         } finally {
             entityManager.close();
         }
@@ -212,9 +218,11 @@ public class OrderRepository implements DAO<Order> {
         var entityManager = getManager();
 
         try {
+            DataSourceRouting.markWritten();
             entityManager.getTransaction().begin();
 
             var currentOrder = entityManager.find(Order.class, newData.getOrderId());
+            var changedProducts = new HashSet<Integer>();
 
             // Change product status and complete time
             if (
@@ -244,7 +252,7 @@ public class OrderRepository implements DAO<Order> {
             // If customer abolishes the order, all the products from this order
             // should be returned to the warehouse
             if (currentOrder.getStatus() == Status.ABOLISHED) {
-                resetProductStocks(currentOrder);
+                resetProductStocks(currentOrder, changedProducts);
             }
 
             // Change the list of ordered products
@@ -263,7 +271,7 @@ public class OrderRepository implements DAO<Order> {
                     currentOrderProduct.setProduct(product);
                 }
 
-                resetProductStocks(currentOrder);
+                resetProductStocks(currentOrder, changedProducts);
 
                 for (var currentOrderProduct : currentOrderProducts) {
                     currentOrderProduct.setOrder(null);
@@ -286,12 +294,13 @@ public class OrderRepository implements DAO<Order> {
                     currentOrderProduct.setOrder(currentOrder);
                 }
 
-                manageProductStocks(currentOrder);
+                manageProductStocks(currentOrder, changedProducts);
                 calculateSumsInOrderProducts(currentOrder);
                 calculateTotal(currentOrder);
             }
 
             entityManager.getTransaction().commit();
+            CatalogChanges.valuesChanged(changedProducts);
         } finally {
             entityManager.close();
         }
@@ -305,21 +314,25 @@ public class OrderRepository implements DAO<Order> {
     }
 
     /**
-     * Gets new instance of {@link EntityManager} from {@link EntityManagerFactory} instance.
+     * Gets an {@link EntityManager} of the current Spring-managed transaction or new instance
+     * of {@link EntityManager} from {@link EntityManagerFactory} instance.
      *
      * @return an {@link EntityManager} instance
+     * @see TransactionalEntityManagers
      */
     private EntityManager getManager() {
-        return entityManagerFactory.createEntityManager();
+        return TransactionalEntityManagers.getManager(entityManagerFactory);
     }
 
     /**
      * Gets an order {@link Order} and for each {@link OrderProducts} object inside
      * evaluates new stock of product and saves changes in the database.
+     * Products are marked as changed, because the stock is a part of the catalog.
      *
      * @param order an order to process
+     * @param changedProducts collects identities of the products with changed stock
      */
-    private void manageProductStocks(Order order) {
+    private void manageProductStocks(Order order, Set<Integer> changedProducts) {
         var orderProducts = order.getOrderProducts();
 
         for (var op : orderProducts) {
@@ -333,6 +346,8 @@ public class OrderRepository implements DAO<Order> {
             var newProductStock = currentProductStock - quantityToSell;
 
             op.getProduct().setStock(newProductStock);
+            op.getProduct().setUpdatedAt(CatalogVersion.now());
+            changedProducts.add(op.getProduct().getProductId());
         }
     }
 
@@ -340,14 +355,17 @@ public class OrderRepository implements DAO<Order> {
      * Gets an {@link Order} object and 'returns' all ordered product quantities back to the product stock.
      *
      * @param order an order to process
+     * @param changedProducts collects identities of the products with changed stock
      */
-    private void resetProductStocks(Order order) {
+    private void resetProductStocks(Order order, Set<Integer> changedProducts) {
         for (var op : order.getOrderProducts()) {
             var currentProductStock = op.getProduct().getStock();
             var quantityFromOrderProduct = op.getQuantity();
 
             var newProductStock = currentProductStock + quantityFromOrderProduct;
             op.getProduct().setStock(newProductStock);
+            op.getProduct().setUpdatedAt(CatalogVersion.now());
+            changedProducts.add(op.getProduct().getProductId());
         }
     }
 
@@ -1,8 +1,10 @@
 package com.panov.store.dao;
 
+import com.panov.store.datasource.DataSourceRouting;
 import com.panov.store.model.*;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -15,7 +17,7 @@ import java.util.*;
  * @version 1.0
  */
 @Repository
-public class ProductRepository implements DAO<Product> {
+public class ProductRepository implements NaturalIdDAO<Product> {
     private final EntityManagerFactory entityManagerFactory;
 
     @Autowired
@@ -34,7 +36,7 @@ public class ProductRepository implements DAO<Product> {
         var entityManager = getManager();
 
         Optional<Product> product;
-        try {
+        try (var readOnly = DataSourceRouting.readOnly()) {
             product = Optional.ofNullable(entityManager.find(Product.class, id));
         } finally {
             entityManager.close();
@@ -57,9 +59,9 @@ public class ProductRepository implements DAO<Product> {
             quantity = 500;
 
         List<Product> products;
-        try {
+        try (var readOnly = DataSourceRouting.readOnly()) {
             products = entityManager
-                    .createQuery("select p from Product p", Product.class)
+                    .createQuery("select p from Product p order by p.productId", Product.class)
                     .setFirstResult(offset)
                     .setMaxResults(quantity)
                     .getResultList();
@@ -78,9 +80,9 @@ public class ProductRepository implements DAO<Product> {
             quantity = 500;
 
         List<Product> products;
-        try {
+        try (var readOnly = DataSourceRouting.readOnly()) {
             products = entityManager
-                    .createQuery("select p from Product p inner join p.productTypes pt where pt.productTypeId = :id", Product.class)
+                    .createQuery("select p from Product p inner join p.productTypes pt where pt.productTypeId = :id order by p.productId", Product.class)
                     .setParameter("id", typeId)
                     .setFirstResult(offset)
                     .setMaxResults(quantity)
@@ -105,7 +107,7 @@ public class ProductRepository implements DAO<Product> {
         var entityManager = getManager();
 
         List<Product> products;
-        try {
+        try (var readOnly = DataSourceRouting.readOnly()) {
             String probablyName = Objects.toString(value);
             if (!strict)
                 probablyName = "%" + probablyName + "%";
@@ -117,7 +119,7 @@ public class ProductRepository implements DAO<Product> {
 
             products = entityManager
                     .createQuery(
-                            "select p from Product p where lower(p.name) LIKE lower(:pattern)",
+                            "select p from Product p where lower(p.name) LIKE lower(:pattern) order by p.productId",
                             Product.class
                     )
                     .setParameter("pattern", probablyName)
@@ -130,6 +132,131 @@ public class ProductRepository implements DAO<Product> {
         return products;
     }
 
+    /**
+     * Computes the version of the page returned by {@link #getPackage(Integer, Integer)}
+     * with the same arguments, without loading the products.
+     *
+     * @return a {@link CatalogVersion} of the page
+     */
+    public CatalogVersion getPackageVersion(Integer offset, Integer quantity) {
+        var entityManager = getManager();
+
+        if (offset == null || offset < 0)
+            offset = 0;
+        if (quantity == null || quantity < 0)
+            quantity = 500;
+
+        try (var readOnly = DataSourceRouting.readOnly()) {
+            return CatalogVersion.of(entityManager
+                    .createQuery("select p.productId, p.updatedAt from Product p order by p.productId", Object[].class)
+                    .setFirstResult(offset)
+                    .setMaxResults(quantity)
+                    .getResultList());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Computes the version of the page returned by {@link #getPackageByProductType(Integer, Integer, Integer)}
+     * with the same arguments, without loading the products.
+     *
+     * @return a {@link CatalogVersion} of the page
+     */
+    public CatalogVersion getPackageByProductTypeVersion(Integer offset, Integer quantity, Integer typeId) {
+        var entityManager = getManager();
+
+        if (offset == null || offset < 0)
+            offset = 0;
+        if (quantity == null || quantity < 0)
+            quantity = 500;
+
+        try (var readOnly = DataSourceRouting.readOnly()) {
+            return CatalogVersion.of(entityManager
+                    .createQuery(
+                            "select p.productId, p.updatedAt from Product p inner join p.productTypes pt " +
+                                    "where pt.productTypeId = :id order by p.productId",
+                            Object[].class
+                    )
+                    .setParameter("id", typeId)
+                    .setFirstResult(offset)
+                    .setMaxResults(quantity)
+                    .getResultList());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Computes the version of the page returned by {@link #getByColumn(Object, Integer, Integer, boolean)}
+     * with the same arguments, without loading the products.
+     *
+     * @return a {@link CatalogVersion} of the page
+     */
+    public CatalogVersion getByColumnVersion(Object value, Integer offset, Integer quantity, boolean strict) {
+        if (value == null || value.toString().isBlank()) {
+            return CatalogVersion.of(Collections.emptyList());
+        }
+
+        var entityManager = getManager();
+
+        try (var readOnly = DataSourceRouting.readOnly()) {
+            String probablyName = Objects.toString(value);
+            if (!strict)
+                probablyName = "%" + probablyName + "%";
+
+            if (offset == null || offset < 0)
+                offset = 0;
+            if (quantity == null || quantity < 0)
+                quantity = 500;
+
+            return CatalogVersion.of(entityManager
+                    .createQuery(
+                            "select p.productId, p.updatedAt from Product p " +
+                                    "where lower(p.name) LIKE lower(:pattern) order by p.productId",
+                            Object[].class
+                    )
+                    .setParameter("pattern", probablyName)
+                    .setFirstResult(offset)
+                    .setMaxResults(quantity)
+                    .getResultList());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Checks if there is a {@link Product}, other than the one with {@code excludedId} identity,
+     * with exactly the provided name. The name is resolved through the natural identifier,
+     * so the check is answered from the natural-id cache or by one probe of the unique index
+     * and does not load the entity.
+     *
+     * @param value a name to check
+     * @param excludedId an identity of the {@link Product} that should not be taken into account
+     * @return {@code true} if such a {@link Product} exists and {@code false} - otherwise
+     */
+    @Override
+    public boolean exists(Object value, Integer excludedId) {
+        if (value == null || value.toString().isBlank()) {
+            return false;
+        }
+
+        var entityManager = getManager();
+
+        try {
+            Product reference = entityManager
+                    .unwrap(Session.class)
+                    .bySimpleNaturalId(Product.class)
+                    .getReference(value.toString());
+            if (reference == null)
+                return false;
+            Object id = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(reference);
+            return !Objects.equals(id, excludedId);
+        } finally {
+            entityManager.close();
+        }
+    }
+
     /**
      * Saves new {@link Product} to the database.
      *
@@ -140,8 +267,10 @@ public class ProductRepository implements DAO<Product> {
     public Integer insert(Product product) {
         var entityManager = getManager();
         try {
+            DataSourceRouting.markWritten();
             entityManager.getTransaction().begin();
 
+            product.setUpdatedAt(CatalogVersion.now());
             entityManager.persist(product);
 
             var types = product.getProductTypes();
@@ -157,6 +286,7 @@ public class ProductRepository implements DAO<Product> {
             entityManager.persist(product);
 
             entityManager.getTransaction().commit();
+            CatalogChanges.changed();
         } finally {
             entityManager.close();
         }
@@ -174,12 +304,14 @@ public class ProductRepository implements DAO<Product> {
         var entityManager = getManager();
 
         try {
+            DataSourceRouting.markWritten();
             entityManager.getTransaction().begin();
 
             var current = entityManager.find(Product.class, product.getProductId());
 
             if (product.getProductTypes() == null)
                 product.setProductTypes(new ArrayList<>());
+            boolean onlyValuesChanged = onlyValuesChanged(current, product);
 
             for (var pt : current.getProductTypes()) {
                 if (!product.getProductTypes().contains(pt)) {
@@ -199,26 +331,82 @@ public class ProductRepository implements DAO<Product> {
 
             current.getProductTypes().retainAll(product.getProductTypes());
 
+            product.setUpdatedAt(CatalogVersion.now());
             entityManager.merge(product);
 
             entityManager.getTransaction().commit();
+            if (onlyValuesChanged)
+                CatalogChanges.valuesChanged(List.of(product.getProductId()));
+            else
+                CatalogChanges.changed();
         } finally {
             entityManager.close();
         }
         return product.getProductId();
     }
 
+    /**
+     * Replaces the name of the image of existing {@link Product}.
+     *
+     * @param id an identity of the {@link Product}
+     * @param image name of the new image
+     * @return an identity of the updated {@link Product} or {@code null} if there is no such product
+     */
+    public Integer updateImage(Integer id, String image) {
+        var entityManager = getManager();
+
+        try {
+            DataSourceRouting.markWritten();
+            entityManager.getTransaction().begin();
+            int updated = entityManager
+                    .createQuery("update Product p set p.image = :image, p.updatedAt = :now where p.productId = :id")
+                    .setParameter("image", image)
+                    .setParameter("now", CatalogVersion.now())
+                    .setParameter("id", id)
+                    .executeUpdate();
+            entityManager.getTransaction().commit();
+            CatalogChanges.changed();
+            return updated == 0 ? null : id;
+        } finally {
+            entityManager.close();
+        }
+    }
+
     @Override
     public void delete(Integer id) {
         throw new UnsupportedOperationException();
     }
 
     /**
-     * Gets new instance of {@link EntityManager} from {@link EntityManagerFactory} instance.
+     * Checks if an update changes only the price or the stock of a product, which
+     * lets the copies of the catalog update only this product.
+     *
+     * @param current the product as it is stored
+     * @param product an object with update information
+     * @return {@code true} if the name, the description, the image and the product types are the same
+     */
+    private static boolean onlyValuesChanged(Product current, Product product) {
+        return Objects.equals(current.getName(), product.getName())
+                && Objects.equals(current.getDescription(), product.getDescription())
+                && Objects.equals(current.getImage(), product.getImage())
+                && productTypeIds(current).equals(productTypeIds(product));
+    }
+
+    private static Set<Integer> productTypeIds(Product product) {
+        var ids = new HashSet<Integer>();
+        for (var pt : product.getProductTypes())
+            ids.add(pt.getProductTypeId());
+        return ids;
+    }
+
+    /**
+     * Gets an {@link EntityManager} of the current Spring-managed transaction or new instance
+     * of {@link EntityManager} from {@link EntityManagerFactory} instance.
      *
      * @return an {@link EntityManager} instance
+     * @see TransactionalEntityManagers
      */
     private EntityManager getManager() {
-        return entityManagerFactory.createEntityManager();
+        return TransactionalEntityManagers.getManager(entityManagerFactory);
     }
 }
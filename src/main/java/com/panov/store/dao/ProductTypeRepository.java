@@ -1,8 +1,10 @@
 package com.panov.store.dao;
 
+import com.panov.store.datasource.DataSourceRouting;
 import com.panov.store.model.ProductType;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -18,7 +20,7 @@ import java.util.Optional;
  * @version 1.0
  */
 @Repository
-public class ProductTypeRepository implements DAO<ProductType> {
+public class ProductTypeRepository implements NaturalIdDAO<ProductType> {
     private final EntityManagerFactory entityManagerFactory;
 
     @Autowired
@@ -38,7 +40,7 @@ public class ProductTypeRepository implements DAO<ProductType> {
 
         Optional<ProductType> productType;
 
-        try {
+        try (var readOnly = DataSourceRouting.readOnly()) {
             productType = Optional.ofNullable(entityManager.find(ProductType.class, id));
         } finally {
             entityManager.close();
@@ -58,9 +60,9 @@ public class ProductTypeRepository implements DAO<ProductType> {
         if (quantity == null || quantity < 0)
             quantity = 500;
 
-        try {
+        try (var readOnly = DataSourceRouting.readOnly()) {
             productTypes = entityManager
-                    .createQuery("select pt from ProductType pt", ProductType.class)
+                    .createQuery("select pt from ProductType pt order by pt.productTypeId", ProductType.class)
                     .setFirstResult(offset)
                     .setMaxResults(quantity)
                     .getResultList();
@@ -93,13 +95,14 @@ public class ProductTypeRepository implements DAO<ProductType> {
             quantity = 500;
         }
 
-        try {
+        try (var readOnly = DataSourceRouting.readOnly()) {
             String probablyName = Objects.toString(value);
             if (!strict)
                 probablyName = "%" + probablyName + "%";
 
             productTypes = entityManager
-                    .createQuery("select pt from ProductType pt where lower(pt.name) like lower(:pattern)", ProductType.class)
+                    .createQuery("select pt from ProductType pt where lower(pt.name) like lower(:pattern) order by pt.productTypeId",
+                            ProductType.class)
                     .setParameter("pattern", probablyName)
                     .setFirstResult(offset)
                     .setMaxResults(quantity)
@@ -110,6 +113,106 @@ public class ProductTypeRepository implements DAO<ProductType> {
         return productTypes;
     }
 
+    /**
+     * Computes the version of the page returned by {@link #getPackage(Integer, Integer)}
+     * with the same arguments, without loading the product types.
+     *
+     * @return a {@link CatalogVersion} of the page
+     */
+    public CatalogVersion getPackageVersion(Integer offset, Integer quantity) {
+        var entityManager = getManager();
+
+        if (offset == null || offset < 0)
+            offset = 0;
+        if (quantity == null || quantity < 0)
+            quantity = 500;
+
+        try (var readOnly = DataSourceRouting.readOnly()) {
+            return CatalogVersion.of(entityManager
+                    .createQuery(
+                            "select pt.productTypeId, pt.updatedAt from ProductType pt order by pt.productTypeId",
+                            Object[].class
+                    )
+                    .setFirstResult(offset)
+                    .setMaxResults(quantity)
+                    .getResultList());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Computes the version of the page returned by {@link #getByColumn(Object, Integer, Integer, boolean)}
+     * with the same arguments, without loading the product types.
+     *
+     * @return a {@link CatalogVersion} of the page
+     */
+    public CatalogVersion getByColumnVersion(Object value, Integer offset, Integer quantity, boolean strict) {
+        if (value == null || value.toString().isBlank()) {
+            return CatalogVersion.of(Collections.emptyList());
+        }
+
+        var entityManager = getManager();
+
+        if (offset == null || offset < 0) {
+            offset = 0;
+        }
+        if (quantity == null || quantity < 0) {
+            quantity = 500;
+        }
+
+        try (var readOnly = DataSourceRouting.readOnly()) {
+            String probablyName = Objects.toString(value);
+            if (!strict)
+                probablyName = "%" + probablyName + "%";
+
+            return CatalogVersion.of(entityManager
+                    .createQuery(
+                            "select pt.productTypeId, pt.updatedAt from ProductType pt " +
+                                    "where lower(pt.name) like lower(:pattern) order by pt.productTypeId",
+                            Object[].class
+                    )
+                    .setParameter("pattern", probablyName)
+                    .setFirstResult(offset)
+                    .setMaxResults(quantity)
+                    .getResultList());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Checks if there is a {@link ProductType}, other than the one with {@code excludedId} identity,
+     * with exactly the provided name. The name is resolved through the natural identifier,
+     * so the check is answered from the natural-id cache or by one probe of the unique index
+     * and does not load the entity.
+     *
+     * @param value a name to check
+     * @param excludedId an identity of the {@link ProductType} that should not be taken into account
+     * @return {@code true} if such a {@link ProductType} exists and {@code false} - otherwise
+     */
+    @Override
+    public boolean exists(Object value, Integer excludedId) {
+        if (value == null || value.toString().isBlank()) {
+            return false;
+        }
+
+        var entityManager = getManager();
+
+        try {
+            ProductType reference = entityManager
+                    .unwrap(Session.class)
+                    .bySimpleNaturalId(ProductType.class)
+                    .getReference(value.toString());
+            if (reference == null)
+                return false;
+            Object id = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(reference);
+            return !Objects.equals(id, excludedId);
+        } finally {
+            entityManager.close();
+        }
+    }
+
     /**
      * Saves new {@link ProductType} to the database.
      *
@@ -121,9 +224,12 @@ public class ProductTypeRepository implements DAO<ProductType> {
         var entityManager = getManager();
 
         try {
+            DataSourceRouting.markWritten();
             entityManager.getTransaction().begin();
+            productType.setUpdatedAt(CatalogVersion.now());
             entityManager.persist(productType);
             entityManager.getTransaction().commit();
+            CatalogChanges.changed();
         } finally {
             entityManager.close();
         }
@@ -132,7 +238,8 @@ public class ProductTypeRepository implements DAO<ProductType> {
     }
 
     /**
-     * Updates information about {@link ProductType} object.
+     * Updates information about {@link ProductType} object. Products of this type are
+     * marked as changed too, because they are sent together with names of their types.
      *
      * @param productType an object with update information
      * @return an identity of changed {@link ProductType} object.
@@ -142,9 +249,22 @@ public class ProductTypeRepository implements DAO<ProductType> {
         var entityManager = getManager();
 
         try {
+            DataSourceRouting.markWritten();
             entityManager.getTransaction().begin();
+            var now = CatalogVersion.now();
+            productType.setUpdatedAt(now);
             entityManager.merge(productType);
+            entityManager
+                    .createQuery(
+                            "update Product p set p.updatedAt = :now where p.productId in " +
+                                    "(select pr.productId from ProductType pt join pt.products pr " +
+                                    "where pt.productTypeId = :id)"
+                    )
+                    .setParameter("now", now)
+                    .setParameter("id", productType.getProductTypeId())
+                    .executeUpdate();
             entityManager.getTransaction().commit();
+            CatalogChanges.changed();
         } finally {
             entityManager.close();
         }
@@ -162,29 +282,35 @@ public class ProductTypeRepository implements DAO<ProductType> {
         var entityManager = getManager();
 
         try {
+            DataSourceRouting.markWritten();
             entityManager.getTransaction().begin();
 
             // Delete reference from every product object
+            var now = CatalogVersion.now();
             var pt = entityManager.find(ProductType.class, id);
             for (var p : pt.getProducts()) {
                 p.getProductTypes().remove(pt);
+                p.setUpdatedAt(now);
             }
 
             // Delete actual product type
             entityManager.remove(pt);
 
             entityManager.getTransaction().commit();
+            CatalogChanges.changed();
         } finally {
             entityManager.close();
         }
     }
 
     /**
-     * Gets new instance of {@link EntityManager} from {@link EntityManagerFactory} instance.
+     * Gets an {@link EntityManager} of the current Spring-managed transaction or new instance
+     * of {@link EntityManager} from {@link EntityManagerFactory} instance.
      *
      * @return an {@link EntityManager} instance
+     * @see TransactionalEntityManagers
      */
     private EntityManager getManager() {
-        return entityManagerFactory.createEntityManager();
+        return TransactionalEntityManagers.getManager(entityManagerFactory);
     }
 }
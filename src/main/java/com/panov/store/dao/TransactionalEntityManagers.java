@@ -0,0 +1,86 @@
+package com.panov.store.dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Provides {@link EntityManager} instances for repositories. <br><br>
+ * If there is a Spring-managed transaction (e.g. a {@code @Transactional} service method),
+ * the {@link EntityManager} bound to this transaction is returned, so all the repository calls
+ * of one service call share one persistence context and one connection. Repositories manage
+ * their {@link EntityManager} and resource-local transaction on their own, so the shared instance
+ * is wrapped: {@code close()} does nothing, {@code begin()} does nothing, {@code commit()} only
+ * flushes the changes and {@code rollback()} marks the whole transaction as rollback-only. <br><br>
+ * Without a Spring-managed transaction a new {@link EntityManager} is created, as before.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+final class TransactionalEntityManagers {
+    private TransactionalEntityManagers() {}
+
+    /**
+     * @param entityManagerFactory factory of the persistence unit
+     * @return an {@link EntityManager} that repository must close after usage
+     */
+    static EntityManager getManager(EntityManagerFactory entityManagerFactory) {
+        EntityManager shared = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        if (shared == null)
+            return entityManagerFactory.createEntityManager();
+
+        return (EntityManager) Proxy.newProxyInstance(
+                EntityManager.class.getClassLoader(),
+                new Class<?>[] { EntityManager.class },
+                new SharedEntityManagerHandler(shared)
+        );
+    }
+
+    private record SharedEntityManagerHandler(EntityManager target) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "close" -> null;
+                case "getTransaction" -> Proxy.newProxyInstance(
+                        EntityTransaction.class.getClassLoader(),
+                        new Class<?>[] { EntityTransaction.class },
+                        new SharedTransactionHandler(target)
+                );
+                default -> delegate(target, method, args);
+            };
+        }
+    }
+
+    private record SharedTransactionHandler(EntityManager target) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "begin" -> null;
+                case "commit" -> {
+                    target.flush();
+                    yield null;
+                }
+                case "rollback", "setRollbackOnly" -> {
+                    target.getTransaction().setRollbackOnly();
+                    yield null;
+                }
+                case "isActive" -> true;
+                default -> delegate(target.getTransaction(), method, args);
+            };
+        }
+    }
+
+    private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -132,11 +132,13 @@ public class UnregisteredCustomerRepository implements DAO<UnregisteredCustomer>
     }
 
     /**
-     * Gets new instance of {@link EntityManager} from {@link EntityManagerFactory} instance.
+     * Gets an {@link EntityManager} of the current Spring-managed transaction or new instance
+     * of {@link EntityManager} from {@link EntityManagerFactory} instance.
      *
      * @return an {@link EntityManager} instance
+     * @see TransactionalEntityManagers
      */
     private EntityManager getManager() {
-        return entityManagerFactory.createEntityManager();
+        return TransactionalEntityManagers.getManager(entityManagerFactory);
     }
 }
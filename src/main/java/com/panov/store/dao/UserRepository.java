@@ -1,5 +1,6 @@
 package com.panov.store.dao;
 
+import com.panov.store.dto.UserCredentials;
 import com.panov.store.model.Address;
 import com.panov.store.model.User;
 import jakarta.persistence.EntityManager;
@@ -18,7 +19,7 @@ import java.util.Optional;
  * @version 1.0
  */
 @Repository
-public class UserRepository implements DAO<User> {
+public class UserRepository implements NaturalIdDAO<User> {
     private final EntityManagerFactory entityManagerFactory;
 
     @Autowired
@@ -122,6 +123,74 @@ public class UserRepository implements DAO<User> {
         return users;
     }
 
+    /**
+     * Checks if there is a {@link User}, other than the one with {@code excludedId} identity,
+     * whose phone number or email is exactly equal to the provided value. <br>
+     * Both columns are unique, so the check is one probe of their indexes
+     * and stops at the first match.
+     *
+     * @param value a phone number or email to check
+     * @param excludedId an identity of the {@link User} that should not be taken into account
+     * @return {@code true} if such a {@link User} exists and {@code false} - otherwise
+     */
+    @Override
+    public boolean exists(Object value, Integer excludedId) {
+        if (value == null || value.toString().isBlank()) {
+            return false;
+        }
+
+        var entityManager = getManager();
+
+        try {
+            String jpql = "select 1 from User u where " +
+                    "(u.personalInfo.phoneNumber = :value or u.personalInfo.email = :value)";
+            if (excludedId != null)
+                jpql += " and u.userId <> :id";
+
+            var query = entityManager
+                    .createQuery(jpql, Integer.class)
+                    .setParameter("value", value.toString())
+                    .setMaxResults(1);
+            if (excludedId != null)
+                query.setParameter("id", excludedId);
+
+            return !query.getResultList().isEmpty();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Retrieves credentials of the {@link User} with exactly the provided phone number. <br>
+     * Only the identity, phone number, password hash and access level are selected,
+     * so orders, address and image of the user are not loaded.
+     *
+     * @param phoneNumber a phone number of the sought {@link User}
+     * @return an optional of the sought {@link UserCredentials}
+     */
+    public Optional<UserCredentials> getCredentials(String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.isBlank()) {
+            return Optional.empty();
+        }
+
+        var entityManager = getManager();
+
+        try {
+            return entityManager
+                    .createQuery(
+                            "select new com.panov.store.dto.UserCredentials(" +
+                                    "u.userId, u.personalInfo.phoneNumber, u.hashPassword, u.access) " +
+                            "from User u where u.personalInfo.phoneNumber = :pn",
+                            UserCredentials.class
+                    )
+                    .setParameter("pn", phoneNumber)
+                    .getResultStream()
+                    .findFirst();
+        } finally {
+            entityManager.close();
+        }
+    }
+
     /**
      * Created new {@link User} instance and saves it to <br>
      * the database.
@@ -144,6 +213,30 @@ public class UserRepository implements DAO<User> {
         return user.getUserId();
     }
 
+    /**
+     * Replaces the name of the image of existing {@link User}.
+     *
+     * @param id an identity of the {@link User}
+     * @param image name of the new image
+     * @return an identity of the updated {@link User} or {@code null} if there is no such user
+     */
+    public Integer updateImage(Integer id, String image) {
+        var entityManager = getManager();
+
+        try {
+            entityManager.getTransaction().begin();
+            int updated = entityManager
+                    .createQuery("update User u set u.image = :image where u.userId = :id")
+                    .setParameter("image", image)
+                    .setParameter("id", id)
+                    .executeUpdate();
+            entityManager.getTransaction().commit();
+            return updated == 0 ? null : id;
+        } finally {
+            entityManager.close();
+        }
+    }
+
     /**
      * Updates information about existing {@link User}.
      *
@@ -220,11 +313,13 @@ public class UserRepository implements DAO<User> {
     }
 
     /**
-     * Gets new instance of {@link EntityManager} from {@link EntityManagerFactory} instance.
+     * Gets an {@link EntityManager} of the current Spring-managed transaction or new instance
+     * of {@link EntityManager} from {@link EntityManagerFactory} instance.
      *
      * @return an {@link EntityManager} instance
+     * @see TransactionalEntityManagers
      */
     private EntityManager getManager() {
-        return entityManagerFactory.createEntityManager();
+        return TransactionalEntityManagers.getManager(entityManagerFactory);
     }
 }
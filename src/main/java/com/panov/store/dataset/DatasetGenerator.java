@@ -0,0 +1,453 @@
+package com.panov.store.dataset;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.panov.store.common.Status;
+import com.panov.store.dao.BulkLoader;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a synthetic dataset for load testing. <br><br>
+ * The dataset is written as JSON files in the format of {@link BulkLoader}, so it can be loaded
+ * by the seeding path ({@code db.seed.location=file:/path/to/dataset/}) or right away
+ * with {@link #main(String[])}. <br><br>
+ * The same {@link Settings} (including the seed) always produce the same files.
+ * Every kind of data has its own random stream, so e.g. changing the number of orders
+ * does not change the generated products. Popularity of product types among products
+ * and of products among order lines follows the Zipf distribution, so a few products
+ * are in most of the orders, as in a real store. <br><br>
+ * All generated users have password {@value #PASSWORD}, the first one is an administrator.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class DatasetGenerator {
+    public static final String PASSWORD = "password1";
+    private static final String PASSWORD_HASH = "$2a$10$mCi6f0B3jCwyws/IECKXyuFSi9nfIWU/vl2mFesR0pdhSZi4gD0hG";
+
+    // 2023-01-01T00:00:00Z, orders are posted during one year after this moment
+    private static final long FIRST_ORDER_TIME = 1672531200000L;
+    private static final long ORDERS_PERIOD = 365L * 24 * 60 * 60 * 1000;
+
+    private static final String[] DELIVERY_TYPES = {
+            "Nova Poschta", "Nova Poschta's courier", "Ukrposchta", "Pickup from our Warehouse"
+    };
+    private static final String[] ADJECTIVES = {
+            "Classic", "Compact", "Deluxe", "Eco", "Smart", "Vintage", "Wireless", "Portable", "Premium", "Handmade"
+    };
+    private static final String[] NOUNS = {
+            "Lamp", "Chair", "Backpack", "Kettle", "Notebook", "Speaker", "Jacket", "Puzzle", "Watch", "Guitar"
+    };
+    private static final String[] FIRST_NAMES = {
+            "Maksym", "Olena", "Dmytro", "Iryna", "Andrii", "Oksana", "Taras", "Sofiia", "Bohdan", "Kateryna"
+    };
+    private static final String[] LAST_NAMES = {
+            "Shevchenko", "Kovalenko", "Bondarenko", "Tkachenko", "Kravchenko", "Melnyk", "Boyko", "Moroz"
+    };
+    private static final String[] CITIES = {
+            "Kyiv", "Lviv", "Odesa", "Kharkiv", "Dnipro", "Vinnytsia", "Poltava", "Chernihiv"
+    };
+    private static final String[] STREETS = {
+            "Shevchenka", "Franka", "Khreshchatyk", "Sadova", "Centralna", "Lesi Ukrainky"
+    };
+
+    private final Settings settings;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public DatasetGenerator(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Returns the nouns the names of generated products and product types are made of,
+     * e.g. to search generated products by name.
+     *
+     * @return unmodifiable {@link List} of the nouns
+     */
+    public static List<String> nouns() {
+        return List.of(NOUNS);
+    }
+
+    /**
+     * Writes all the dataset files to the directory.
+     *
+     * @param directory directory for the files, created if it does not exist
+     * @throws IOException if the files cannot be written
+     */
+    public void generate(Path directory) throws IOException {
+        if (settings.productTypes < 1 || settings.products < 1)
+            throw new IllegalArgumentException("Dataset must contain at least one product type and one product");
+        if (settings.users < 0 || settings.orders < 0 || settings.maxTypesPerProduct < 1 || settings.maxLinesPerOrder < 1)
+            throw new IllegalArgumentException("Invalid dataset settings");
+
+        Files.createDirectories(directory);
+
+        writeProductTypes(directory.resolve("product_types.json"));
+        writeDeliveryTypes(directory.resolve("delivery_types.json"));
+        int[] priceCents = writeProducts(directory.resolve("products.json"), orderedQuantities());
+        writeUsers(directory.resolve("users.json"));
+        writeOrders(directory.resolve("orders.json"), priceCents);
+    }
+
+    private void writeProductTypes(Path file) throws IOException {
+        var random = random(1);
+        try (var json = open(file)) {
+            json.writeStartArray();
+            for (int i = 1; i <= settings.productTypes; i++) {
+                json.writeStartObject();
+                json.writeStringField("name", pick(random, NOUNS) + "s " + i);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private void writeDeliveryTypes(Path file) throws IOException {
+        try (var json = open(file)) {
+            json.writeStartArray();
+            for (String name : DELIVERY_TYPES) {
+                json.writeStartObject();
+                json.writeStringField("name", name);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    /**
+     * Replays the ordered products of all orders, so the stock of every product covers them
+     * ({@link BulkLoader} takes ordered quantities from the stock).
+     *
+     * @return ordered quantities of the products
+     */
+    private int[] orderedQuantities() {
+        int[] quantities = new int[settings.products];
+        var lines = new OrderLines();
+        for (int i = 0; i < settings.orders; i++) {
+            lines.next();
+            for (int l = 0; l < lines.size; l++)
+                quantities[lines.products[l] - 1] += lines.quantities[l];
+        }
+        return quantities;
+    }
+
+    /**
+     * @param orderedQuantities quantities of the products ordered by the generated orders
+     * @return prices of the products in cents, to calculate order sums
+     */
+    private int[] writeProducts(Path file, int[] orderedQuantities) throws IOException {
+        var random = random(2);
+        var typePopularity = new Zipf(settings.productTypes, settings.zipfExponent);
+        int[] priceCents = new int[settings.products];
+
+        try (var json = open(file)) {
+            json.writeStartArray();
+            for (int i = 0; i < settings.products; i++) {
+                String adjective = pick(random, ADJECTIVES);
+                String noun = pick(random, NOUNS);
+                priceCents[i] = 100 + random.nextInt(500_000);
+
+                json.writeStartObject();
+                json.writeStringField("name", adjective + " " + noun + " #" + (i + 1));
+                json.writeStringField("description",
+                        adjective + " " + noun.toLowerCase() + " for everyday use. Model " + random.nextInt(10_000) + ".");
+                json.writeNumberField("price", BigDecimal.valueOf(priceCents[i], 2));
+                json.writeNumberField("stock", random.nextInt(1_000) + orderedQuantities[i]);
+
+                json.writeArrayFieldStart("productTypes");
+                int fanOut = 1 + random.nextInt(Math.min(settings.maxTypesPerProduct, settings.productTypes));
+                int[] types = new int[fanOut];
+                for (int t = 0; t < fanOut; t++) {
+                    int type = typePopularity.sample(random);
+                    if (contains(types, t, type))
+                        continue;
+                    types[t] = type;
+                    json.writeStartObject();
+                    json.writeNumberField("productTypeId", type);
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+
+        return priceCents;
+    }
+
+    private void writeUsers(Path file) throws IOException {
+        var random = random(3);
+        try (var json = open(file)) {
+            json.writeStartArray();
+            for (int i = 1; i <= settings.users; i++) {
+                json.writeStartObject();
+                json.writeStringField("access", i == 1 ? "ADMINISTRATOR" : "USER");
+                json.writeStringField("hashPassword", PASSWORD_HASH);
+
+                json.writeObjectFieldStart("personalInfo");
+                json.writeStringField("phoneNumber", phoneNumber("09", i));
+                json.writeStringField("email", "user" + i + "@example.com");
+                json.writeStringField("firstname", pick(random, FIRST_NAMES));
+                json.writeStringField("lastname", pick(random, LAST_NAMES));
+                json.writeEndObject();
+
+                writeAddress(json, random);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private void writeOrders(Path file, int[] priceCents) throws IOException {
+        var random = random(4);
+        var lines = new OrderLines();
+        Status[] statuses = Status.values();
+
+        try (var json = open(file)) {
+            json.writeStartArray();
+            for (int i = 1; i <= settings.orders; i++) {
+                json.writeStartObject();
+
+                if (settings.users == 0 || random.nextDouble() < settings.guestOrderShare) {
+                    json.writeObjectFieldStart("unregisteredCustomer");
+                    json.writeStringField("phoneNumber", phoneNumber("06", random.nextInt(100_000_000)));
+                    json.writeStringField("firstname", pick(random, FIRST_NAMES));
+                    json.writeStringField("lastname", pick(random, LAST_NAMES));
+                    writeAddress(json, random);
+                    json.writeEndObject();
+                } else {
+                    json.writeObjectFieldStart("user");
+                    json.writeNumberField("userId", 1 + random.nextInt(settings.users));
+                    json.writeEndObject();
+                }
+
+                json.writeObjectFieldStart("deliveryType");
+                json.writeNumberField("deliveryTypeId", 1 + random.nextInt(DELIVERY_TYPES.length));
+                json.writeEndObject();
+
+                long totalCents = 0;
+                lines.next();
+                json.writeArrayFieldStart("orderProducts");
+                for (int l = 0; l < lines.size; l++) {
+                    int product = lines.products[l];
+                    int quantity = lines.quantities[l];
+                    long sumCents = (long) priceCents[product - 1] * quantity;
+                    totalCents += sumCents;
+
+                    json.writeStartObject();
+                    json.writeObjectFieldStart("product");
+                    json.writeNumberField("productId", product);
+                    json.writeEndObject();
+                    json.writeNumberField("quantity", quantity);
+                    json.writeNumberField("sum", BigDecimal.valueOf(sumCents, 2));
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeNumberField("total", BigDecimal.valueOf(totalCents, 2));
+
+                // older orders are mostly completed, the last month is still in progress
+                long postTime = FIRST_ORDER_TIME + (long) (random.nextDouble() * ORDERS_PERIOD);
+                boolean recent = postTime > FIRST_ORDER_TIME + ORDERS_PERIOD - ORDERS_PERIOD / 12;
+                Status status = recent ? statuses[random.nextInt(statuses.length)] : Status.COMPLETED;
+                json.writeNumberField("postTime", postTime);
+                json.writeStringField("status", status.name());
+                if (status == Status.COMPLETED)
+                    json.writeNumberField("completeTime", postTime + 1 + random.nextInt(7 * 24 * 60 * 60 * 1000));
+
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private void writeAddress(JsonGenerator json, SplittableRandom random) throws IOException {
+        String city = pick(random, CITIES);
+        json.writeObjectFieldStart("address");
+        json.writeStringField("region", city);
+        json.writeStringField("city", city);
+        json.writeStringField("street", pick(random, STREETS));
+        json.writeNumberField("building", 1 + random.nextInt(300));
+        json.writeNumberField("apartment", 1 + random.nextInt(200));
+        json.writeNumberField("postalCode", 1000 + random.nextInt(90_000));
+        json.writeEndObject();
+    }
+
+    private JsonGenerator open(Path file) throws IOException {
+        return jsonFactory.createGenerator(file.toFile(), JsonEncoding.UTF8);
+    }
+
+    /**
+     * Derives numbered random stream from the seed. <br>
+     * All the streams are split from one root generator, so they are independent of each other
+     * and of the streams of other seeds, and the same stream can be created again to replay its values.
+     */
+    private SplittableRandom random(int stream) {
+        var root = new SplittableRandom(settings.seed);
+        for (int i = 1; i < stream; i++)
+            root.split();
+        return root.split();
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String phoneNumber(String prefix, int number) {
+        return prefix + String.format("%08d", number % 100_000_000);
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++)
+            if (values[i] == value)
+                return true;
+        return false;
+    }
+
+    /**
+     * Samples 1-based ranks from the Zipf distribution with cumulative weights.
+     */
+    private static class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int size, double exponent) {
+            cumulative = new double[size];
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            double value = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, value);
+            return (index >= 0 ? index : -index - 1) + 1;
+        }
+    }
+
+    /**
+     * Ordered products of the orders one by one, drawn from their own random stream,
+     * so they can be replayed before the orders are written.
+     */
+    private class OrderLines {
+        private final SplittableRandom random = random(5);
+        private final Zipf productPopularity = new Zipf(settings.products, settings.zipfExponent);
+        private final Permutation shuffle = new Permutation(settings.products);
+        final int[] products = new int[settings.maxLinesPerOrder];
+        final int[] quantities = new int[settings.maxLinesPerOrder];
+        int size;
+
+        void next() {
+            size = 0;
+            int lines = 1 + random.nextInt(settings.maxLinesPerOrder);
+            for (int l = 0; l < lines; l++) {
+                // popular ranks are spread over the whole catalog, not only its beginning
+                int product = shuffle.apply(productPopularity.sample(random));
+                if (contains(products, size, product))
+                    continue;
+                products[size] = product;
+                quantities[size++] = 1 + random.nextInt(3);
+            }
+        }
+    }
+
+    /**
+     * Bijection of 1-based positions {@code 1..size} without a lookup table.
+     */
+    private static class Permutation {
+        private final int size;
+        private final long step;
+
+        Permutation(int size) {
+            this.size = size;
+            long step = Math.max(1, (long) (size * 0.618));
+            while (gcd(step, size) != 1)
+                step++;
+            this.step = step;
+        }
+
+        int apply(int position) {
+            return (int) ((position - 1) * step % size) + 1;
+        }
+
+        private static long gcd(long a, long b) {
+            return b == 0 ? a : gcd(b, a % b);
+        }
+    }
+
+    /**
+     * Size and shape of the generated dataset.
+     */
+    @Getter
+    @Setter
+    public static class Settings {
+        private long seed = 42;
+        private int productTypes = 50;
+        private int products = 100_000;
+        private int users = 20_000;
+        private int orders = 200_000;
+        private double guestOrderShare = 0.2;
+        private int maxTypesPerProduct = 3;
+        private int maxLinesPerOrder = 5;
+        private double zipfExponent = 1.07;
+    }
+
+    /**
+     * Generates a dataset and optionally loads it into a database. <br>
+     * Arguments: {@code --output=DIR} and any of the {@link Settings} properties
+     * (e.g. {@code --products=1000000 --seed=7}). With {@code --jdbc-url=URL}
+     * (and {@code --jdbc-user}, {@code --jdbc-password}) the dataset is loaded
+     * with {@link BulkLoader} right after generation.
+     *
+     * @param args command line arguments
+     * @throws Exception if the dataset cannot be generated or loaded
+     */
+    public static void main(String[] args) throws Exception {
+        var settings = new Settings();
+        Path output = Path.of("dataset");
+        String url = null;
+        String user = null;
+        String password = null;
+
+        for (String arg : args) {
+            String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            String value = pair.length > 1 ? pair[1] : "";
+            switch (pair[0]) {
+                case "output" -> output = Path.of(value);
+                case "seed" -> settings.setSeed(Long.parseLong(value));
+                case "productTypes" -> settings.setProductTypes(Integer.parseInt(value));
+                case "products" -> settings.setProducts(Integer.parseInt(value));
+                case "users" -> settings.setUsers(Integer.parseInt(value));
+                case "orders" -> settings.setOrders(Integer.parseInt(value));
+                case "guestOrderShare" -> settings.setGuestOrderShare(Double.parseDouble(value));
+                case "maxTypesPerProduct" -> settings.setMaxTypesPerProduct(Integer.parseInt(value));
+                case "maxLinesPerOrder" -> settings.setMaxLinesPerOrder(Integer.parseInt(value));
+                case "zipfExponent" -> settings.setZipfExponent(Double.parseDouble(value));
+                case "jdbc-url" -> url = value;
+                case "jdbc-user" -> user = value;
+                case "jdbc-password" -> password = value;
+                default -> throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        new DatasetGenerator(settings).generate(output);
+
+        if (url != null) {
+            var dataSource = new DriverManagerDataSource(url, user, password);
+            new BulkLoader(dataSource, new DefaultResourceLoader(), 1000, 1)
+                    .load(output.toUri().toString(), output);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.panov.store.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link DataSource} decorator that lets at most {@code permits} connections of the <br>
+ * target pool be used at once. <br><br>
+ * Requests running on virtual threads are not limited by the number of container threads, <br>
+ * so thousands of them can ask the pool for a connection at the same time. Here they wait <br>
+ * for a permit in a fair queue, parked without holding a carrier thread, and the pool only <br>
+ * sees as many borrowers as it has connections. A request that has not got a permit <br>
+ * within {@code timeoutMillis} fails with {@link SQLTransientConnectionException}, <br>
+ * just like a request that has not got a connection from the pool in time. <br><br>
+ * The permit is returned when the connection is closed. Time spent waiting for a permit, <br>
+ * rejections and the number of waiting requests are published to the {@link MeterRegistry}.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class BoundedDataSource extends DelegatingDataSource implements AutoCloseable {
+    private final String name;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    /**
+     * @param target pooled data source
+     * @param name name of the pool, used as a tag of the metrics
+     * @param permits maximal number of connections used at once
+     * @param timeoutMillis maximal time to wait for a permit
+     * @param registry registry for the metrics
+     */
+    public BoundedDataSource(DataSource target, String name, int permits, long timeoutMillis,
+                             MeterRegistry registry) {
+        super(target);
+        this.name = name;
+        this.permits = new Semaphore(permits, true);
+        this.timeoutMillis = timeoutMillis;
+
+        this.waitTimer = Timer.builder("db.pool.permits.wait")
+                .tag("pool", name)
+                .description("Time a request waited for a connection permit")
+                .register(registry);
+        this.rejectedCounter = Counter.builder("db.pool.permits.rejected")
+                .tag("pool", name)
+                .description("Requests that did not get a connection permit in time")
+                .register(registry);
+        Gauge.builder("db.pool.permits.waiting", this.permits, Semaphore::getQueueLength)
+                .tag("pool", name)
+                .description("Requests waiting for a connection permit")
+                .register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of permits that are not taken right now
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable closeable)
+            closeable.close();
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException(name + " - interrupted while waiting for a connection", e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        if (!acquired) {
+            rejectedCounter.increment();
+            throw new SQLTransientConnectionException(
+                    name + " - Connection is not available, request timed out after " + timeoutMillis + "ms.");
+        }
+    }
+
+    /**
+     * @param connection connection borrowed from the target pool
+     * @return proxy of the connection that returns the permit when it is closed, only once
+     */
+    private Connection releasingOnClose(Connection connection) {
+        var released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                BoundedDataSource.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "close" -> {
+                        if (released.compareAndSet(false, true)) {
+                            try {
+                                connection.close();
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                        yield null;
+                    }
+                    default -> {
+                        try {
+                            yield method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                }
+        );
+    }
+}
@@ -0,0 +1,74 @@
+package com.panov.store.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Thread-bound routing decisions for {@link ReadWriteRoutingDataSource}. <br><br>
+ * Repository methods that only read data open a {@link #readOnly()} scope, and connections
+ * acquired inside it may be served by a replica. Once the current request has written anything
+ * ({@link #markWritten()}), all its further reads stay on the primary, so the request always sees
+ * its own writes regardless of replication lag. The state is cleared by {@link #reset()}
+ * at the end of each request. <br><br>
+ * Inside a Spring-managed transaction the transaction itself decides: only connections of
+ * read-only transactions may be served by a replica.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ * @see ReadWriteRoutingDataSource
+ */
+public final class DataSourceRouting {
+    private static final ThreadLocal<Integer> readOnlyDepth = ThreadLocal.withInitial(() -> 0);
+    private static final ThreadLocal<Boolean> written = ThreadLocal.withInitial(() -> false);
+
+    private static final Scope NO_OP_SCOPE = () -> {};
+    private static final Scope READ_ONLY_SCOPE = () -> readOnlyDepth.set(readOnlyDepth.get() - 1);
+
+    private DataSourceRouting() {}
+
+    /**
+     * Opens a scope in which acquired connections may be routed to a replica.
+     *
+     * @return scope that must be closed after the read operation
+     */
+    public static Scope readOnly() {
+        if (written.get())
+            return NO_OP_SCOPE;
+        readOnlyDepth.set(readOnlyDepth.get() + 1);
+        return READ_ONLY_SCOPE;
+    }
+
+    /**
+     * Pins all further connections of the current request to the primary.
+     */
+    public static void markWritten() {
+        written.set(true);
+    }
+
+    /**
+     * @return {@code true} if a connection acquired right now may be served by a replica
+     */
+    public static boolean isReadOnly() {
+        if (written.get())
+            return false;
+        if (TransactionSynchronizationManager.isActualTransactionActive())
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return readOnlyDepth.get() > 0;
+    }
+
+    /**
+     * Clears routing state of the current thread.
+     */
+    public static void reset() {
+        readOnlyDepth.remove();
+        written.remove();
+    }
+
+    /**
+     * Routing scope that does not throw checked exceptions on close.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,32 @@
+package com.panov.store.datasource;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Makes routing state of {@link DataSourceRouting} request-scoped: servlet container threads
+ * are reused, so a request must not inherit the "written" flag of a previous one.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class DataSourceRoutingInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(@NotNull HttpServletRequest request,
+                             @NotNull HttpServletResponse response,
+                             @NotNull Object handler) {
+        DataSourceRouting.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@NotNull HttpServletRequest request,
+                                @NotNull HttpServletResponse response,
+                                @NotNull Object handler,
+                                Exception ex) {
+        DataSourceRouting.reset();
+    }
+}
@@ -0,0 +1,113 @@
+package com.panov.store.datasource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DataSource} that sends connections acquired in a read-only scope (see {@link DataSourceRouting})
+ * to one of the replicas and all the other connections to the primary. <br><br>
+ * Replicas are chosen round-robin among the healthy ones. Health of every replica is checked
+ * periodically in the background, and a replica that fails to give a connection is marked unhealthy
+ * right away. If there is no healthy replica, reads go to the primary.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ * @see DataSourceRouting
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements DisposableBean {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    /**
+     * @param primary data source of the primary database
+     * @param replicas data sources of the replica databases
+     * @param healthCheckIntervalMillis interval between background health checks of replicas
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, long healthCheckIntervalMillis) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(
+                this::checkReplicas,
+                healthCheckIntervalMillis,
+                healthCheckIntervalMillis,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!DataSourceRouting.isReadOnly())
+            return primary.getConnection();
+
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+            if (!replica.healthy)
+                continue;
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.healthy = false;
+            }
+        }
+
+        return primary.getConnection();
+    }
+
+    /**
+     * Connection credentials are configured on the underlying pools.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Validates a connection of every replica and updates its health flag.
+     */
+    void checkReplicas() {
+        for (var replica : replicas) {
+            try (var connection = replica.dataSource.getConnection()) {
+                replica.healthy = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                replica.healthy = false;
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        healthChecker.shutdownNow();
+        for (var replica : replicas)
+            if (replica.dataSource instanceof AutoCloseable closeable)
+                closeable.close();
+        if (primary instanceof AutoCloseable closeable)
+            closeable.close();
+    }
+
+    private static class Replica {
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.panov.store.dto;
 
+import com.panov.store.metrics.ServerTiming;
 import com.panov.store.model.DeliveryType;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -41,10 +42,12 @@ public class DeliveryTypeDTO {
         if (dt == null)
             return null;
 
-        return new DeliveryTypeDTO(
-                dt.getDeliveryTypeId(),
-                dt.getName()
-        );
+        try (var span = ServerTiming.span(ServerTiming.MAPPING)) {
+            return new DeliveryTypeDTO(
+                    dt.getDeliveryTypeId(),
+                    dt.getName()
+            );
+        }
     }
 
     /**
@@ -2,6 +2,7 @@ package com.panov.store.dto;
 
 import com.panov.store.model.*;
 import com.panov.store.common.Status;
+import com.panov.store.metrics.ServerTiming;
 import jakarta.persistence.*;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
@@ -60,20 +61,22 @@ public class OrderDTO {
         if (o == null)
             return null;
 
-        return new OrderDTO(
-                o.getOrderId(),
-                UserDTO.of(o.getUser()),
-                UnregisteredCustomerDTO.of(o.getUnregisteredCustomer()),
-                o.getOrderProducts()
-                        .stream()
-                        .map(OrderProductsDTO::of)
-                        .toList(),
-                DeliveryTypeDTO.of(o.getDeliveryType()),
-                o.getTotal(),
-                o.getPostTime(),
-                o.getCompleteTime(),
-                o.getStatus()
-        );
+        try (var span = ServerTiming.span(ServerTiming.MAPPING)) {
+            return new OrderDTO(
+                    o.getOrderId(),
+                    UserDTO.of(o.getUser()),
+                    UnregisteredCustomerDTO.of(o.getUnregisteredCustomer()),
+                    o.getOrderProducts()
+                            .stream()
+                            .map(OrderProductsDTO::of)
+                            .toList(),
+                    DeliveryTypeDTO.of(o.getDeliveryType()),
+                    o.getTotal(),
+                    o.getPostTime(),
+                    o.getCompleteTime(),
+                    o.getStatus()
+            );
+        }
     }
 
     /**
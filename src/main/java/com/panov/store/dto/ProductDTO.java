@@ -1,5 +1,6 @@
 package com.panov.store.dto;
 
+import com.panov.store.metrics.ServerTiming;
 import com.panov.store.model.Product;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -73,19 +74,21 @@ public class ProductDTO {
         if (p == null)
             return null;
 
-        return new ProductDTO(
-                p.getProductId(),
-                p.getName(),
-                p.getDescription(),
-                p.getImage(),
-                p.getPrice(),
-                p.getStock(),
-                p.getProductTypes()
-                        .stream()
-                        .filter(Objects::nonNull)
-                        .map(ProductTypeDTO::of)
-                        .collect(Collectors.toSet())
-        );
+        try (var span = ServerTiming.span(ServerTiming.MAPPING)) {
+            return new ProductDTO(
+                    p.getProductId(),
+                    p.getName(),
+                    p.getDescription(),
+                    p.getImage(),
+                    p.getPrice(),
+                    p.getStock(),
+                    p.getProductTypes()
+                            .stream()
+                            .filter(Objects::nonNull)
+                            .map(ProductTypeDTO::of)
+                            .collect(Collectors.toSet())
+            );
+        }
     }
 
     /**
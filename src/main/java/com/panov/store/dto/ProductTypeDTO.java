@@ -1,5 +1,6 @@
 package com.panov.store.dto;
 
+import com.panov.store.metrics.ServerTiming;
 import com.panov.store.model.ProductType;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -41,10 +42,12 @@ public class ProductTypeDTO {
         if (pt == null)
             return null;
 
-        return new ProductTypeDTO(
-                pt.getProductTypeId(),
-                pt.getName()
-        );
+        try (var span = ServerTiming.span(ServerTiming.MAPPING)) {
+            return new ProductTypeDTO(
+                    pt.getProductTypeId(),
+                    pt.getName()
+            );
+        }
     }
 
     /**
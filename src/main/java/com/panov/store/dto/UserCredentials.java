@@ -0,0 +1,22 @@
+package com.panov.store.dto;
+
+import com.panov.store.common.Access;
+import com.panov.store.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Slim read-only projection of {@link User} that contains only the data
+ * needed to authenticate the user and issue a token.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Getter
+@AllArgsConstructor
+public class UserCredentials {
+    private Integer userId;
+    private String phoneNumber;
+    private String hashPassword;
+    private Access access;
+}
@@ -1,5 +1,6 @@
 package com.panov.store.dto;
 
+import com.panov.store.metrics.ServerTiming;
 import com.panov.store.model.Address;
 import com.panov.store.model.User;
 import jakarta.validation.Valid;
@@ -45,12 +46,14 @@ public class UserDTO {
     public static UserDTO of(User u) {
         if (u == null)
             return null;
-        return new UserDTO(
-            u.getUserId(),
-            u.getImage(),
-            u.getPersonalInfo(),
-            u.getAddress()
-        );
+        try (var span = ServerTiming.span(ServerTiming.MAPPING)) {
+            return new UserDTO(
+                u.getUserId(),
+                u.getImage(),
+                u.getPersonalInfo(),
+                u.getAddress()
+            );
+        }
     }
 
     /**
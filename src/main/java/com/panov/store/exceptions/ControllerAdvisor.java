@@ -95,6 +95,38 @@ public class ControllerAdvisor extends ResponseEntityExceptionHandler {
                 new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
     }
 
+    /**
+     * This method catches {@link ImageNotAcceptedException} and sends JSON with exception <br>
+     * message to the client accompanied by the response code of the exception <br>
+     * (e.g. {@code HttpStatus.PAYLOAD_TOO_LARGE} or {@code HttpStatus.UNSUPPORTED_MEDIA_TYPE}).
+     *
+     * @param e the caught exception
+     * @param request the request that caused exception throwing
+     * @return a wrapped exception message
+     */
+    @ExceptionHandler(ImageNotAcceptedException.class)
+    public ResponseEntity<Object> imageNotAcceptedAdvice(ImageNotAcceptedException e, WebRequest request) {
+        return handleExceptionInternal(e, new ExceptionBody(e.getMessage()),
+                new HttpHeaders(), e.getStatus(), request);
+    }
+
+    /**
+     * This method catches {@link ServiceOverloadedException} and sends JSON with exception <br>
+     * message to the client accompanied by {@code HttpStatus.SERVICE_UNAVAILABLE} response code <br>
+     * and {@code Retry-After} header, so the client can back off instead of waiting.
+     *
+     * @param e the caught exception
+     * @param request the request that caused exception throwing
+     * @return a wrapped exception message
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<Object> serviceOverloadedAdvice(ServiceOverloadedException e, WebRequest request) {
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return handleExceptionInternal(e, new ExceptionBody(e.getMessage()),
+                headers, HttpStatus.SERVICE_UNAVAILABLE, request);
+    }
+
     /**
      * This method extracts validation violations from specified {@link BindingResult} <br>
      * and collects them in a {@link Map} object.
@@ -0,0 +1,25 @@
+package com.panov.store.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * This class is used when an uploaded image is rejected (e.g. it is too large
+ * or it is not in one of the supported formats).
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Getter
+public class ImageNotAcceptedException extends ResourceException {
+    private final HttpStatus status;
+
+    /**
+     * @param message the reason of the rejection
+     * @param status response code that describes the reason, e.g. {@code HttpStatus.PAYLOAD_TOO_LARGE}
+     */
+    public ImageNotAcceptedException(String message, HttpStatus status) {
+        super(message);
+        this.status = status;
+    }
+}
@@ -0,0 +1,15 @@
+package com.panov.store.exceptions;
+
+/**
+ * This class is used when a request cannot be served right now because
+ * the resources dedicated to it are saturated (e.g. password hashing executor
+ * has no free workers and its queue is full).
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class ServiceOverloadedException extends ResourceException {
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,134 @@
+package com.panov.store.images;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * {@link ImageStore} that keeps every image in its own file, the default one. <br><br>
+ * Images named by their content (see {@link ImageStorage}) are kept in a two-level directory
+ * tree by the first digits of the digest ({@code 3f/9a/3f9a...e1.png}), so no directory holds
+ * too many files. Images stored before under random names stay in the root of the folder
+ * until they are moved by {@link ImageMigration}. <br><br>
+ * An image is written to a temporary file in the root of the folder and moved to its final
+ * path atomically, so a reader never sees a partially written file.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class DirectoryImageStore implements ImageStore {
+    private static final Pattern CONTENT_NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z]+");
+    static final String TEMPORARY_PREFIX = "upload-";
+    static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    /**
+     * @param directory root of the image folder, created if it does not exist
+     */
+    public DirectoryImageStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return Files.exists(path(name));
+    }
+
+    @Override
+    public void put(String name, InputStream image) throws IOException {
+        Path temporary = createTemporaryFile(directory);
+        try {
+            Files.copy(image, temporary, StandardCopyOption.REPLACE_EXISTING);
+            put(name, temporary);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Moves the file to the path of the image, the file must be in the same file system.
+     */
+    @Override
+    public void put(String name, Path file) throws IOException {
+        Path target = path(name);
+        try {
+            Files.createDirectories(target.getParent());
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public byte[] read(String name) throws IOException {
+        return Files.readAllBytes(path(name));
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        Files.deleteIfExists(path(name));
+    }
+
+    /**
+     * Walks the whole tree, temporary files of uploads are skipped.
+     */
+    @Override
+    public Stream<String> names() throws IOException {
+        return Files.walk(directory)
+                .filter(Files::isRegularFile)
+                .map(file -> file.getFileName().toString())
+                .filter(name -> !name.startsWith(".") && !isTemporaryName(name));
+    }
+
+    /**
+     * @return root of the image folder
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    Path path(String name) {
+        return path(directory, name);
+    }
+
+    /**
+     * @param name name of an image
+     * @return {@code true} if the name is derived from the content of the image
+     */
+    public static boolean isContentName(String name) {
+        return CONTENT_NAME.matcher(name).matches();
+    }
+
+    /**
+     * @param directory root of the image folder
+     * @param name name of an image
+     * @return path of the image file: in the two-level tree for names derived from the content,
+     *         in the root of the folder for names of images stored before
+     */
+    public static Path path(Path directory, String name) {
+        if (name.indexOf('/') >= 0 || name.indexOf('\\') >= 0 || name.startsWith("."))
+            throw new IllegalArgumentException("Invalid image name " + name);
+        if (!isContentName(name))
+            return directory.resolve(name);
+        return directory.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    /**
+     * @param name name of a file in the root of the image folder
+     * @return {@code true} if it is a temporary file of an image that is being written
+     */
+    static boolean isTemporaryName(String name) {
+        return name.startsWith(TEMPORARY_PREFIX) && name.endsWith(TEMPORARY_SUFFIX);
+    }
+
+    static Path createTemporaryFile(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, TEMPORARY_PREFIX, TEMPORARY_SUFFIX);
+    }
+}
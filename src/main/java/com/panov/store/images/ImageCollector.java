@@ -0,0 +1,186 @@
+package com.panov.store.images;
+
+import com.panov.store.common.BloomFilter;
+import com.panov.store.dao.ImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background sweeper that deletes images nobody refers to, e.g. images left by a crash
+ * between an upload and the update of a product, or by a failed update before the references
+ * were counted, and temporary files of interrupted uploads. <br><br>
+ * A sweep streams the referenced names from products and users into a {@link BloomFilter}
+ * (with a database cursor, so they are never all in memory), then walks the names in the
+ * {@link ImageStore}. A name that is not in the filter is certainly unreferenced and is put
+ * in quarantine. A name that is still unreferenced in a sweep after {@code gracePeriod} is
+ * deleted by {@link ImageStorage#collect(String, Instant)}, which checks the actual references once more
+ * and keeps an image acquired within the grace period, e.g. by an upload of the same image that
+ * found it stored. So an image is never deleted while an upload is being attached to a product. A false positive
+ * of the filter only keeps an orphan until one of the next sweeps, which use other hash seeds. <br><br>
+ * The walk is throttled to {@code namesPerSecond}, so it does not compete with reads of images.
+ * The quarantine is kept in memory, a restart only postpones the deletion.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class ImageCollector implements DisposableBean {
+    private static final Logger LOGGER = LogManager.getLogger(ImageCollector.class);
+    private static final int FETCH_SIZE = 1000;
+
+    private final ImageStorage storage;
+    private final ImageStore store;
+    private final ImageRepository references;
+    private final Duration gracePeriod;
+    private final int namesPerSecond;
+    private final Clock clock;
+    private final Counter deletedImages;
+    private final Counter deletedUploads;
+    private final ScheduledExecutorService sweeper;
+    private volatile Map<String, Instant> quarantine = Map.of();
+
+    /**
+     * @param storage storage that deletes unreferenced images
+     * @param store store of the images
+     * @param references repository of the references to images
+     * @param gracePeriod time an image stays in quarantine before it is deleted
+     * @param intervalMillis interval between sweeps, 0 disables background sweeps
+     * @param namesPerSecond maximal number of image names checked per second
+     * @param clock clock of the quarantine
+     * @param registry registry for the metrics of the sweeps
+     */
+    public ImageCollector(ImageStorage storage,
+                          ImageStore store,
+                          ImageRepository references,
+                          Duration gracePeriod,
+                          long intervalMillis,
+                          int namesPerSecond,
+                          Clock clock,
+                          MeterRegistry registry) {
+        this.storage = storage;
+        this.store = store;
+        this.references = references;
+        this.gracePeriod = gracePeriod;
+        this.namesPerSecond = namesPerSecond;
+        this.clock = clock;
+
+        this.deletedImages = Counter.builder("images.gc.deleted")
+                .tag("kind", "image")
+                .description("Unreferenced images deleted by the collector")
+                .register(registry);
+        this.deletedUploads = Counter.builder("images.gc.deleted")
+                .tag("kind", "upload")
+                .description("Temporary files of interrupted uploads deleted by the collector")
+                .register(registry);
+        Gauge.builder("images.gc.quarantined", this, collector -> collector.quarantine.size())
+                .description("Unreferenced images waiting for the end of the grace period")
+                .register(registry);
+
+        if (intervalMillis > 0) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "image-collector");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(() -> {
+                try {
+                    sweep();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    LOGGER.error("Could not collect unreferenced images", e);
+                }
+            }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Quarantines the images that are not referenced now, and deletes the quarantined ones
+     * that are still not referenced after the grace period.
+     *
+     * @return number of deleted images
+     * @throws IOException if the images could not be listed or deleted
+     * @throws InterruptedException if the sweep was interrupted while throttled
+     */
+    public synchronized int sweep() throws IOException, InterruptedException {
+        Instant now = clock.instant();
+        Instant deadline = now.minus(gracePeriod);
+        int uploads = storage.deleteAbandonedUploads(deadline);
+
+        var referenced = new BloomFilter(references.countReferences(), ThreadLocalRandom.current().nextLong());
+        references.forEachReference(FETCH_SIZE, referenced::put);
+
+        Map<String, Instant> previous = quarantine;
+        Map<String, Instant> next = new HashMap<>();
+        var throttle = new Throttle(namesPerSecond);
+        int deleted = 0;
+        try (var names = store.names()) {
+            for (String name : (Iterable<String>) names::iterator) {
+                throttle.acquire();
+                if (referenced.mightContain(name))
+                    continue;
+                Instant since = previous.getOrDefault(name, now);
+                if (since.isAfter(deadline))
+                    next.put(name, since);
+                else if (storage.collect(name, deadline))
+                    deleted++;
+            }
+        }
+        quarantine = next;
+
+        deletedImages.increment(deleted);
+        deletedUploads.increment(uploads);
+        if (deleted > 0 || uploads > 0 || !next.isEmpty())
+            LOGGER.info("Deleted {} unreferenced images and {} abandoned uploads, {} images are in quarantine",
+                    deleted, uploads, next.size());
+        return deleted;
+    }
+
+    @Override
+    public void destroy() {
+        if (sweeper != null)
+            sweeper.shutdownNow();
+    }
+
+    /**
+     * Limits the rate of a loop by sleeping at the end of every second that used up its permits.
+     */
+    private static class Throttle {
+        private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final int permitsPerSecond;
+        private long windowStart = System.nanoTime();
+        private int used;
+
+        Throttle(int permitsPerSecond) {
+            this.permitsPerSecond = permitsPerSecond;
+        }
+
+        void acquire() throws InterruptedException {
+            if (permitsPerSecond <= 0 || ++used <= permitsPerSecond)
+                return;
+            long remaining = SECOND_NANOS - (System.nanoTime() - windowStart);
+            if (remaining > 0)
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            windowStart = System.nanoTime();
+            used = 1;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.panov.store.images;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+import static com.panov.store.common.Constants.STATIC_IMAGES_FOLDER;
+
+/**
+ * Moves images stored under random names in the root of the image folder to the
+ * content-addressed tree of {@link DirectoryImageStore}. <br><br>
+ * Every image is copied to the path of its content name (or skipped, if an equal image
+ * is already there), then products and users that refer to the old name are changed
+ * to refer to the new one, and the reference count of the new name is computed from
+ * the actual references, in one transaction per image. The old file is deleted after
+ * the transaction is committed, so the migration can be stopped and started again,
+ * also while the application is running.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class ImageMigration {
+    private static final Logger LOGGER = LogManager.getLogger(ImageMigration.class);
+
+    private final DataSource dataSource;
+    private final Path directory;
+
+    /**
+     * @param dataSource data source of the database with the references
+     * @param directory root of the image folder
+     */
+    public ImageMigration(DataSource dataSource, Path directory) {
+        this.dataSource = dataSource;
+        this.directory = directory;
+    }
+
+    /**
+     * @param migrated number of moved images
+     * @param duplicates number of them that were equal to an image stored before
+     * @param references number of changed references of products and users
+     */
+    public record Result(int migrated, int duplicates, int references) {}
+
+    /**
+     * Migrates all the images in the root of the image folder.
+     *
+     * @return numbers of migrated images and references
+     * @throws IOException if the images cannot be read or written
+     * @throws SQLException if the references cannot be changed
+     */
+    public Result migrate() throws IOException, SQLException {
+        List<Path> images = new ArrayList<>();
+        try (var files = Files.list(directory)) {
+            files.filter(Files::isRegularFile)
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return !DirectoryImageStore.isContentName(name)
+                                && !name.startsWith(".")
+                                && !DirectoryImageStore.isTemporaryName(name);
+                    })
+                    .forEach(images::add);
+        }
+
+        int duplicates = 0;
+        int references = 0;
+        try (var connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                for (Path image : images) {
+                    String oldName = image.getFileName().toString();
+                    String newName = contentName(image);
+                    Path target = DirectoryImageStore.path(directory, newName);
+
+                    if (Files.exists(target)) {
+                        duplicates++;
+                    } else {
+                        Files.createDirectories(target.getParent());
+                        Path temporary = DirectoryImageStore.createTemporaryFile(directory);
+                        try {
+                            Files.copy(image, temporary, StandardCopyOption.REPLACE_EXISTING);
+                            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+                        } finally {
+                            Files.deleteIfExists(temporary);
+                        }
+                    }
+
+                    try {
+                        references += rename(connection, oldName, newName);
+                        connection.commit();
+                    } catch (SQLException | RuntimeException e) {
+                        connection.rollback();
+                        throw e;
+                    }
+                    Files.delete(image);
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+
+        LOGGER.info("Migrated {} images ({} duplicates), changed {} references",
+                images.size(), duplicates, references);
+        return new Result(images.size(), duplicates, references);
+    }
+
+    /**
+     * @return number of changed references
+     */
+    private int rename(Connection connection, String oldName, String newName) throws SQLException {
+        int changed = 0;
+        // products get a new update time, so cached catalog pages and their versions notice the new name
+        for (String update : new String[] {
+                "update product set image = ?, updatedat = current_timestamp where image = ?",
+                "update \"User\" set image = ? where image = ?" }) {
+            try (var st = connection.prepareStatement(update)) {
+                st.setString(1, newName);
+                st.setString(2, oldName);
+                changed += st.executeUpdate();
+            }
+        }
+
+        long count;
+        try (var st = connection.prepareStatement(
+                "select (select count(*) from product where image = ?) + (select count(*) from \"User\" where image = ?)")) {
+            st.setString(1, newName);
+            st.setString(2, newName);
+            try (var rs = st.executeQuery()) {
+                rs.next();
+                count = rs.getLong(1);
+            }
+        }
+
+        try (var st = connection.prepareStatement("delete from image where name in (?, ?)")) {
+            st.setString(1, oldName);
+            st.setString(2, newName);
+            st.executeUpdate();
+        }
+        if (count > 0) {
+            try (var st = connection.prepareStatement("insert into image (name, referencecount) values (?, ?)")) {
+                st.setString(1, newName);
+                st.setInt(2, (int) count);
+                st.executeUpdate();
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the SHA-256 digest of the image and the extension of its format,
+     *         or of the old name if the format is not recognized
+     */
+    private static String contentName(Path image) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] header = new byte[ImageType.HEADER_LENGTH];
+        int length;
+        try (InputStream in = new DigestInputStream(Files.newInputStream(image), digest)) {
+            length = in.readNBytes(header, 0, header.length);
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+
+        String oldName = image.getFileName().toString();
+        int dot = oldName.lastIndexOf('.');
+        String extension = ImageType.detect(header, length)
+                .map(ImageType::getExtension)
+                .orElse(dot < 0 ? "" : oldName.substring(dot).toLowerCase(Locale.ROOT));
+        if (!extension.matches("\\.[a-z]+"))
+            extension = ".bin";
+        return HexFormat.of().formatHex(digest.digest()) + extension;
+    }
+
+    /**
+     * Migrates the images of a database, e.g.
+     * {@code --images=images --jdbc-url=jdbc:postgresql://localhost:5432/store --jdbc-user=... --jdbc-password=...}
+     *
+     * @param args arguments in {@code --name=value} format
+     */
+    public static void main(String[] args) throws Exception {
+        Path images = Path.of(STATIC_IMAGES_FOLDER);
+        String url = null;
+        String user = null;
+        String password = null;
+
+        for (String arg : args) {
+            String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            String value = pair.length > 1 ? pair[1] : "";
+            switch (pair[0]) {
+                case "images" -> images = Path.of(value);
+                case "jdbc-url" -> url = value;
+                case "jdbc-user" -> user = value;
+                case "jdbc-password" -> password = value;
+                default -> throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+        if (url == null)
+            throw new IllegalArgumentException("--jdbc-url is required");
+
+        new ImageMigration(new DriverManagerDataSource(url, user, password), images).migrate();
+    }
+}
@@ -0,0 +1,284 @@
+package com.panov.store.images;
+
+import com.panov.store.dao.ImageRepository;
+import com.panov.store.exceptions.ImageNotAcceptedException;
+import com.panov.store.metrics.ServerTiming;
+import jakarta.persistence.PersistenceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+
+import static com.panov.store.common.Constants.STATIC_IMAGES_FOLDER;
+
+/**
+ * Stores images in the {@link ImageStore} under the names derived from their content. <br><br>
+ * The name of an image is the SHA-256 digest of its bytes and the extension of its format,
+ * e.g. {@code 3f9a...e1.png}, so equal images get equal names and are stored once. <br><br>
+ * References of products and users to the images are counted by {@link ImageRepository}:
+ * {@link #save(InputStream)} adds a reference and {@link #release(String)} removes it, and
+ * the image is deleted from the store only when the last reference is removed. <br><br>
+ * An uploaded image is read with a small buffer and kept in memory only while it is small,
+ * a larger one is copied to a temporary file in {@code STATIC_IMAGES_FOLDER}. The format is
+ * recognized by the leading bytes (see {@link ImageType}), and an image in another format
+ * is rejected before anything is written. An image larger than {@code images.upload.maxBytes}
+ * is rejected as soon as the limit is crossed. An image that is already stored is not written again.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Component
+public class ImageStorage {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int IN_MEMORY_LIMIT = 256 * 1024;
+
+    private final ImageRepository references;
+    private final ImageStore store;
+    private final Path temporaryDirectory;
+    private final long maxBytes;
+
+    @Autowired
+    public ImageStorage(ImageRepository references, ImageStore store,
+                        @Value("${images.upload.maxBytes:5242880}") long maxBytes) {
+        this(references, store, Path.of(STATIC_IMAGES_FOLDER), maxBytes);
+    }
+
+    /**
+     * @param references counter of references to the images
+     * @param store storage engine of the images
+     * @param temporaryDirectory directory for large images that are being uploaded
+     * @param maxBytes largest accepted image
+     */
+    public ImageStorage(ImageRepository references, ImageStore store, Path temporaryDirectory, long maxBytes) {
+        this.references = references;
+        this.store = store;
+        this.temporaryDirectory = temporaryDirectory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Saves the image read from provided stream, if it is not stored yet, and adds a reference to it.
+     * The caller must {@link #release(String)} the image when it is not referred anymore.
+     *
+     * @param image stream of the image bytes, it is read to the end but not closed
+     * @return name of the image
+     * @throws ImageNotAcceptedException if the image is empty, too large or not in a supported format
+     * @throws IOException if the image could not be read or written
+     */
+    public String save(InputStream image) throws IOException {
+        try (var span = ServerTiming.span(ServerTiming.IMAGES)) {
+            byte[] header = new byte[ImageType.HEADER_LENGTH];
+            int length = image.readNBytes(header, 0, header.length);
+            if (length == 0)
+                throw new ImageNotAcceptedException("The image is empty", HttpStatus.BAD_REQUEST);
+            if (length > maxBytes)
+                throw tooLarge();
+            ImageType type = ImageType.detect(header, length)
+                    .orElseThrow(() -> new ImageNotAcceptedException(
+                            "Only JPEG, PNG, WebP and SVG images are supported", HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+
+            try (var upload = new Upload()) {
+                upload.write(header, 0, length);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = image.read(buffer)) != -1) {
+                    if (upload.size + read > maxBytes)
+                        throw tooLarge();
+                    upload.write(buffer, 0, read);
+                }
+
+                String name = upload.digest() + type.getExtension();
+                acquire(name);
+                try {
+                    upload.publish(name);
+                } catch (IOException | RuntimeException e) {
+                    release(name);
+                    throw e;
+                }
+                return name;
+            }
+        }
+    }
+
+    /**
+     * Saves an image that is already in memory, see {@link #save(InputStream)}.
+     *
+     * @param image bytes of the image
+     * @return name of the image
+     * @throws ImageNotAcceptedException if the image is empty, too large or not in a supported format
+     * @throws IOException if the image could not be written
+     */
+    public String save(byte[] image) throws IOException {
+        return save(new ByteArrayInputStream(image));
+    }
+
+    /**
+     * Reads the image.
+     *
+     * @param name name of the image
+     * @return bytes of the image
+     * @throws IOException if there is no such image or it could not be read
+     */
+    public byte[] read(String name) throws IOException {
+        return store.read(name);
+    }
+
+    /**
+     * Removes a reference to the image and deletes it if nothing refers to it anymore.
+     * Inside a Spring-managed transaction the image is deleted only after the commit.
+     * Nothing happens if the name is {@code null}.
+     *
+     * @param name name of the image
+     */
+    public void release(String name) {
+        if (name == null || name.isBlank())
+            return;
+        references.release(name, this::delete);
+    }
+
+    /**
+     * Deletes the image if no product or user refers to it and it was not acquired
+     * since {@code acquiredBefore}, see {@link ImageRepository#collect}.
+     *
+     * @param name name of the image
+     * @param acquiredBefore only images last acquired before this instant are deleted
+     * @return {@code true} if the image was deleted
+     */
+    public boolean collect(String name, Instant acquiredBefore) {
+        return references.collect(name, acquiredBefore, this::delete);
+    }
+
+    /**
+     * Deletes temporary files of uploads that were interrupted, e.g. by a crash.
+     *
+     * @param before only files modified before this instant are deleted
+     * @return number of deleted files
+     * @throws IOException if the temporary directory could not be listed
+     */
+    public int deleteAbandonedUploads(Instant before) throws IOException {
+        if (!Files.isDirectory(temporaryDirectory))
+            return 0;
+        int deleted = 0;
+        try (var files = Files.list(temporaryDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!DirectoryImageStore.isTemporaryName(file.getFileName().toString()))
+                    continue;
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(before) && Files.deleteIfExists(file))
+                        deleted++;
+                } catch (NoSuchFileException e) {
+                    // the upload has just been completed
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Adds a reference to the image. Two first uploads of the same image may try to insert
+     * its row at once, then the one that failed only has to increment the count. The reference
+     * is added in its own transaction, so the failure does not abort the caller's one.
+     */
+    private void acquire(String name) {
+        try {
+            references.acquire(name);
+        } catch (PersistenceException e) {
+            references.acquire(name);
+        }
+    }
+
+    private void delete(String name) {
+        try {
+            store.delete(name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ImageNotAcceptedException tooLarge() {
+        return new ImageNotAcceptedException(
+                "The image is larger than " + maxBytes + " bytes", HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    /**
+     * Bytes of an uploaded image and their digest. The bytes are kept in memory up to
+     * {@code IN_MEMORY_LIMIT} and in a temporary file after that. The temporary file
+     * is deleted on close, unless it became the image.
+     */
+    private class Upload implements AutoCloseable {
+        private final MessageDigest digest = sha256();
+        private final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private Path temporary;
+        private OutputStream file;
+        private long size;
+
+        void write(byte[] bytes, int offset, int length) throws IOException {
+            digest.update(bytes, offset, length);
+            size += length;
+            if (file == null && size > IN_MEMORY_LIMIT) {
+                temporary = createTemporaryFile();
+                file = Files.newOutputStream(temporary);
+                memory.writeTo(file);
+                memory.reset();
+            }
+            if (file == null)
+                memory.write(bytes, offset, length);
+            else
+                file.write(bytes, offset, length);
+        }
+
+        String digest() throws IOException {
+            if (file != null)
+                file.close();
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        /**
+         * Puts the image to the store, unless the same image is already there.
+         */
+        void publish(String name) throws IOException {
+            if (store.contains(name))
+                return;
+            if (temporary == null) {
+                store.put(name, memory.toByteArray());
+            } else {
+                store.put(name, temporary);
+                temporary = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null)
+                file.close();
+            if (temporary != null)
+                Files.deleteIfExists(temporary);
+        }
+
+        private Path createTemporaryFile() throws IOException {
+            return DirectoryImageStore.createTemporaryFile(temporaryDirectory);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.panov.store.images;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine of image files, selected by the {@code images.store} property. <br><br>
+ * The store only keeps bytes under names: validation of uploads, naming by content and
+ * reference counting are done by {@link ImageStorage} on top of it. Names of images
+ * never change their content, so a store does not have to support overwriting.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ * @see DirectoryImageStore
+ * @see PackFileImageStore
+ */
+public interface ImageStore {
+
+    /**
+     * @param name name of an image
+     * @return {@code true} if the image is stored
+     */
+    boolean contains(String name);
+
+    /**
+     * Stores the image read from provided stream. A reader never sees a partially stored image.
+     *
+     * @param name name of the image
+     * @param image stream of the image bytes, it is read to the end but not closed
+     * @throws IOException if the image could not be read or written
+     */
+    void put(String name, InputStream image) throws IOException;
+
+    /**
+     * Stores the image that is already in memory.
+     *
+     * @param name name of the image
+     * @param image bytes of the image
+     * @throws IOException if the image could not be written
+     */
+    default void put(String name, byte[] image) throws IOException {
+        put(name, new ByteArrayInputStream(image));
+    }
+
+    /**
+     * Stores the image from a temporary file and takes the file over: it may be moved
+     * to the store, and it does not exist after the call in any case.
+     *
+     * @param name name of the image
+     * @param file temporary file with the image bytes
+     * @throws IOException if the image could not be read or written
+     */
+    default void put(String name, Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            put(name, in);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * @param name name of the image
+     * @return bytes of the image
+     * @throws NoSuchFileException if there is no such image
+     * @throws IOException if the image could not be read
+     */
+    byte[] read(String name) throws IOException;
+
+    /**
+     * Deletes the image. Nothing happens if there is no such image.
+     *
+     * @param name name of the image
+     * @throws IOException if the image could not be deleted
+     */
+    void delete(String name) throws IOException;
+
+    /**
+     * Lists the names of the stored images. The listing is weakly consistent:
+     * images stored or deleted while it is read may be missed.
+     *
+     * @return stream of the names, it must be closed
+     * @throws IOException if the images could not be listed
+     */
+    Stream<String> names() throws IOException;
+}
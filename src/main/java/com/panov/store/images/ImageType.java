@@ -0,0 +1,87 @@
+package com.panov.store.images;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Image formats accepted by the application, recognized by the leading bytes of the image
+ * instead of the name or the declared content type.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public enum ImageType {
+    JPEG(".jpg"),
+    PNG(".png"),
+    WEBP(".webp"),
+    SVG(".svg");
+
+    /**
+     * Number of leading bytes that is enough to recognize any of the formats.
+     */
+    public static final int HEADER_LENGTH = 512;
+
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    private final String extension;
+
+    ImageType(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return file name extension of the format, with the leading dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Recognizes the format of an image by its leading bytes.
+     *
+     * @param header leading bytes of the image
+     * @param length number of valid bytes in {@code header}
+     * @return the format or an empty {@link Optional} if it is not one of the accepted formats
+     */
+    public static Optional<ImageType> detect(byte[] header, int length) {
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF)
+            return Optional.of(JPEG);
+        if (startsWith(header, length, 0, PNG_SIGNATURE))
+            return Optional.of(PNG);
+        if (startsWith(header, length, 0, ascii("RIFF")) && startsWith(header, length, 8, ascii("WEBP")))
+            return Optional.of(WEBP);
+        if (isSvg(header, length))
+            return Optional.of(SVG);
+        return Optional.empty();
+    }
+
+    /**
+     * SVG is text: it starts, after an optional byte order mark and whitespace, with the XML
+     * declaration, a comment, a doctype or the root element, and has the {@code <svg} element
+     * in its header.
+     */
+    private static boolean isSvg(byte[] header, int length) {
+        int start = startsWith(header, length, 0, new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF }) ? 3 : 0;
+        while (start < length && Character.isWhitespace(header[start]))
+            start++;
+        if (start >= length || header[start] != '<')
+            return false;
+
+        String text = new String(header, start, length - start, StandardCharsets.UTF_8);
+        return text.startsWith("<svg") || (text.startsWith("<?xml") || text.startsWith("<!")) && text.contains("<svg");
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, byte[] prefix) {
+        if (length < offset + prefix.length)
+            return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (header[offset + i] != prefix[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
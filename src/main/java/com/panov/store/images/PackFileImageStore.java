@@ -0,0 +1,398 @@
+package com.panov.store.images;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * {@link ImageStore} that appends images to large segment files instead of keeping
+ * a file per image, so millions of images cost a few files and no directory lookups. <br><br>
+ * A segment is a file of {@code segmentBytes} bytes mapped into memory. Images are appended
+ * to the last (active) segment as records of a header (magic number, name length, image length),
+ * the name and the image bytes, and a new segment is started when the active one is full.
+ * The magic number of a record is written last, so a record interrupted by a crash is ignored.
+ * A deletion appends a record without the image bytes. <br><br>
+ * The index of images (name to segment, offset and length) is kept in memory and rebuilt
+ * from the segments on startup. Reads copy the image straight from the mapped segment,
+ * without system calls. <br><br>
+ * Deleted images leave dead bytes in their segments. A background task compacts every full
+ * segment with less than {@code compactionThreshold} of live bytes: it appends the live images
+ * to the active segment and deletes the segment file. <br><br>
+ * Appends are guarded by a {@link ReentrantLock} rather than a monitor, so a virtual thread
+ * that waits for {@code msync} of a record does not pin its carrier thread.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class PackFileImageStore implements ImageStore, AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(PackFileImageStore.class);
+
+    private static final int MAGIC = 0x494D4731;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int MAX_NAME_BYTES = 1024;
+    private static final int DELETED = -1;
+    private static final int READ_ATTEMPTS = 3;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".pack";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final double compactionThreshold;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService compactor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private Segment active;
+
+    /**
+     * Location of image bytes in a segment.
+     */
+    private record Location(int segment, int offset, int length) {}
+
+    /**
+     * Segment file mapped into memory. {@code end} and {@code liveBytes} are guarded by the lock of the store.
+     */
+    private static final class Segment {
+        final int id;
+        final Path file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int end;
+        long liveBytes;
+
+        Segment(int id, Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+    }
+
+    /**
+     * Opens the segments in the directory (or creates it) and rebuilds the index.
+     *
+     * @param directory directory of the segment files
+     * @param segmentBytes size of a new segment file, an image must fit in one segment
+     * @param compactionThreshold share of live bytes below which a full segment is compacted
+     * @param compactionIntervalMillis interval between compactions, 0 disables background compaction
+     * @throws IOException if the segments could not be opened
+     */
+    public PackFileImageStore(Path directory, int segmentBytes, double compactionThreshold,
+                              long compactionIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.compactionThreshold = compactionThreshold;
+
+        Files.createDirectories(directory);
+        recover();
+
+        if (compactionIntervalMillis > 0) {
+            compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "image-pack-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactor.scheduleWithFixedDelay(() -> {
+                try {
+                    compact();
+                } catch (Exception e) {
+                    LOGGER.error("Could not compact image segments", e);
+                }
+            }, compactionIntervalMillis, compactionIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            compactor = null;
+        }
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    @Override
+    public void put(String name, InputStream image) throws IOException {
+        byte[] bytes = image.readNBytes(segmentBytes);
+        if (image.read() != -1)
+            throw new IOException("Image " + name + " is larger than a segment");
+        put(name, bytes);
+    }
+
+    @Override
+    public void put(String name, byte[] image) throws IOException {
+        lock.lock();
+        try {
+            append(name, image);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] read(String name) throws IOException {
+        for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+            Location location = index.get(name);
+            if (location == null)
+                break;
+            // the segment is missing only if it was compacted after the lookup, then the index is updated
+            Segment segment = segments.get(location.segment());
+            if (segment == null)
+                continue;
+            byte[] image = new byte[location.length()];
+            segment.buffer.get(location.offset(), image);
+            return image;
+        }
+        throw new NoSuchFileException(name);
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        lock.lock();
+        try {
+            if (index.containsKey(name))
+                append(name, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Stream<String> names() {
+        return index.keySet().stream();
+    }
+
+    /**
+     * Compacts full segments with less than {@code compactionThreshold} of live bytes.
+     *
+     * @return number of compacted segments
+     * @throws IOException if the live images could not be appended
+     */
+    public int compact() throws IOException {
+        compactionLock.lock();
+        try {
+            List<Segment> candidates = new ArrayList<>();
+            lock.lock();
+            try {
+                for (Segment segment : segments.values()) {
+                    if (segment != active && segment.liveBytes < compactionThreshold * segment.end)
+                        candidates.add(segment);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            for (Segment segment : candidates)
+                compact(segment);
+            if (!candidates.isEmpty())
+                LOGGER.info("Compacted {} image segments, {} segments left", candidates.size(), segments.size());
+            return candidates.size();
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * @return number of segment files
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return number of stored images
+     */
+    public int imageCount() {
+        return index.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compactor != null)
+            compactor.shutdownNow();
+        lock.lock();
+        try {
+            for (Segment segment : segments.values())
+                segment.channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record of the image, or of its deletion if {@code image} is {@code null},
+     * to the active segment and updates the index. Must be called with {@code lock} held.
+     */
+    private void append(String name, byte[] image) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = image == null ? DELETED : image.length;
+        int size = recordSize(nameBytes.length, length);
+        if (nameBytes.length > MAX_NAME_BYTES || size > segmentBytes)
+            throw new IOException("Image " + name + " does not fit in a segment");
+
+        if (active == null || active.end + size > active.capacity())
+            active = createSegment(segments.isEmpty() ? 1 : segments.lastKey() + 1);
+
+        int start = active.end;
+        var buffer = active.buffer;
+        buffer.putInt(start + Integer.BYTES, nameBytes.length);
+        buffer.putInt(start + 2 * Integer.BYTES, length);
+        buffer.put(start + HEADER_BYTES, nameBytes);
+        if (image != null)
+            buffer.put(start + HEADER_BYTES + nameBytes.length, image);
+        buffer.force(start, size);
+        buffer.putInt(start, MAGIC);
+        buffer.force(start, Integer.BYTES);
+        active.end += size;
+
+        Location previous = image == null
+                ? index.remove(name)
+                : index.put(name, new Location(active.id, start + HEADER_BYTES + nameBytes.length, length));
+        if (previous != null) {
+            Segment segment = segments.get(previous.segment());
+            if (segment != null)
+                segment.liveBytes -= recordSize(nameBytes.length, previous.length());
+        }
+        if (image != null)
+            active.liveBytes += size;
+    }
+
+    /**
+     * Appends the live images of the segment to the active one and deletes the segment.
+     * Deletion records are kept while there are older segments, which may contain the deleted images.
+     */
+    private void compact(Segment segment) throws IOException {
+        int position = 0;
+        while (position < segment.end) {
+            var buffer = segment.buffer;
+            int nameLength = buffer.getInt(position + Integer.BYTES);
+            int length = buffer.getInt(position + 2 * Integer.BYTES);
+            byte[] nameBytes = new byte[nameLength];
+            buffer.get(position + HEADER_BYTES, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            int offset = position + HEADER_BYTES + nameLength;
+
+            lock.lock();
+            try {
+                Location location = index.get(name);
+                if (length == DELETED) {
+                    if (location == null && segments.firstKey() < segment.id)
+                        append(name, null);
+                } else if (location != null && location.segment() == segment.id && location.offset() == offset) {
+                    byte[] image = new byte[length];
+                    buffer.get(offset, image);
+                    append(name, image);
+                }
+            } finally {
+                lock.unlock();
+            }
+            position += recordSize(nameLength, length);
+        }
+
+        lock.lock();
+        try {
+            segments.remove(segment.id);
+            segment.channel.close();
+            Files.deleteIfExists(segment.file);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Opens existing segments in the order of their identities and replays their records.
+     */
+    private void recover() throws IOException {
+        List<Path> files;
+        try (var list = Files.list(directory)) {
+            files = list.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).toList();
+        }
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int id = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            segments.put(id, openSegment(id, file));
+        }
+
+        for (Segment segment : segments.values()) {
+            var buffer = segment.buffer;
+            int position = 0;
+            while (position + HEADER_BYTES <= segment.capacity() && buffer.getInt(position) == MAGIC) {
+                int nameLength = buffer.getInt(position + Integer.BYTES);
+                int length = buffer.getInt(position + 2 * Integer.BYTES);
+                if (nameLength <= 0 || nameLength > MAX_NAME_BYTES || length < DELETED
+                        || position + recordSize(nameLength, length) > segment.capacity()) {
+                    LOGGER.warn("Image segment {} is damaged at {}, the rest of it is ignored", segment.file, position);
+                    break;
+                }
+                byte[] nameBytes = new byte[nameLength];
+                buffer.get(position + HEADER_BYTES, nameBytes);
+                String name = new String(nameBytes, StandardCharsets.UTF_8);
+                if (length == DELETED)
+                    index.remove(name);
+                else
+                    index.put(name, new Location(segment.id, position + HEADER_BYTES + nameLength, length));
+                position += recordSize(nameLength, length);
+            }
+            segment.end = position;
+        }
+
+        index.forEach((name, location) -> segments.get(location.segment()).liveBytes +=
+                recordSize(name.getBytes(StandardCharsets.UTF_8).length, location.length()));
+        if (!segments.isEmpty())
+            active = segments.lastEntry().getValue();
+
+        LOGGER.info("Opened {} image segments with {} images", segments.size(), index.size());
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Path file = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        try (var raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(segmentBytes);
+        }
+        Segment segment = openSegment(id, file);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static Segment openSegment(int id, Path file) throws IOException {
+        var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            return new Segment(id, file, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int recordSize(int nameLength, int length) {
+        return HEADER_BYTES + nameLength + Math.max(length, 0);
+    }
+}
@@ -1,5 +1,7 @@
 package com.panov.store.jwt;
 
+import com.panov.store.metrics.ServerTiming;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,7 +23,7 @@ import java.io.IOException;
  * by analyzing provided JWT token in the Authorization HTTP-header
  * using methods provided by {@link JwtService} class and comparing
  * credentials inside the token with taken from database via {@link UserDetailsService}
- * implementation.
+ * implementation. Tokens revoked via {@link TokenRevocationRegistry} are ignored.
  *
  * @author Maksym Panov
  * @version 1.0
@@ -31,6 +33,7 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
+    private final TokenRevocationRegistry revocationRegistry;
     private final UserDetailsService userDetailsService;
 
     @Override
@@ -40,23 +43,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NotNull FilterChain filterChain
     ) throws ServletException, IOException {
         String authorizationHeader = request.getHeader("Authorization");
-        if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
-            filterChain.doFilter(request, response);
-            return;
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+            try (var span = ServerTiming.span(ServerTiming.AUTHENTICATION)) {
+                authenticate(request, authorizationHeader.substring(7));
+            }
         }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private void authenticate(HttpServletRequest request, String jwt) {
         SecurityContextHolder.getContext().setAuthentication(null);
 
-        String jwt = authorizationHeader.substring(7);
-        String phoneNumber = jwtService.extractPhoneNumber(jwt);
+        Claims claims = jwtService.parseClaims(jwt);
+        if (claims == null || revocationRegistry.isRevoked(claims))
+            return;
+        String phoneNumber = claims.getSubject();
 
         if (
-                !jwtService.isTokenExpired(jwt) &&
                 phoneNumber != null &&
                 SecurityContextHolder.getContext().getAuthentication() == null
         ) {
             UserDetails userDetails = userDetailsService.loadUserByUsername(phoneNumber);
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (phoneNumber.equals(userDetails.getUsername())) {
                 var authenticationToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -69,7 +79,5 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);
             }
         }
-
-        filterChain.doFilter(request, response);
     }
 }
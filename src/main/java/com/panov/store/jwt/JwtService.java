@@ -1,6 +1,9 @@
 package com.panov.store.jwt;
 
+import com.panov.store.common.Access;
+import com.panov.store.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -13,6 +16,7 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 import java.util.function.Function;
 import static com.panov.store.common.Constants.*;
@@ -26,6 +30,8 @@ import static com.panov.store.common.Constants.*;
 @Component
 @RequiredArgsConstructor
 public class JwtService {
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ACCESS_CLAIM = "access";
 
     /**
      * Generates new JWT token for certain user provided via {@link UserDetails} .
@@ -48,10 +54,38 @@ public class JwtService {
             UserDetails userDetails,
             Map<String, Object> additionalClaims
     ) {
+        if (userDetails instanceof User user) {
+            additionalClaims = new HashMap<>(additionalClaims);
+            additionalClaims.putIfAbsent(USER_ID_CLAIM, user.getUserId());
+            if (user.getAccess() != null)
+                additionalClaims.putIfAbsent(ACCESS_CLAIM, user.getAccess().name());
+        }
+        return buildToken(userDetails.getUsername(), additionalClaims);
+    }
+
+    /**
+     * Generates new JWT token for a user with specified identity, phone number and access level. <br>
+     * These values are written into the token, so the token can later be checked without
+     * loading the user from the data storage.
+     *
+     * @param userId identity of the user
+     * @param phoneNumber phone number of the user (token subject)
+     * @param access access level of the user
+     * @return generated JWT token
+     */
+    public String createToken(Integer userId, String phoneNumber, Access access) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userId);
+        claims.put(ACCESS_CLAIM, access.name());
+        return buildToken(phoneNumber, claims);
+    }
+
+    private String buildToken(String subject, Map<String, Object> claims) {
         return Jwts
                 .builder()
-                .setSubject(userDetails.getUsername())
-                .addClaims(additionalClaims)
+                .setId(UUID.randomUUID().toString())
+                .setSubject(subject)
+                .addClaims(claims)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION))
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
@@ -90,6 +124,42 @@ public class JwtService {
         return resolver.apply(extractAllClaims(token));
     }
 
+    /**
+     * Verifies signature and expiration of provided token and returns its claims.
+     *
+     * @param token token to decompose
+     * @return {@link Claims} of the token or {@code null} if the token is malformed,
+     * has invalid signature or is expired
+     */
+    public Claims parseClaims(String token) {
+        try {
+            return extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Extracts identity of the user from provided token claims.
+     *
+     * @param claims verified token claims
+     * @return identity of the user or {@code null} if the token was issued without it
+     */
+    public Integer extractUserId(Claims claims) {
+        return claims.get(USER_ID_CLAIM, Integer.class);
+    }
+
+    /**
+     * Extracts access level of the user from provided token claims.
+     *
+     * @param claims verified token claims
+     * @return access level of the user or {@code null} if the token was issued without it
+     */
+    public Access extractAccess(Claims claims) {
+        String access = claims.get(ACCESS_CLAIM, String.class);
+        return access == null ? null : Access.valueOf(access);
+    }
+
     /**
      * Parses provided token and returns a {@link Map} implementations that stores all the claims from the token.
      * @param token token to decompose
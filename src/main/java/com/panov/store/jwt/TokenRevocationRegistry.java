@@ -0,0 +1,139 @@
+package com.panov.store.jwt;
+
+import com.panov.store.common.BloomFilter;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.panov.store.common.Constants.EXPIRATION;
+
+/**
+ * In-memory registry of revoked JWT tokens. <br><br>
+ * Single tokens (e.g. on logout) are revoked by their identity ({@code jti} claim). Revoked identities
+ * are kept in an exact set until the token expires, and a Bloom filter is placed in front of this set,
+ * so the check of a token that was never revoked (the common case) is answered by a few bit reads. <br><br>
+ * All tokens of a user (e.g. on access level or phone number change) are revoked by remembering
+ * the moment of revocation: tokens of this user issued before that moment are not accepted anymore.
+ * Token issue time has the precision of one second, so tokens issued in the same second
+ * as the revocation remain valid.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ * @see JwtService
+ */
+@Component
+public class TokenRevocationRegistry {
+    private static final long PURGE_INTERVAL_MILLIS = 60 * 1000;
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> userNotBefore = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final int expectedTokens;
+    private final Clock clock;
+    private volatile BloomFilter filter;
+    private volatile long lastPurge;
+
+    @Autowired
+    public TokenRevocationRegistry(@Value("${auth.revocation.expectedTokens:100000}") int expectedTokens) {
+        this(expectedTokens, Clock.systemUTC());
+    }
+
+    TokenRevocationRegistry(int expectedTokens, Clock clock) {
+        this.expectedTokens = expectedTokens;
+        this.clock = clock;
+        this.filter = new BloomFilter(expectedTokens);
+        this.lastPurge = clock.millis();
+    }
+
+    /**
+     * Revokes a single token.
+     *
+     * @param claims verified claims of the token to revoke
+     */
+    public void revoke(Claims claims) {
+        if (claims.getId() == null) {
+            Integer userId = claims.get(JwtService.USER_ID_CLAIM, Integer.class);
+            if (userId != null)
+                revokeAllFor(userId);
+            return;
+        }
+
+        long expiresAt = claims.getExpiration().getTime();
+        writeLock.lock();
+        try {
+            revokedTokens.put(claims.getId(), expiresAt);
+            filter.put(claims.getId());
+            purgeIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Revokes all tokens of a user issued up to this moment.
+     *
+     * @param userId identity of the user
+     */
+    public void revokeAllFor(Integer userId) {
+        long now = clock.millis();
+        writeLock.lock();
+        try {
+            userNotBefore.put(userId, now - now % 1000);
+            purgeIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Checks if a token was revoked.
+     *
+     * @param claims verified claims of the token
+     * @return {@code true} if the token was revoked and {@code false} - otherwise
+     */
+    public boolean isRevoked(Claims claims) {
+        String id = claims.getId();
+        if (id != null && filter.mightContain(id) && revokedTokens.containsKey(id))
+            return true;
+
+        Integer userId = claims.get(JwtService.USER_ID_CLAIM, Integer.class);
+        if (userId == null)
+            return false;
+
+        Long notBefore = userNotBefore.get(userId);
+        Date issuedAt = claims.getIssuedAt();
+        return notBefore != null && (issuedAt == null || issuedAt.getTime() < notBefore);
+    }
+
+    /**
+     * Removes revoked tokens which are already expired, because expired tokens are rejected anyway,
+     * and revocations of all tokens of a user older than the token lifetime, because every token
+     * issued before them has expired. <br>
+     * Bloom filter cannot forget values, so it is rebuilt from the remaining ones.
+     * Must be called under the write lock.
+     */
+    private void purgeIfNeeded() {
+        long now = clock.millis();
+        if (now - lastPurge < PURGE_INTERVAL_MILLIS)
+            return;
+        lastPurge = now;
+
+        long oldestAlive = now - EXPIRATION;
+        userNotBefore.values().removeIf(notBefore -> notBefore < oldestAlive);
+
+        if (!revokedTokens.values().removeIf(expiresAt -> expiresAt < now))
+            return;
+
+        var rebuilt = new BloomFilter(Math.max(expectedTokens, revokedTokens.size() * 2));
+        revokedTokens.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+}
@@ -0,0 +1,87 @@
+package com.panov.store.metrics;
+
+import com.panov.store.dao.DAO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Times every {@link DAO} method, every service method and every controller endpoint. <br><br>
+ * Timers are tagged with the class, the method and the simple name of a thrown
+ * exception ({@code none} if the call succeeded), so they also count calls and failures. <br>
+ * Endpoint timers are additionally tagged with the HTTP method and the path template
+ * of the request and publish a latency histogram. <br>
+ * Repository calls are also added to the {@link ServerTiming} of the request.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class MetricsAspect {
+    public static final String REPOSITORY_TIMER = "store.repository";
+    public static final String SERVICE_TIMER = "store.service";
+    public static final String HTTP_TIMER = "store.http.requests";
+
+    private final MeterRegistry registry;
+
+    @Around("execution(public * com.panov.store.dao.DAO+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        try (var span = ServerTiming.span(ServerTiming.DATABASE)) {
+            return time(REPOSITORY_TIMER, Tags.empty(), false, joinPoint);
+        }
+    }
+
+    @Around("execution(public * com.panov.store.services..*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(SERVICE_TIMER, Tags.empty(), false, joinPoint);
+    }
+
+    @Around("@within(org.springframework.web.bind.annotation.RestController) && execution(public * *(..)) " +
+            "&& !within(com.panov.store.controllers.MetricsController)")
+    public Object timeEndpoint(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(HTTP_TIMER, requestTags(), true, joinPoint);
+    }
+
+    private Object time(String name, Tags tags, boolean histogram, ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(name)
+                    .tags(tags)
+                    .tag("class", joinPoint.getTarget().getClass().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .publishPercentileHistogram(histogram)
+                    .register(registry));
+        }
+    }
+
+    private static Tags requestTags() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes))
+            return Tags.empty();
+
+        HttpServletRequest request = attributes.getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return Tags.of(
+                Tag.of("http_method", request.getMethod()),
+                Tag.of("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+        );
+    }
+}
@@ -0,0 +1,41 @@
+package com.panov.store.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Writes the number of SQL statements executed by the request so far into the
+ * {@value QueryCountInterceptor#HEADER} header. Headers cannot be changed after
+ * the body is written, so the header is added right before it.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@ControllerAdvice
+public class QueryCountHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(@NotNull MethodParameter returnType,
+                            @NotNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body,
+                                  @NotNull MethodParameter returnType,
+                                  @NotNull MediaType selectedContentType,
+                                  @NotNull Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  @NotNull ServerHttpRequest request,
+                                  @NotNull ServerHttpResponse response) {
+        var counter = QueryCounter.current();
+        if (counter != null)
+            response.getHeaders().set(QueryCountInterceptor.HEADER, String.valueOf(counter.getCount()));
+        return body;
+    }
+}
@@ -0,0 +1,93 @@
+package com.panov.store.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Counts SQL statements of every request with a {@link QueryCounter}. <br><br>
+ * The count is published to the {@code store.http.statements} distribution per endpoint
+ * and is sent to the client in the {@value #HEADER} header (see {@link QueryCountHeaderAdvice}). <br>
+ * A warning is logged if a request executes more than {@code db.queryCount.warnThreshold}
+ * statements, or if one statement shape is repeated more than {@code db.queryCount.repeatThreshold}
+ * times, which usually means that a collection or an association is loaded one by one.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Component
+public class QueryCountInterceptor implements HandlerInterceptor {
+    public static final String HEADER = "X-Query-Count";
+    private static final Logger log = LogManager.getLogger(QueryCountInterceptor.class);
+    private static final int SAMPLE_SIZE = 3;
+    private static final int SAMPLE_LENGTH = 300;
+
+    private final MeterRegistry registry;
+    private final int warnThreshold;
+    private final int repeatThreshold;
+
+    public QueryCountInterceptor(MeterRegistry registry,
+                                 @Value("${db.queryCount.warnThreshold:50}") int warnThreshold,
+                                 @Value("${db.queryCount.repeatThreshold:10}") int repeatThreshold) {
+        this.registry = registry;
+        this.warnThreshold = warnThreshold;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    public boolean preHandle(@NotNull HttpServletRequest request,
+                             @NotNull HttpServletResponse response,
+                             @NotNull Object handler) {
+        QueryCounter.start();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@NotNull HttpServletRequest request,
+                                @NotNull HttpServletResponse response,
+                                @NotNull Object handler,
+                                Exception ex) {
+        var counter = QueryCounter.stop();
+        if (counter == null)
+            return;
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("store.http.statements")
+                .tag("http_method", request.getMethod())
+                .tag("uri", uri)
+                .register(registry)
+                .record(counter.getCount());
+
+        Map<String, Integer> repeated = counter.getRepeatedStatements(repeatThreshold);
+        if (counter.getCount() > warnThreshold || !repeated.isEmpty()) {
+            log.warn("{} {} executed {} SQL statements{}",
+                    request.getMethod(), uri, counter.getCount(), describe(repeated));
+        }
+    }
+
+    private static String describe(Map<String, Integer> repeated) {
+        if (repeated.isEmpty())
+            return "";
+        return repeated.entrySet()
+                .stream()
+                .limit(SAMPLE_SIZE)
+                .map(e -> e.getValue() + " x " + abbreviate(e.getKey()))
+                .collect(Collectors.joining("\n  ", ", repeated statements:\n  ", ""));
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() <= SAMPLE_LENGTH ? sql : sql.substring(0, SAMPLE_LENGTH) + "...";
+    }
+}
@@ -0,0 +1,92 @@
+package com.panov.store.metrics;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Counts SQL statements prepared by Hibernate on the current thread between
+ * {@link #start()} and {@link #stop()}, e.g. during one request. <br><br>
+ * Statements are also grouped by their shape (the statement with normalized whitespace
+ * and collapsed {@code in (?, ?, ...)} lists), so the same statement repeated for every
+ * element of a collection (the N+1 problem) can be detected. <br>
+ * Statements are reported by {@link QueryCountingStatementInspector}.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public final class QueryCounter {
+    private static final ThreadLocal<QueryCounter> current = new ThreadLocal<>();
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\?(\\s*,\\s*\\?)*\\)");
+
+    private final Map<String, Integer> shapes = new HashMap<>();
+    private int count;
+
+    private QueryCounter() {}
+
+    /**
+     * Starts counting on the current thread, discarding a previous counter if there is one.
+     *
+     * @return the new counter
+     */
+    public static QueryCounter start() {
+        var counter = new QueryCounter();
+        current.set(counter);
+        return counter;
+    }
+
+    /**
+     * Stops counting on the current thread.
+     *
+     * @return the stopped counter or {@code null} if counting was not started
+     */
+    public static QueryCounter stop() {
+        var counter = current.get();
+        current.remove();
+        return counter;
+    }
+
+    /**
+     * @return counter of the current thread or {@code null} if counting was not started
+     */
+    public static QueryCounter current() {
+        return current.get();
+    }
+
+    static void record(String sql) {
+        var counter = current.get();
+        if (counter != null)
+            counter.add(sql);
+    }
+
+    private void add(String sql) {
+        count++;
+        String shape = PARAMETER_LIST.matcher(WHITESPACE.matcher(sql.trim()).replaceAll(" ")).replaceAll("(?)");
+        shapes.merge(shape, 1, Integer::sum);
+    }
+
+    /**
+     * @return number of statements counted so far
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param threshold maximum number of times a statement shape may be repeated
+     * @return statement shapes repeated more than {@code threshold} times with their counts,
+     *         the most repeated first
+     */
+    public Map<String, Integer> getRepeatedStatements(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        shapes.entrySet()
+                .stream()
+                .filter(e -> e.getValue() > threshold)
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+                .forEach(e -> repeated.put(e.getKey(), e.getValue()));
+        return repeated;
+    }
+}
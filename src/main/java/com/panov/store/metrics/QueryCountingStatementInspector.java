@@ -0,0 +1,19 @@
+package com.panov.store.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Reports every SQL statement Hibernate prepares to the {@link QueryCounter} of the current thread.
+ * Statements are not changed.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class QueryCountingStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryCounter.record(sql);
+        return sql;
+    }
+}
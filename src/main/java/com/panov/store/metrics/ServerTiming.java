@@ -0,0 +1,173 @@
+package com.panov.store.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timing context of one request, kept on the current thread between {@link #start()}
+ * and {@link #stop()} (see {@link ServerTimingFilter}). <br><br>
+ * Stages of the request (authentication, database, image reads, DTO mapping, serialization)
+ * are timed with {@link #span(String)}. Time of all spans with the same name is summed up,
+ * a span nested into a running span with the same name is not counted twice. <br>
+ * If there is no context on the current thread, {@link #span(String)} returns a shared
+ * span that does nothing, so timing a stage costs one thread-local lookup.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public final class ServerTiming {
+    public static final String AUTHENTICATION = "auth";
+    public static final String DATABASE = "db";
+    public static final String IMAGES = "img";
+    public static final String MAPPING = "map";
+    public static final String SERIALIZATION = "json";
+    public static final String TOTAL = "total";
+
+    private static final ThreadLocal<ServerTiming> current = new ThreadLocal<>();
+    private static final Span NOOP = new Span(null);
+
+    private final List<Span> spans = new ArrayList<>();
+    private final long startedAt = System.nanoTime();
+
+    private ServerTiming() {}
+
+    /**
+     * Starts timing on the current thread, discarding a previous context if there is one.
+     *
+     * @return the new context
+     */
+    public static ServerTiming start() {
+        var timing = new ServerTiming();
+        current.set(timing);
+        return timing;
+    }
+
+    /**
+     * Stops timing on the current thread.
+     *
+     * @return the stopped context or {@code null} if timing was not started
+     */
+    public static ServerTiming stop() {
+        var timing = current.get();
+        current.remove();
+        return timing;
+    }
+
+    /**
+     * Starts a span of the current context. The span is stopped by {@link Span#close()},
+     * so it is meant to be used in a try-with-resources statement.
+     *
+     * @param name name of the timed stage
+     * @return running span, or a span that does nothing if timing was not started
+     */
+    public static Span span(String name) {
+        var timing = current.get();
+        if (timing == null)
+            return NOOP;
+        return timing.get(name).open();
+    }
+
+    private Span get(String name) {
+        for (var span : spans) {
+            if (span.name.equals(name))
+                return span;
+        }
+        var span = new Span(name);
+        spans.add(span);
+        return span;
+    }
+
+    /**
+     * @return time since the context was started in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startedAt;
+    }
+
+    /**
+     * @return timed stages in the order they were first started
+     */
+    public List<Span> getSpans() {
+        return List.copyOf(spans);
+    }
+
+    /**
+     * Formats the context as a value of the {@code Server-Timing} header, e.g.
+     * {@code total;dur=12.4, auth;dur=0.9, db;dur=7.1}. Durations are in milliseconds.
+     *
+     * @return header value
+     */
+    public String toHeaderValue() {
+        var value = new StringBuilder(TOTAL).append(";dur=").append(millis(getElapsedNanos()));
+        for (var span : spans)
+            value.append(", ").append(span.name).append(";dur=").append(millis(span.nanos));
+        return value.toString();
+    }
+
+    /**
+     * Formats the context as fields of a structured log record, e.g.
+     * {@code total_ms=1250.3, db_ms=1100.0, db_count=41}. Durations are in milliseconds.
+     *
+     * @return log record fields in the order of {@link #getSpans()}
+     */
+    public Map<String, String> toLogFields() {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put(TOTAL + "_ms", millis(getElapsedNanos()));
+        for (var span : spans) {
+            fields.put(span.name + "_ms", millis(span.nanos));
+            fields.put(span.name + "_count", String.valueOf(span.count));
+        }
+        return fields;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Summed up time of one stage of the request.
+     */
+    public static final class Span implements AutoCloseable {
+        private final String name;
+        private long nanos;
+        private int count;
+        private int depth;
+        private long openedAt;
+
+        private Span(String name) {
+            this.name = name;
+        }
+
+        private Span open() {
+            if (depth++ == 0)
+                openedAt = System.nanoTime();
+            return this;
+        }
+
+        /**
+         * Stops the span. Does nothing if a span with the same name is still running.
+         */
+        @Override
+        public void close() {
+            if (name == null || --depth > 0)
+                return;
+            nanos += System.nanoTime() - openedAt;
+            count++;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.panov.store.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.StringMapMessage;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * Times every request with a {@link ServerTiming} context and sends the breakdown to the
+ * client in the {@value #HEADER} header. <br><br>
+ * The filter runs first in the security filter chain, so authentication is timed too.
+ * JSON serialization is one of the timed stages, so the response body is buffered and the
+ * header is added after the body is written. <br>
+ * Requests slower than {@code metrics.serverTiming.slowRequestThresholdMillis} are logged
+ * as structured {@code slow_request} records. If {@code metrics.serverTiming.enabled} is
+ * {@code false}, requests are neither timed nor buffered.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Component
+public class ServerTimingFilter extends OncePerRequestFilter {
+    public static final String HEADER = "Server-Timing";
+    private static final Logger log = LogManager.getLogger(ServerTimingFilter.class);
+
+    private final boolean enabled;
+    private final long slowRequestThresholdNanos;
+
+    public ServerTimingFilter(@Value("${metrics.serverTiming.enabled:true}") boolean enabled,
+                              @Value("${metrics.serverTiming.slowRequestThresholdMillis:1000}")
+                              long slowRequestThresholdMillis) {
+        this.enabled = enabled;
+        this.slowRequestThresholdNanos = slowRequestThresholdMillis * 1_000_000;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NotNull HttpServletRequest request,
+            @NotNull HttpServletResponse response,
+            @NotNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        if (!enabled) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        var timing = ServerTiming.start();
+        var bufferedResponse = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, bufferedResponse);
+        } finally {
+            ServerTiming.stop();
+            if (!bufferedResponse.isCommitted())
+                bufferedResponse.setHeader(HEADER, timing.toHeaderValue());
+            bufferedResponse.copyBodyToResponse();
+
+            if (timing.getElapsedNanos() > slowRequestThresholdNanos)
+                logSlowRequest(request, bufferedResponse, timing);
+        }
+    }
+
+    private static void logSlowRequest(HttpServletRequest request, HttpServletResponse response,
+                                       ServerTiming timing) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        var message = new StringMapMessage()
+                .with("event", "slow_request")
+                .with("http_method", request.getMethod())
+                .with("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                .with("path", request.getRequestURI())
+                .with("status", response.getStatus());
+        timing.toLogFields().forEach(message::with);
+        log.warn(message);
+    }
+}
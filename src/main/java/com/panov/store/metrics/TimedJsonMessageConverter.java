@@ -0,0 +1,34 @@
+package com.panov.store.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * JSON message converter that adds serialization of response bodies
+ * to the {@link ServerTiming} of the request.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+public class TimedJsonMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    public TimedJsonMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(@NotNull Object object,
+                                 Type type,
+                                 @NotNull HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        try (var span = ServerTiming.span(ServerTiming.SERIALIZATION)) {
+            super.writeInternal(object, type, outputMessage);
+        }
+    }
+}
@@ -5,8 +5,12 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.*;
 
 /**
@@ -20,12 +24,14 @@ import java.util.*;
 @ToString
 @NoArgsConstructor
 @Entity
+@NaturalIdCache
 @Table(name = "Product")
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer productId;
 
+    @NaturalId(mutable = true)
     @Column(unique = true)
     private String name;
 
@@ -38,6 +44,12 @@ public class Product {
 
     private Integer stock;
 
+    /**
+     * Time of the last change, set by the repository on every change.
+     */
+    @ColumnDefault("current_timestamp")
+    private Timestamp updatedAt;
+
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
             name = "Product_ProductType",
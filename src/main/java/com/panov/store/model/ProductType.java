@@ -5,7 +5,11 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
+import java.sql.Timestamp;
 import java.util.*;
 
 /**
@@ -19,15 +23,23 @@ import java.util.*;
 @ToString
 @NoArgsConstructor
 @Entity
+@NaturalIdCache
 @Table(name = "ProductType")
 public class ProductType {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer productTypeId;
 
+    @NaturalId(mutable = true)
     @Column(unique = true)
     private String name;
 
+    /**
+     * Time of the last change, set by the repository on every change.
+     */
+    @ColumnDefault("current_timestamp")
+    private Timestamp updatedAt;
+
     @ToString.Exclude
     @ManyToMany(mappedBy = "productTypes", fetch = FetchType.EAGER)
     private List<Product> products = new ArrayList<>();
@@ -0,0 +1,39 @@
+package com.panov.store.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.sql.Timestamp;
+
+/**
+ * This class represents a stored image file and the number of {@link Product}
+ * and {@link User} objects that refer to it. <br><br>
+ * Images are stored under the names derived from their content, so equal images
+ * are stored once, and the file is deleted only when the last reference is gone.
+ *
+ * @author Maksym Panov
+ * @version 1.0
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "Image")
+public class StoredImage {
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    private Integer referenceCount;
+
+    /**
+     * Time of the last {@code acquire}, the image is not collected for a grace period after it.
+     */
+    private Timestamp acquiredAt;
+}
@@ -1,5 +1,6 @@
 package com.panov.store.services;
 
+import com.panov.store.dao.CatalogVersion;
 import com.panov.store.dao.DAO;
 import com.panov.store.dao.DeliveryTypeRepository;
 import com.panov.store.exceptions.ResourceNotCreatedException;
@@ -12,6 +13,7 @@ import com.panov.store.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -28,10 +30,10 @@ import java.util.Map;
  */
 @Service
 public class DeliveryTypeService {
-    private final DAO<DeliveryType> repository;
+    private final DeliveryTypeRepository repository;
 
     @Autowired
-    public DeliveryTypeService(DAO<DeliveryType> repository) {
+    public DeliveryTypeService(DeliveryTypeRepository repository) {
         this.repository = repository;
     }
 
@@ -41,6 +43,7 @@ public class DeliveryTypeService {
      *
      * @return a {@link List} of {@link DeliveryType} objects
      */
+    @Transactional(readOnly = true)
     public List<DeliveryType> getDeliveryTypeList(Integer offset, Integer quantity) {
         try {
             var list = repository.getPackage(offset, quantity);
@@ -53,6 +56,28 @@ public class DeliveryTypeService {
         }
     }
 
+    /**
+     * Computes the version of the list returned by {@link #getDeliveryTypeList(Integer, Integer)}
+     * with the same arguments, without loading the delivery types.
+     *
+     * @return a {@link CatalogVersion} of the list
+     */
+    @Transactional(readOnly = true)
+    public CatalogVersion getDeliveryTypeListVersion(Integer offset, Integer quantity) {
+        return repository.getPackageVersion(offset, quantity);
+    }
+
+    /**
+     * Computes the version of the list returned by {@link #getByNamePattern(String, boolean)}
+     * with the same arguments, without loading the delivery types.
+     *
+     * @return a {@link CatalogVersion} of the list
+     */
+    @Transactional(readOnly = true)
+    public CatalogVersion getByNamePatternVersion(String namePattern, boolean strict) {
+        return repository.getByColumnVersion(namePattern, strict);
+    }
+
     /**
      * Uses {@link DAO} implementation to retrieve a {@link DeliveryType} entity by specified identity. <br><br>
      * Re-throws a {@link ResourceNotFoundException} if {@link DAO} object throws an exception or there is
@@ -61,6 +86,7 @@ public class DeliveryTypeService {
      * @param id an identity of the sought {@link DeliveryType}
      * @return a {@link DeliveryType} object with specified identity
      */
+    @Transactional(readOnly = true)
     public DeliveryType getById(Integer id) {
         return repository.get(id).orElseThrow(() ->
                 new ResourceNotFoundException("Could not find this delivery type")
@@ -78,6 +104,7 @@ public class DeliveryTypeService {
      *               {@code namePattern} as their part (case-insensitive)
      * @return a list of {@link ProductType} objects that match specified pattern
      */
+    @Transactional(readOnly = true)
     public List<DeliveryType> getByNamePattern(String namePattern, boolean strict) {
         try {
             var list = repository.getByColumn(namePattern, null, null, strict);
@@ -91,6 +118,7 @@ public class DeliveryTypeService {
     }
 
 
+    @Transactional
     public Integer createDeliveryType(DeliveryType deliveryType) {
         Map<String, String> matches = thisNaturalIdExists(deliveryType);
         if (matches.size() != 0)
@@ -122,6 +150,7 @@ public class DeliveryTypeService {
      * @return an identity of updated {@link DeliveryType}
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional
     public Integer changeDeliveryType(DeliveryType deliveryType) {
         Map<String, String> matches = thisNaturalIdExists(deliveryType);
         if (matches.size() != 0)
@@ -149,6 +178,7 @@ public class DeliveryTypeService {
      * @param id an identity of {@link DeliveryType} that should be deleted
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR')")
+    @Transactional
     public void deleteDeliveryType(Integer id) {
         try {
             repository.delete(id);
@@ -167,11 +197,8 @@ public class DeliveryTypeService {
     private Map<String, String> thisNaturalIdExists(DeliveryType deliveryType) {
         Map<String, String> matches = new HashMap<>();
 
-        try {
-            var nameMatch = getByNamePattern(deliveryType.getName(), true);
-            if (nameMatch.size() != 0)
-                matches.put("name", "Delivery type with this name already exists");
-        } catch(Exception ignored) {}
+        if (repository.exists(deliveryType.getName(), deliveryType.getDeliveryTypeId()))
+            matches.put("name", "Delivery type with this name already exists");
 
         return matches;
     }
@@ -10,6 +10,7 @@ import com.panov.store.common.Status;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
 import java.util.Collections;
@@ -40,6 +41,7 @@ public class OrderService {
      * @return a {@link List} of {@link Order} objects
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional(readOnly = true)
     public List<Order> getOrdersList(Integer offset, Integer quantity, String order, Status status) {
         try {
             List<Order> list;
@@ -70,6 +72,7 @@ public class OrderService {
      * @return a {@link Order} object with specified identity
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional(readOnly = true)
     public Order getById(Integer id) {
         return repository.get(id).orElseThrow(() ->
                 new ResourceNotFoundException("Could not find this order")
@@ -94,6 +97,7 @@ public class OrderService {
             "hasAuthority('ADMINISTRATOR') or " +
             "hasAuthority('MANAGER')"
     )
+    @Transactional
     public Integer createOrder(Order order) {
         // Orders with simultaneously specified User and UnregisteredCustomer
         // are not allowed, such as well as Orders without owner
@@ -133,6 +137,7 @@ public class OrderService {
      * @return an identity of updated {@link Order}
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional
     public Integer changeOrder(Order order) {
         Integer id = null;
 
@@ -1,23 +1,27 @@
 package com.panov.store.services;
 
 import com.panov.store.common.Utils;
+import com.panov.store.dao.CatalogVersion;
 import com.panov.store.dao.DAO;
 import com.panov.store.dao.ProductRepository;
 import com.panov.store.exceptions.ResourceNotCreatedException;
+import com.panov.store.images.ImageStorage;
 import com.panov.store.exceptions.ResourceNotUpdatedException;
 import com.panov.store.exceptions.ResourceNotFoundException;
+import com.panov.store.metrics.ServerTiming;
 import com.panov.store.model.Product;
 import com.panov.store.model.User;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.postgresql.shaded.com.ongres.scram.common.bouncycastle.base64.Base64;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.*;
 import java.util.*;
 import java.util.List;
-import static com.panov.store.common.Constants.STATIC_IMAGES_FOLDER;
 
 /**
  * Service-layer class that processes {@link Product} entities.
@@ -30,7 +34,10 @@ import static com.panov.store.common.Constants.STATIC_IMAGES_FOLDER;
 @Service
 @RequiredArgsConstructor
 public class ProductService {
+    private static final Logger LOGGER = LogManager.getLogger(ProductService.class);
+
     private final ProductRepository repository;
+    private final ImageStorage imageStorage;
 
     /**
      * Uses {@link DAO} implementation to retrieve list of all existing {@link Product} entities. <br><br>
@@ -38,6 +45,7 @@ public class ProductService {
      *
      * @return a {@link List} of {@link Product} objects
      */
+    @Transactional(readOnly = true)
     public List<Product> getRangeOfProducts(Integer offset, Integer quantity, Integer typeId) {
         try {
             List<Product> productRange;
@@ -57,6 +65,30 @@ public class ProductService {
         }
     }
 
+    /**
+     * Computes the version of the list returned by {@link #getRangeOfProducts(Integer, Integer, Integer)}
+     * with the same arguments, without loading the products and their images.
+     *
+     * @return a {@link CatalogVersion} of the list
+     */
+    @Transactional(readOnly = true)
+    public CatalogVersion getRangeOfProductsVersion(Integer offset, Integer quantity, Integer typeId) {
+        if (typeId != null)
+            return repository.getPackageByProductTypeVersion(offset, quantity, typeId);
+        return repository.getPackageVersion(offset, quantity);
+    }
+
+    /**
+     * Computes the version of the list returned by {@link #getByNamePattern(String, Integer, Integer, boolean)}
+     * with the same arguments, without loading the products and their images.
+     *
+     * @return a {@link CatalogVersion} of the list
+     */
+    @Transactional(readOnly = true)
+    public CatalogVersion getByNamePatternVersion(String namePattern, Integer offset, Integer quantity, boolean strict) {
+        return repository.getByColumnVersion(namePattern, offset, quantity, strict);
+    }
+
     /**
      * Uses {@link DAO} implementation to retrieve a {@link Product} entity by specified identity. <br><br>
      * Re-throws a {@link ResourceNotFoundException} if {@link DAO} object throws an exception or there is
@@ -65,6 +97,7 @@ public class ProductService {
      * @param id an identity of the sought {@link Product}
      * @return a {@link Product} object with specified identity
      */
+    @Transactional(readOnly = true)
     public Product getById(Integer id) {
         Product product = repository.get(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Could not find this product"));
@@ -86,6 +119,7 @@ public class ProductService {
      *               {@code namePattern} as their part (case-insensitive)
      * @return a list of {@link Product} objects that match specified pattern
      */
+    @Transactional(readOnly = true)
     public List<Product> getByNamePattern(String namePattern, Integer offset, Integer quantity, boolean strict) {
         try {
             var products = repository.getByColumn(namePattern, offset, quantity, strict);
@@ -109,24 +143,27 @@ public class ProductService {
      * @return an identity of saved {@link Product}
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional
     public Integer createProduct(Product product) {
         Map<String, String> matches = thisNaturalIdExists(product);
         if (matches.size() != 0)
             throw new ResourceNotCreatedException(matches);
 
         if (product.getImage() != null) {
-            product.setImage(
-                    Utils.saveImageToFilesystem(
-                            product.getImage(),
-                            null
-                    )
-            );
+            try {
+                product.setImage(saveImage(product.getImage()));
+            } catch (IOException e) {
+                LOGGER.error("Could not save the image of a new product", e);
+                throw new ResourceNotCreatedException("Could not save this image");
+            }
         }
 
         Integer id = repository.insert(product);
 
-        if (id == null)
+        if (id == null) {
+            imageStorage.release(product.getImage());
             throw new ResourceNotCreatedException("Could not create this product");
+        }
 
         return id;
     }
@@ -142,38 +179,87 @@ public class ProductService {
      * @return an identity of updated {@link Product}
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional
     public Integer changeProduct(Product product) {
         Map<String, String> matches = thisNaturalIdExists(product);
         if (matches.size() != 0)
             throw new ResourceNotUpdatedException(matches);
 
         Integer id = null;
+        String previousImage = null;
+        boolean imageChanged = false;
 
         try {
             Product inDB = repository.get(product.getProductId())
                     .orElseThrow(() -> new ResourceNotUpdatedException("There is no such product"));
+            previousImage = inDB.getImage();
             if (product.getImage() == null) {
-                product.setImage(inDB.getImage());
+                product.setImage(previousImage);
             } else {
-                product.setImage(
-                        Utils.saveImageToFilesystem(
-                                product.getImage(),
-                                inDB.getImage()
-                        )
-                );
+                product.setImage(saveImage(product.getImage()));
+                imageChanged = true;
             }
 
             id = repository.update(product);
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.error("Could not update product {}", product.getProductId(), e);
         }
 
-        if (id == null)
+        if (id == null) {
+            if (imageChanged)
+                imageStorage.release(product.getImage());
             throw new ResourceNotUpdatedException("Could not update this product");
+        }
+        if (imageChanged)
+            imageStorage.release(previousImage);
 
         return id;
     }
 
+    /**
+     * Replaces the image of existing {@link Product} with the image read from provided stream. <br><br>
+     * The image is saved before the product is updated, and it is not done in one transaction
+     * on purpose: a slow upload must not hold a database connection. The previous image is
+     * released only after the product refers to the new one, and the new image is released
+     * if the product could not be updated. <br><br>
+     * Only {@link User} with {@code Access.ADMINISTRATOR} or {@code Access.MANAGER} authority
+     * can invoke this method. <br><br>
+     * Re-throws a {@link ResourceNotUpdatedException} if the image could not be saved or
+     * {@link DAO} object throws an exception.
+     *
+     * @param id an identity of the {@link Product}
+     * @param image stream of the image bytes
+     * @return an identity of updated {@link Product}
+     */
+    @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    public Integer changeProductImage(Integer id, InputStream image) {
+        Product inDB = repository.get(id)
+                .orElseThrow(() -> new ResourceNotUpdatedException("There is no such product"));
+
+        String name;
+        try {
+            name = imageStorage.save(image);
+        } catch (IOException e) {
+            LOGGER.error("Could not save a new image of product {}", id, e);
+            throw new ResourceNotUpdatedException("Could not save this image");
+        }
+
+        Integer updated = null;
+        try {
+            updated = repository.updateImage(id, name);
+        } catch (Exception e) {
+            LOGGER.error("Could not set image {} to product {}", name, id, e);
+        }
+
+        if (updated == null) {
+            imageStorage.release(name);
+            throw new ResourceNotUpdatedException("Could not update this product");
+        }
+
+        imageStorage.release(inDB.getImage());
+        return updated;
+    }
+
     /**
      * Checks if the name of provided object is already used in existing {@link Product} object.
      *
@@ -183,23 +269,29 @@ public class ProductService {
     private Map<String, String> thisNaturalIdExists(Product product) {
         Map<String, String> matches = new HashMap<>();
 
-        try {
-            var nameMatch = getByNamePattern(product.getName(), null, null, true);
-            if (nameMatch.size() != 0 && !product.getProductId().equals(nameMatch.get(0).getProductId()))
-                matches.put("name", "Product with this name already exists");
-        } catch(Exception ignored) {}
+        if (repository.exists(product.getName(), product.getProductId()))
+            matches.put("name", "Product with this name already exists");
 
         return matches;
     }
 
+    /**
+     * Saves an image sent as a Base64 string and adds a reference to it.
+     *
+     * @return name of the saved image or {@code null} if the string is blank or not valid Base64
+     */
+    private String saveImage(String image) throws IOException {
+        byte[] bytes = Utils.decodeImage(image);
+        return bytes == null ? null : imageStorage.save(bytes);
+    }
+
     private void fetchImage(Product product) {
         if (product.getImage() == null) {
             return;
         }
 
-        try {
-            File imageFile = new File(STATIC_IMAGES_FOLDER + "/" + product.getImage());
-            byte[] imageArr = FileUtils.readFileToByteArray(imageFile);
+        try (var span = ServerTiming.span(ServerTiming.IMAGES)) {
+            byte[] imageArr = imageStorage.read(product.getImage());
             String imageEncoded = Base64.toBase64String(imageArr);
             product.setImage(imageEncoded);
         } catch (Exception ignored) {}
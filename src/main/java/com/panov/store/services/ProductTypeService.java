@@ -1,5 +1,6 @@
 package com.panov.store.services;
 
+import com.panov.store.dao.CatalogVersion;
 import com.panov.store.dao.DAO;
 import com.panov.store.dao.ProductTypeRepository;
 import com.panov.store.exceptions.ResourceNotCreatedException;
@@ -11,6 +12,7 @@ import com.panov.store.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -27,10 +29,10 @@ import java.util.Map;
  */
 @Service
 public class ProductTypeService {
-    private final DAO<ProductType> repository;
+    private final ProductTypeRepository repository;
 
     @Autowired
-    public ProductTypeService(DAO<ProductType> repository) {
+    public ProductTypeService(ProductTypeRepository repository) {
         this.repository = repository;
     }
 
@@ -40,6 +42,7 @@ public class ProductTypeService {
      *
      * @return a {@link List} of {@link ProductType} objects
      */
+    @Transactional(readOnly = true)
     public List<ProductType> getProductTypeList(Integer offset, Integer quantity) {
         try {
             var list = repository.getPackage(offset, quantity);
@@ -52,6 +55,28 @@ public class ProductTypeService {
         }
     }
 
+    /**
+     * Computes the version of the list returned by {@link #getProductTypeList(Integer, Integer)}
+     * with the same arguments, without loading the product types.
+     *
+     * @return a {@link CatalogVersion} of the list
+     */
+    @Transactional(readOnly = true)
+    public CatalogVersion getProductTypeListVersion(Integer offset, Integer quantity) {
+        return repository.getPackageVersion(offset, quantity);
+    }
+
+    /**
+     * Computes the version of the list returned by {@link #getByNamePattern(String, Integer, Integer, boolean)}
+     * with the same arguments, without loading the product types.
+     *
+     * @return a {@link CatalogVersion} of the list
+     */
+    @Transactional(readOnly = true)
+    public CatalogVersion getByNamePatternVersion(String namePattern, Integer offset, Integer quantity, boolean strict) {
+        return repository.getByColumnVersion(namePattern, offset, quantity, strict);
+    }
+
     /**
      * Uses {@link DAO} implementation to retrieve a {@link ProductType} entity by specified identity. <br><br>
      * Re-throws a {@link ResourceNotFoundException} if {@link DAO} object throws an exception or there is
@@ -60,6 +85,7 @@ public class ProductTypeService {
      * @param id an identity of the sought {@link ProductType}
      * @return a {@link ProductType} object with specified identity
      */
+    @Transactional(readOnly = true)
     public ProductType getById(Integer id) {
         return repository.get(id).orElseThrow(() -> new ResourceNotFoundException("Could not find this product type"));
     }
@@ -78,6 +104,7 @@ public class ProductTypeService {
      *               {@code value} as their part (case-insensitive)
      * @return a list of {@link ProductType} objects that match specified pattern
      */
+    @Transactional(readOnly = true)
     public List<ProductType> getByNamePattern(String namePattern, Integer offset, Integer quantity, boolean strict) {
         try {
             var list = repository.getByColumn(namePattern, offset, quantity, strict);
@@ -100,6 +127,7 @@ public class ProductTypeService {
      * @return an identity of saved {@link ProductType}
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional
     public Integer createProductType(ProductType type) {
         Map<String, String> matches = thisNaturalIdExists(type);
         if (matches.size() != 0)
@@ -130,6 +158,7 @@ public class ProductTypeService {
      * @return an identity of updated {@link ProductType}
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional
     public Integer changeProductType(ProductType type) {
         Map<String, String> matches = thisNaturalIdExists(type);
         if (matches.size() != 0)
@@ -157,6 +186,7 @@ public class ProductTypeService {
      * @param id an identity of {@link ProductType} that should be deleted
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR')")
+    @Transactional
     public void deleteProductType(Integer id) {
         try {
             repository.delete(id);
@@ -175,11 +205,8 @@ public class ProductTypeService {
     private Map<String, String> thisNaturalIdExists(ProductType type) {
         Map<String, String> matches = new HashMap<>();
 
-        try {
-            var nameMatch = getByNamePattern(type.getName(), null, null, true);
-            if (nameMatch.size() != 0)
-                matches.put("name", "Product type with this name already exists");
-        } catch(Exception ignored) {}
+        if (repository.exists(type.getName(), type.getProductTypeId()))
+            matches.put("name", "Product type with this name already exists");
 
         return matches;
     }
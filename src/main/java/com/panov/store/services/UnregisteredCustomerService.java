@@ -10,6 +10,7 @@ import com.panov.store.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collections;
 import java.util.List;
@@ -40,6 +41,7 @@ public class UnregisteredCustomerService {
      * @return a {@link List} of {@link UnregisteredCustomer} objects
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional(readOnly = true)
     public List<UnregisteredCustomer> getUnregCustomerList(Integer offset, Integer quantity) {
         try {
             var list = repository.getPackage(offset, quantity);
@@ -63,6 +65,7 @@ public class UnregisteredCustomerService {
      * @return a {@link UnregisteredCustomer} object with specified identity
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional(readOnly = true)
     public UnregisteredCustomer getById(Integer id) {
         return repository.get(id).orElseThrow(() -> new ResourceNotFoundException("Could not find this unregistered customer"));
     }
@@ -73,6 +76,7 @@ public class UnregisteredCustomerService {
      *
      * @param unregCust an object to save
      */
+    @Transactional
     public void createUnregisteredCustomer(UnregisteredCustomer unregCust) {
         Integer id = null;
 
@@ -97,6 +101,7 @@ public class UnregisteredCustomerService {
      * @return an identity of updated {@link UnregisteredCustomer}
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional
     public Integer changeUnregisteredCustomer(UnregisteredCustomer unregCust) {
         Integer id = null;
 
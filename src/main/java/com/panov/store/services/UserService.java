@@ -3,20 +3,26 @@ package com.panov.store.services;
 import com.panov.store.common.Utils;
 import com.panov.store.dao.UserRepository;
 import com.panov.store.dto.AuthEntity;
+import com.panov.store.dto.UserCredentials;
 import com.panov.store.exceptions.ResourceNotCreatedException;
 import com.panov.store.exceptions.ResourceNotFoundException;
 import com.panov.store.exceptions.ResourceNotUpdatedException;
+import com.panov.store.images.ImageStorage;
 import com.panov.store.jwt.JwtService;
+import com.panov.store.jwt.TokenRevocationRegistry;
 import com.panov.store.model.User;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.postgresql.shaded.com.ongres.scram.common.bouncycastle.base64.Base64;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.panov.store.dao.DAO;
-import static com.panov.store.common.Constants.STATIC_IMAGES_FOLDER;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 /**
@@ -30,8 +36,14 @@ import java.util.*;
 @Service
 @RequiredArgsConstructor
 public class UserService {
-    private final DAO<User> repository;
+    private static final Logger LOGGER = LogManager.getLogger(UserService.class);
+
+    private final UserRepository repository;
     private final JwtService jwtService;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final PasswordEncoder passwordEncoder;
+    private final ImageStorage imageStorage;
+    private volatile String dummyHash;
 
     /**
      * Uses {@link DAO} implementation to retrieve list of all existing {@link User} entities. <br><br>
@@ -42,6 +54,7 @@ public class UserService {
      * @return a {@link List} of {@link User} objects
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER')")
+    @Transactional(readOnly = true)
     public List<User> getUserList(Integer offset, Integer quantity) {
         try {
             var list = repository.getPackage(offset, quantity);
@@ -66,6 +79,7 @@ public class UserService {
      * @return a {@link User} object with specified identity
      */
     @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority('MANAGER') or hasAuthority(#id.toString)")
+    @Transactional(readOnly = true)
     public User getById(Integer id) {
         User user = repository.get(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Could not find this user"));
@@ -84,6 +98,7 @@ public class UserService {
      * @param quantity the maximal number of entities that will be fetched
      * @return a list of {@link User} objects whose have specified {@code naturalId}
      */
+    @Transactional(readOnly = true)
     public List<User> getByNaturalId(String naturalId, Integer offset, Integer quantity) {
         try {
             boolean strict = true;
@@ -104,6 +119,7 @@ public class UserService {
      *
      * @param user {@link User} that should be registered
      */
+    @Transactional
     public void registerUser(User user) {
         var matches = thisNaturalIdExists(user);
         if (matches.size() != 0)
@@ -121,6 +137,40 @@ public class UserService {
             throw new ResourceNotCreatedException("Could not create this user");
     }
 
+    /**
+     * Authenticates {@link User} by phone number and password and issues a JWT token for him. <br>
+     * Only {@link UserCredentials} of the user are loaded and the password is verified once. <br>
+     * If there is no user with such phone number, the password is still verified against
+     * a dummy hash, so the response time does not reveal which phone numbers are registered. <br>
+     * The method is not transactional: the credentials are read with their own connection, which
+     * is returned to the pool before the password is hashed, so logins waiting for the hashing
+     * do not hold database connections. <br><br>
+     * Throws a {@link ResourceNotFoundException} if the credentials are wrong.
+     *
+     * @param phoneNumber a phone number of the user
+     * @param password a raw password of the user
+     * @return JWT token and identity of the authenticated user
+     */
+    public AuthEntity login(String phoneNumber, String password) {
+        UserCredentials credentials = repository.getCredentials(phoneNumber).orElse(null);
+
+        if (credentials == null) {
+            passwordEncoder.matches(password, getDummyHash());
+            throw new ResourceNotFoundException("There is no such user");
+        }
+        if (!passwordEncoder.matches(password, credentials.getHashPassword()))
+            throw new ResourceNotFoundException("There is no such user");
+
+        return new AuthEntity(
+                jwtService.createToken(
+                        credentials.getUserId(),
+                        credentials.getPhoneNumber(),
+                        credentials.getAccess()
+                ),
+                credentials.getUserId()
+        );
+    }
+
     /**
      * Uses {@link DAO} implementation to change information of {@link User}. <br><br>
      * Only {@link User} with {@code Access.ADMINISTRATOR} or {@code Access.MANAGER} authority or the
@@ -135,41 +185,91 @@ public class UserService {
             "hasAuthority('ADMINISTRATOR') or " +
             "hasAuthority(#user.getUserId().toString())"
     )
+    @Transactional
     public Integer changeUser(User user) {
         var matches = thisNaturalIdExists(user);
         if (matches.size() != 0)
             throw new ResourceNotCreatedException(matches);
 
         Integer id = null;
+        String previousImage = null;
+        boolean imageChanged = false;
 
         try {
             User inDB = repository.get(user.getUserId())
                     .orElseThrow(() -> new ResourceNotUpdatedException("Could not update this user."));
+            previousImage = inDB.getImage();
             if (user.getImage() == null) {
-                user.setImage(inDB.getImage());
+                user.setImage(previousImage);
             } else {
-                user.setImage(
-                        Utils.saveImageToFilesystem(
-                                user.getImage(),
-                                inDB.getImage()
-                        )
-                );
+                byte[] image = Utils.decodeImage(user.getImage());
+                user.setImage(image == null ? null : imageStorage.save(image));
+                imageChanged = true;
             }
             id = repository.update(user);
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.error("Could not update user {}", user.getUserId(), e);
         }
 
-        if (id == null)
+        if (id == null) {
+            if (imageChanged)
+                imageStorage.release(user.getImage());
             throw new ResourceNotCreatedException("Could not change this user");
+        }
+        if (imageChanged)
+            imageStorage.release(previousImage);
 
         return id;
     }
 
+    /**
+     * Replaces the profile image of existing {@link User} with the image read from provided stream. <br><br>
+     * The image is saved before the user is updated, outside of a transaction, so a slow upload
+     * does not hold a database connection. The previous image is released only after the user
+     * refers to the new one, and the new image is released if the user could not be updated. <br><br>
+     * Only {@link User} with {@code Access.ADMINISTRATOR} authority or the {@link User} that is
+     * the owner of provided identity, can invoke this method. <br><br>
+     * Re-throws a {@link ResourceNotUpdatedException} if the image could not be saved or
+     * {@link DAO} object throws an exception.
+     *
+     * @param id an identity of the {@link User}
+     * @param image stream of the image bytes
+     * @return an identity of updated {@link User}
+     */
+    @PreAuthorize("hasAuthority('ADMINISTRATOR') or hasAuthority(#id.toString())")
+    public Integer changeUserImage(Integer id, InputStream image) {
+        User inDB = repository.get(id)
+                .orElseThrow(() -> new ResourceNotUpdatedException("Could not update this user."));
+
+        String name;
+        try {
+            name = imageStorage.save(image);
+        } catch (IOException e) {
+            LOGGER.error("Could not save a new image of user {}", id, e);
+            throw new ResourceNotUpdatedException("Could not save this image");
+        }
+
+        Integer updated = null;
+        try {
+            updated = repository.updateImage(id, name);
+        } catch (Exception e) {
+            LOGGER.error("Could not set image {} to user {}", name, id, e);
+        }
+
+        if (updated == null) {
+            imageStorage.release(name);
+            throw new ResourceNotUpdatedException("Could not change this user");
+        }
+
+        imageStorage.release(inDB.getImage());
+        return updated;
+    }
+
     @PreAuthorize(
             "hasAuthority('ADMINISTRATOR') or " +
             "hasAuthority(#user.getUserId().toString())"
     )
+    @Transactional
     public AuthEntity changeUserWithPhoneNumber(User user) {
         var inDB = repository.get(user.getUserId())
                 .orElseThrow(() -> new ResourceNotUpdatedException("Could not update this user."));
@@ -181,7 +281,36 @@ public class UserService {
         if (current.equals(requested)) {
             return new AuthEntity("", id);
         }
-        return new AuthEntity(jwtService.createToken(user), id);
+        revocationRegistry.revokeAllFor(id);
+        return new AuthEntity(jwtService.createToken(id, requested, inDB.getAccess()), id);
+    }
+
+    /**
+     * Uses {@link DAO} implementation to change access level of {@link User}. <br>
+     * All the tokens issued to this {@link User} earlier are revoked, because
+     * they carry the old access level. <br><br>
+     * Only {@link User} with {@code Access.ADMINISTRATOR} authority can invoke this method.
+     *
+     * @param user an object that contains new access level and identity of {@link User}
+     * @return an identity of updated {@link User}
+     */
+    @PreAuthorize("hasAuthority('ADMINISTRATOR')")
+    @Transactional
+    public Integer changeUserAccess(User user) {
+        Integer id = changeUser(user);
+        revocationRegistry.revokeAllFor(id);
+        return id;
+    }
+
+    /**
+     * Revokes provided token, so it cannot be used for authentication anymore.
+     *
+     * @param jwt token to revoke
+     */
+    public void logout(String jwt) {
+        var claims = jwtService.parseClaims(jwt);
+        if (claims != null)
+            revocationRegistry.revoke(claims);
     }
 
     /**
@@ -193,33 +322,24 @@ public class UserService {
      */
     private Map<String, String> thisNaturalIdExists(User user) {
         Map<String, String> matches = new HashMap<>();
+        if (user.getPersonalInfo() == null)
+            return matches;
 
-        try {
-            var phoneNumberMatch = getByNaturalId(user.getPersonalInfo().getPhoneNumber(), null, null);
-            phoneNumberMatch = phoneNumberMatch
-                    .stream()
-                    .filter(u -> u.getPersonalInfo().getPhoneNumber() != null)
-                    .toList();
-            if (phoneNumberMatch.size() != 0 && !user.getUserId().equals(phoneNumberMatch.get(0).getUserId()))
-                matches.put("phoneNumber", "User with this phone number already exists");
-        } catch(Exception ignored) {}
+        if (repository.exists(user.getPersonalInfo().getPhoneNumber(), user.getUserId()))
+            matches.put("phoneNumber", "User with this phone number already exists");
 
-        try {
-            var emailMatch = getByNaturalId(user.getPersonalInfo().getEmail(), null, null);
-            emailMatch = emailMatch
-                    .stream()
-                    .filter(
-                            u -> u.getPersonalInfo().getEmail() != null &&
-                                !u.getPersonalInfo().getEmail().isBlank()
-                    )
-                    .toList();
-            if (emailMatch.size() != 0 && !user.getUserId().equals(emailMatch.get(0).getUserId()))
-                matches.put("email", "User with this email already exists");
-        } catch(Exception ignored) {}
+        if (repository.exists(user.getPersonalInfo().getEmail(), user.getUserId()))
+            matches.put("email", "User with this email already exists");
 
         return matches;
     }
 
+    private String getDummyHash() {
+        if (dummyHash == null)
+            dummyHash = passwordEncoder.encode("dummy-password");
+        return dummyHash;
+    }
+
     private void fetchProfileImage(User user) {
         if (user.getImage() == null) {
             return;
@@ -227,12 +347,11 @@ public class UserService {
         String imageName = user.getImage();
 
         try {
-            File imageFile = new File(STATIC_IMAGES_FOLDER + "/" + imageName);
-            byte[] imageBytes = FileUtils.readFileToByteArray(imageFile);
+            byte[] imageBytes = imageStorage.read(imageName);
             String imageEncoded = Base64.toBase64String(imageBytes);
             user.setImage(imageEncoded);
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.error("Could not read image {} of user {}", imageName, user.getUserId(), e);
         }
     }
 }
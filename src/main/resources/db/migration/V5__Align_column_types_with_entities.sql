@@ -0,0 +1,31 @@
+ALTER TABLE deliverytype ALTER COLUMN deliverytypeid TYPE INTEGER;
+ALTER TABLE "Order" ALTER COLUMN deliverytypeid TYPE INTEGER;
+
+ALTER TABLE producttype ALTER COLUMN producttypeid TYPE INTEGER;
+ALTER TABLE typeunit ALTER COLUMN producttypeid TYPE INTEGER;
+
+ALTER TABLE "Order" ALTER COLUMN status TYPE VARCHAR(1);
+
+ALTER TABLE "User"
+    ALTER COLUMN access TYPE VARCHAR(1),
+    ALTER COLUMN building TYPE INTEGER,
+    ALTER COLUMN apartment TYPE INTEGER;
+
+ALTER TABLE unregisteredcustomer
+    ALTER COLUMN building TYPE INTEGER,
+    ALTER COLUMN apartment TYPE INTEGER;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1
+        FROM pg_index i
+        JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = i.indkey[0]
+        WHERE i.indrelid = 'product'::regclass
+          AND i.indisunique
+          AND i.indnatts = 1
+          AND a.attname = 'name'
+    ) THEN
+        ALTER TABLE product ADD CONSTRAINT product_name_key UNIQUE (name);
+    END IF;
+END $$;
@@ -0,0 +1,4 @@
+-- Time of the last change of catalog rows, compared by conditional GET requests
+ALTER TABLE product ADD COLUMN updatedat TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now();
+ALTER TABLE producttype ADD COLUMN updatedat TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now();
+ALTER TABLE deliverytype ADD COLUMN updatedat TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now();
@@ -0,0 +1,10 @@
+-- Content-addressed image names are 64 hex digits of SHA-256 and an extension
+ALTER TABLE product ALTER COLUMN image TYPE VARCHAR(100);
+ALTER TABLE "User" ALTER COLUMN image TYPE VARCHAR(100);
+
+-- Number of products and users that refer to an image file. Rows of images that were
+-- stored before this migration are created on their first change from the actual references.
+CREATE TABLE image (
+    name VARCHAR(100) PRIMARY KEY,
+    referencecount INTEGER NOT NULL
+);
@@ -0,0 +1,3 @@
+-- Time of the last acquire of an image. The collector of unreferenced images keeps an image
+-- acquired within its grace period, because the upload may not be attached to a product yet.
+ALTER TABLE image ADD COLUMN acquiredat TIMESTAMP WITHOUT TIME ZONE;
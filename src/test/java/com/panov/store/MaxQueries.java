@@ -0,0 +1,30 @@
+package com.panov.store;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fails the annotated test if its body executes more SQL statements than allowed,
+ * or repeats one statement shape more times than allowed.
+ * {@code @BeforeEach} and {@code @AfterEach} methods are not counted.
+ *
+ * @see QueryCountExtension
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(QueryCountExtension.class)
+public @interface MaxQueries {
+    /**
+     * @return maximum number of SQL statements
+     */
+    int value();
+
+    /**
+     * @return maximum number of times one statement shape may be executed
+     */
+    int repeats() default Integer.MAX_VALUE;
+}
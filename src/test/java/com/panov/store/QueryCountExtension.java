@@ -0,0 +1,47 @@
+package com.panov.store;
+
+import com.panov.store.metrics.QueryCounter;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts SQL statements executed by a test annotated with {@link MaxQueries} and checks them
+ * against the limits of the annotation. Statements are counted on the test thread,
+ * so this works for repositories as well as for controllers called through MockMvc.
+ */
+public class QueryCountExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        QueryCounter.start();
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        var counter = QueryCounter.stop();
+        var limits = context.getRequiredTestMethod().getAnnotation(MaxQueries.class);
+        if (counter == null || limits == null || context.getExecutionException().isPresent())
+            return;
+
+        Map<String, Integer> repeated = counter.getRepeatedStatements(1);
+        String statements = repeated.entrySet()
+                .stream()
+                .map(e -> e.getValue() + " x " + e.getKey())
+                .collect(Collectors.joining("\n"));
+        if (statements.isEmpty())
+            statements = "none";
+
+        assertThat(counter.getCount())
+                .as("SQL statements, repeated ones:\n%s", statements)
+                .isLessThanOrEqualTo(limits.value());
+        assertThat(repeated.values().stream().mapToInt(Integer::intValue).max().orElse(1))
+                .as("repeats of one SQL statement:\n%s", statements)
+                .isLessThanOrEqualTo(limits.repeats());
+    }
+}
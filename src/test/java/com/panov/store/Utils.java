@@ -13,6 +13,7 @@ public final class Utils {
         em.createNativeQuery("DELETE FROM Product").executeUpdate();
         em.createNativeQuery("DELETE FROM \"User\"").executeUpdate();
         em.createNativeQuery("DELETE FROM UnregisteredCustomer").executeUpdate();
+        em.createNativeQuery("DELETE FROM Image").executeUpdate();
         em.getTransaction().commit();
     }
 }
@@ -0,0 +1,91 @@
+package com.panov.store.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResponseCacheTest {
+    private static final int BODY_SIZE = 10_000;
+
+    private ResponseCache cacheUnderTest;
+
+    @BeforeEach
+    void createCache() {
+        cacheUnderTest = new ResponseCache(true, 100_000, 60_000, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void removeListener() {
+        cacheUnderTest.destroy();
+    }
+
+    @Test
+    void shouldKeepPopularResponseDuringScanOfResponsesRequestedOnce() {
+        // given
+        var popular = new CachedResponse(new byte[BODY_SIZE], null);
+        cacheUnderTest.get("popular");
+        cacheUnderTest.put("popular", popular, cacheUnderTest.generation());
+        for (int i = 0; i < 5; i++)
+            cacheUnderTest.get("popular");
+
+        // when
+        for (int i = 0; i < 50; i++) {
+            String key = "page-" + i;
+            if (cacheUnderTest.get(key) == null)
+                cacheUnderTest.put(key, new CachedResponse(new byte[BODY_SIZE], null), cacheUnderTest.generation());
+        }
+
+        // then
+        assertThat(cacheUnderTest.get("popular")).isSameAs(popular);
+        assertThat(cacheUnderTest.size()).isLessThanOrEqualTo(100_000);
+    }
+
+    @Test
+    void shouldNotStoreResponseComputedBeforeInvalidation() {
+        // given
+        cacheUnderTest.put("first", new CachedResponse(new byte[10], null), cacheUnderTest.generation());
+        long generation = cacheUnderTest.generation();
+
+        // when
+        cacheUnderTest.invalidate();
+        cacheUnderTest.put("second", new CachedResponse(new byte[10], null), generation);
+
+        // then
+        assertThat(cacheUnderTest.get("first")).isNull();
+        assertThat(cacheUnderTest.get("second")).isNull();
+        assertThat(cacheUnderTest.size()).isZero();
+    }
+
+    @Test
+    void shouldRemoveOnlyResponsesWithChangedProducts() {
+        // given
+        cacheUnderTest.put("page", new CachedResponse(new byte[10], null, new int[] { 1, 2 }), cacheUnderTest.generation());
+        cacheUnderTest.put("other", new CachedResponse(new byte[10], null, new int[] { 3 }), cacheUnderTest.generation());
+        cacheUnderTest.put("unknown", new CachedResponse(new byte[10], null), cacheUnderTest.generation());
+        long generation = cacheUnderTest.generation();
+
+        // when
+        cacheUnderTest.invalidate(Set.of(2));
+        cacheUnderTest.put("late page", new CachedResponse(new byte[10], null, new int[] { 2 }), generation);
+        cacheUnderTest.put("late other", new CachedResponse(new byte[10], null, new int[] { 3 }), generation);
+
+        // then
+        assertThat(cacheUnderTest.get("page")).isNull();
+        assertThat(cacheUnderTest.get("unknown")).isNull();
+        assertThat(cacheUnderTest.get("other")).isNotNull();
+        assertThat(cacheUnderTest.get("late page")).isNull();
+        assertThat(cacheUnderTest.get("late other")).isNotNull();
+    }
+
+    @Test
+    void shouldEscapeSeparatorsInKeys() {
+        assertThat(ResponseCache.key("products", "a|b", null, 0))
+                .isNotEqualTo(ResponseCache.key("products", "a", "b", 0))
+                .isEqualTo("products|a\\|b||0");
+    }
+}
@@ -0,0 +1,106 @@
+package com.panov.store.catalog;
+
+import com.panov.store.dao.CatalogVersion;
+import com.panov.store.model.ProductType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CatalogSnapshotTest {
+    private static final Timestamp UPDATED_AT = Timestamp.valueOf("2024-03-01 12:00:00.123456");
+
+    private CatalogSnapshot snapshotUnderTest;
+
+    @BeforeEach
+    void createSnapshot() {
+        snapshotUnderTest = new CatalogSnapshot.Builder()
+                .product(3, "Red Apple", "Sweet", "a.png", new BigDecimal("1.50"), 10, UPDATED_AT)
+                .product(7, "Green apple", null, null, new BigDecimal("2"), null, null)
+                .product(9, "Pear 100%", "Juicy", null, null, 0, UPDATED_AT)
+                .product(12, "Plum", "Sour", null, new BigDecimal("0.99"), 4, UPDATED_AT)
+                .productType(1, "Fruits")
+                .productType(5, "Green")
+                .membership(12, 1)
+                .membership(3, 1)
+                .membership(7, 1)
+                .membership(7, 5)
+                .build(null, 0, System.nanoTime());
+    }
+
+    @Test
+    void shouldReturnPagesOfCategoriesInOrderOfIdentities() {
+        // when
+        int[] fruits = snapshotUnderTest.range(1, 5, 1);
+        int[] green = snapshotUnderTest.range(null, null, 5);
+        int[] unknown = snapshotUnderTest.range(null, null, 2);
+        int[] all = snapshotUnderTest.range(-1, 2, null);
+
+        // then
+        assertThat(fruits).containsExactly(snapshotUnderTest.indexOf(7), snapshotUnderTest.indexOf(12));
+        assertThat(green).containsExactly(snapshotUnderTest.indexOf(7));
+        assertThat(unknown).isEmpty();
+        assertThat(all).containsExactly(0, 1);
+        assertThat(snapshotUnderTest.range(0, 0, null)).isEmpty();
+    }
+
+    @Test
+    void shouldMatchNamesAsLikePatternIgnoringCase() {
+        assertThat(snapshotUnderTest.byName("APPLE", null, null)).containsExactly(0, 1);
+        assertThat(snapshotUnderTest.byName("pl_m", null, null)).containsExactly(3);
+        assertThat(snapshotUnderTest.byName("0\\%", null, null)).containsExactly(2);
+        assertThat(snapshotUnderTest.byName("apple", 1, 1)).containsExactly(1);
+        assertThat(snapshotUnderTest.byName("apple\\", null, null)).isNull();
+    }
+
+    @Test
+    void shouldCreateProductsAndVersionsEqualToDatabaseOnes() {
+        // given
+        int position = snapshotUnderTest.indexOf(7);
+
+        // when
+        var product = snapshotUnderTest.product(position);
+        var version = snapshotUnderTest.version(snapshotUnderTest.range(null, null, null));
+
+        // then
+        assertThat(snapshotUnderTest.indexOf(8)).isNegative();
+        assertThat(product.getPrice()).isEqualTo(new BigDecimal("2.00"));
+        assertThat(product.getStock()).isNull();
+        assertThat(product.getProductTypes()).extracting(ProductType::getName).containsExactly("Fruits", "Green");
+        assertThat(version).isEqualTo(CatalogVersion.of(List.of(
+                new Object[] { 3, UPDATED_AT },
+                new Object[] { 7, null },
+                new Object[] { 9, UPDATED_AT },
+                new Object[] { 12, UPDATED_AT }
+        )));
+    }
+
+    @Test
+    void shouldPatchPricesAndStocksIntoCopy() {
+        // given
+        var updatedAt = Timestamp.valueOf("2024-03-02 08:00:00");
+        var rows = new CatalogSnapshot.Builder()
+                .product(12, null, null, null, new BigDecimal("1.10"), 3, updatedAt)
+                .product(3, null, null, null, null, null, updatedAt);
+
+        // when
+        var patched = snapshotUnderTest.patched(rows, 1);
+        var unknown = snapshotUnderTest.patched(new CatalogSnapshot.Builder()
+                .product(8, null, null, null, null, 1, updatedAt), 1);
+
+        // then
+        var plum = patched.product(patched.indexOf(12));
+        assertThat(plum.getName()).isEqualTo("Plum");
+        assertThat(plum.getPrice()).isEqualTo(new BigDecimal("1.10"));
+        assertThat(plum.getStock()).isEqualTo(3);
+        assertThat(plum.getUpdatedAt()).isEqualTo(updatedAt);
+        assertThat(patched.product(patched.indexOf(3)).getStock()).isNull();
+        assertThat(patched.product(patched.indexOf(7)).getPrice()).isEqualTo(new BigDecimal("2.00"));
+        assertThat(snapshotUnderTest.product(snapshotUnderTest.indexOf(12)).getStock()).isEqualTo(4);
+        assertThat(unknown).isNull();
+    }
+}
@@ -0,0 +1,81 @@
+package com.panov.store.compression;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GzipCompressionFilterTest {
+    private final GzipCompressionFilter filterUnderTest = new GzipCompressionFilter(true, 2048, 1);
+
+    @Test
+    void shouldCompressLargeJsonResponsesForClientsThatAcceptGzip() throws Exception {
+        // given
+        String body = "[" + "{\"name\":\"Product\"},".repeat(500) + "{}]";
+        var response = new MockHttpServletResponse();
+
+        // when
+        filterUnderTest.doFilter(request("gzip, deflate, br"), response, writing(MediaType.APPLICATION_JSON_VALUE, body));
+
+        // then
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(response.getHeader("Vary")).isEqualTo("Accept-Encoding");
+        assertThat(response.getContentAsByteArray().length).isLessThan(body.length() / 10);
+        try (var gzip = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(new String(gzip.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(body);
+        }
+    }
+
+    @Test
+    void shouldNotCompressSmallOrNotJsonResponsesOrForClientsThatDoNotAcceptGzip() throws Exception {
+        // given
+        String small = "{\"name\":\"Product\"}";
+        String large = "x".repeat(4096);
+        var smallResponse = new MockHttpServletResponse();
+        var textResponse = new MockHttpServletResponse();
+        var rejectingResponse = new MockHttpServletResponse();
+
+        // when
+        filterUnderTest.doFilter(request("gzip"), smallResponse, writing(MediaType.APPLICATION_JSON_VALUE, small));
+        filterUnderTest.doFilter(request("gzip"), textResponse, writing(MediaType.TEXT_PLAIN_VALUE, large));
+        filterUnderTest.doFilter(request("gzip;q=0, *"), rejectingResponse,
+                writing(MediaType.APPLICATION_JSON_VALUE, large));
+
+        // then
+        assertThat(smallResponse.getHeader("Content-Encoding")).isNull();
+        assertThat(smallResponse.getContentAsString()).isEqualTo(small);
+        assertThat(smallResponse.getContentLength()).isEqualTo(small.length());
+        assertThat(textResponse.getHeader("Content-Encoding")).isNull();
+        assertThat(textResponse.getContentAsString()).isEqualTo(large);
+        assertThat(rejectingResponse.getHeader("Content-Encoding")).isNull();
+        assertThat(rejectingResponse.getContentAsString()).isEqualTo(large);
+    }
+
+    private static MockHttpServletRequest request(String acceptEncoding) {
+        var request = new MockHttpServletRequest("GET", "/api/v2/products");
+        request.addHeader("Accept-Encoding", acceptEncoding);
+        return request;
+    }
+
+    private static MockFilterChain writing(String contentType, String body) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.setContentType(contentType);
+                resp.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+                resp.getOutputStream().flush();
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.panov.store.dao;
+
+import com.panov.store.model.OrderProducts;
+import com.panov.store.model.Product;
+import com.panov.store.model.ProductType;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkLoaderTest {
+    static JdbcDataSource dataSource;
+    static EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    static void init() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:bulk_loader;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+
+        entityManagerFactory = Persistence.createEntityManagerFactory(
+                "test-db-context",
+                Map.of(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource)
+        );
+    }
+
+    @AfterAll
+    static void purge() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void shouldLoadInitialDataInSmallBatchesAndResolveReferencesByPosition(@TempDir Path images) throws Exception {
+        // given
+        var productTypeRepository = new ProductTypeRepository(entityManagerFactory);
+        var productRepository = new ProductRepository(entityManagerFactory);
+        var orderRepository = new OrderRepository(entityManagerFactory);
+
+        // shifts identities, so positions in the files are not equal to them
+        var existing = new ProductType();
+        existing.setName("Existing type");
+        productTypeRepository.insert(existing);
+
+        var loaderUnderTest = new BulkLoader(dataSource, new DefaultResourceLoader(), 7, 2);
+
+        // when
+        loaderUnderTest.load("classpath:META-INF/initial", images);
+
+        var productTypes = productTypeRepository.getPackage(null, null);
+        var products = productRepository.getPackage(null, null);
+        var sapiens = productRepository.getByColumn("Sapiens by Yuval Noah Harari", null, null, true);
+        var orders = orderRepository.getPackage(null, null);
+
+        // then
+        assertThat(productTypes).hasSize(16);
+        assertThat(products).hasSize(81);
+        assertThat(sapiens).hasSize(1);
+        assertThat(sapiens.get(0).getProductTypes())
+                .extracting(ProductType::getName)
+                .containsExactly("Books");
+
+        assertThat(orders).hasSize(15);
+        assertThat(orders)
+                .allMatch(o -> o.getDeliveryType() != null)
+                .allMatch(o -> o.getUser() != null || o.getUnregisteredCustomer() != null)
+                .allMatch(o -> !o.getOrderProducts().isEmpty())
+                .allMatch(o -> o.getTotal().compareTo(o.getOrderProducts().stream()
+                        .map(OrderProducts::getSum)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add)) == 0);
+        assertThat(orders.stream().flatMap(o -> o.getOrderProducts().stream()))
+                .allMatch(op -> op.getSum().compareTo(
+                        op.getProduct().getPrice().multiply(BigDecimal.valueOf(op.getQuantity()))) == 0);
+        // the file says 104.03 for the single product of 13.89
+        assertThat(orders)
+                .filteredOn(o -> o.getOrderProducts().size() == 1
+                        && o.getOrderProducts().get(0).getProduct().getName().startsWith("2x LED Solar Cup Pad"))
+                .singleElement()
+                .satisfies(o -> assertThat(o.getTotal()).isEqualByComparingTo("13.89"));
+
+        // ordered by three orders, one item each
+        assertThat(productStartingWith(products, "The Dark Side of the Mind").getStock()).isEqualTo(9);
+        // ordered only by an abolished order
+        assertThat(productStartingWith(products, "Round Diamond Ring").getStock()).isEqualTo(4);
+
+        assertThat(Files.exists(images.resolve(sapiens.get(0).getImage()))).isTrue();
+        try (var files = Files.list(images)) {
+            assertThat(files.count()).isGreaterThanOrEqualTo(
+                    products.stream().map(Product::getImage).filter(Objects::nonNull).distinct().count()
+            );
+        }
+    }
+
+    private static Product productStartingWith(List<Product> products, String name) {
+        return products.stream().filter(p -> p.getName().startsWith(name)).findFirst().orElseThrow();
+    }
+}
@@ -1,5 +1,6 @@
 package com.panov.store.dao;
 
+import com.panov.store.MaxQueries;
 import com.panov.store.Utils;
 import com.panov.store.model.DeliveryType;
 import jakarta.persistence.EntityManagerFactory;
@@ -33,6 +34,7 @@ public class DeliveryTypeRepositoryTest {
     }
 
     @Test
+    @MaxQueries(7)
     void shouldReturnAllExistingDeliveryTypes() {
         var repoTest = new DeliveryTypeRepository(entityManagerFactory);
 
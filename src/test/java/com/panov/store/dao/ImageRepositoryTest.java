@@ -0,0 +1,110 @@
+package com.panov.store.dao;
+
+import com.panov.store.Utils;
+import com.panov.store.model.Product;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImageRepositoryTest {
+    static EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    static void init() {
+        entityManagerFactory = Persistence.createEntityManagerFactory("test-db-context");
+    }
+
+    @AfterEach
+    void cleanDatabase() {
+        Utils.cleanDatabase(entityManagerFactory.createEntityManager());
+    }
+
+    @AfterAll
+    static void purge() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void shouldCountReferencesOfNotCountedImagesFromProductsAndUsers() {
+        // given
+        var productRepository = new ProductRepository(entityManagerFactory);
+        var repositoryUnderTest = new ImageRepository(entityManagerFactory);
+        List<String> deleted = new ArrayList<>();
+
+        int bread = productRepository.insert(product("Bread", "seeded.png"));
+        productRepository.insert(product("Steak", "seeded.png"));
+        productRepository.insert(product("Toy", "other.png"));
+
+        // when
+        productRepository.updateImage(bread, null);
+        boolean last = repositoryUnderTest.release("seeded.png", deleted::add);
+
+        // then
+        assertThat(last).isFalse();
+        assertThat(deleted).isEmpty();
+        assertThat(repositoryUnderTest.getReferenceCount("seeded.png")).contains(1);
+
+        // when
+        repositoryUnderTest.acquire("other.png");
+        repositoryUnderTest.acquire("new.png");
+
+        // then
+        assertThat(repositoryUnderTest.getReferenceCount("other.png")).contains(2);
+        assertThat(repositoryUnderTest.getReferenceCount("new.png")).contains(1);
+
+        // when
+        last = repositoryUnderTest.release("new.png", deleted::add);
+
+        // then
+        assertThat(last).isTrue();
+        assertThat(deleted).containsExactly("new.png");
+        assertThat(repositoryUnderTest.getReferenceCount("new.png")).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    void shouldNotCollectImageAcquiredWithinGracePeriod() {
+        // given
+        var repositoryUnderTest = new ImageRepository(entityManagerFactory);
+        List<String> deleted = new ArrayList<>();
+        repositoryUnderTest.acquire("uploaded.png");
+
+        // when
+        boolean collectedEarly = repositoryUnderTest.collect(
+                "uploaded.png", Instant.now().minus(Duration.ofHours(1)), deleted::add);
+
+        // then
+        assertThat(collectedEarly).isFalse();
+        assertThat(deleted).isEmpty();
+        assertThat(repositoryUnderTest.getReferenceCount("uploaded.png")).contains(1);
+
+        // when
+        boolean collectedLater = repositoryUnderTest.collect(
+                "uploaded.png", Instant.now().plusSeconds(1), deleted::add);
+
+        // then
+        assertThat(collectedLater).isTrue();
+        assertThat(deleted).containsExactly("uploaded.png");
+        assertThat(repositoryUnderTest.getReferenceCount("uploaded.png")).isEqualTo(Optional.empty());
+    }
+
+    private static Product product(String name, String image) {
+        var product = new Product();
+        product.setName(name);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStock(1);
+        product.setImage(image);
+        return product;
+    }
+}
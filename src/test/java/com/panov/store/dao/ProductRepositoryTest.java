@@ -1,5 +1,6 @@
 package com.panov.store.dao;
 
+import com.panov.store.MaxQueries;
 import com.panov.store.Utils;
 import com.panov.store.model.Product;
 import com.panov.store.model.ProductType;
@@ -451,4 +452,33 @@ public class ProductRepositoryTest {
         assertThat(update3.get()).isEqualTo(product3);
         assertThat(update3.get().getProductTypes().isEmpty()).isEqualTo(product3.getProductTypes().isEmpty());
     }
+
+    @Test
+    @MaxQueries(2)
+    void shouldCheckExistenceByExactName() {
+        // given
+        var repositoryUnderTest = new ProductRepository(entityManagerFactory);
+
+        var product = new Product();
+        product.setName("Steak");
+        product.setDescription("Beautiful rib roast");
+        product.setPrice(new BigDecimal("550.00"));
+        product.setStock(5);
+
+        // when
+        var id = repositoryUnderTest.insert(product);
+
+        var byName = repositoryUnderTest.exists("Steak", null);
+        var byOtherId = repositoryUnderTest.exists("Steak", id + 1);
+        var byOwnId = repositoryUnderTest.exists("Steak", id);
+        var byPartialName = repositoryUnderTest.exists("Stea", null);
+        var byNull = repositoryUnderTest.exists(null, null);
+
+        // then
+        assertThat(byName).isTrue();
+        assertThat(byOtherId).isTrue();
+        assertThat(byOwnId).isFalse();
+        assertThat(byPartialName).isFalse();
+        assertThat(byNull).isFalse();
+    }
 }
@@ -299,4 +299,44 @@ public class ProductTypeRepositoryTest {
         assertThat(actualAfterSecondDeletion).isEqualTo(expectedAfterSecondDeletion);
         assertThat(actualAfterThirdDeletion).isEqualTo(expectedAfterThirdDeletion);
     }
+
+    @Test
+    void shouldChangeVersionOfPackageWhenProductTypesAreChangedAddedOrDeleted() {
+        // given
+        var repositoryUnderTest = new ProductTypeRepository(entityManagerFactory);
+
+        var type1 = new ProductType();
+        var type2 = new ProductType();
+
+        type1.setName("Bread");
+        type2.setName("Meat");
+
+        var id1 = repositoryUnderTest.insert(type1);
+
+        // when
+
+        var initial = repositoryUnderTest.getPackageVersion(null, null);
+        var unchanged = repositoryUnderTest.getPackageVersion(null, null);
+
+        var renamed = new ProductType();
+        renamed.setProductTypeId(id1);
+        renamed.setName("Pastry");
+        repositoryUnderTest.update(renamed);
+        var afterUpdate = repositoryUnderTest.getPackageVersion(null, null);
+
+        var id2 = repositoryUnderTest.insert(type2);
+        var afterInsert = repositoryUnderTest.getPackageVersion(null, null);
+
+        repositoryUnderTest.delete(id2);
+        var afterDelete = repositoryUnderTest.getPackageVersion(null, null);
+
+        // then
+
+        assertThat(unchanged).isEqualTo(initial);
+        assertThat(afterUpdate.tag()).isNotEqualTo(initial.tag());
+        assertThat(afterInsert.tag()).isNotIn(initial.tag(), afterUpdate.tag());
+        assertThat(afterDelete.tag()).isEqualTo(afterUpdate.tag());
+        assertThat(afterDelete.lastModified()).isNotNull();
+        assertThat(afterDelete.eTag()).isEqualTo("W/\"" + afterDelete.tag() + "\"");
+    }
 }
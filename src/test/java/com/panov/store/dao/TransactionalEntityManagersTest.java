@@ -0,0 +1,78 @@
+package com.panov.store.dao;
+
+import com.panov.store.Utils;
+import com.panov.store.model.ProductType;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransactionalEntityManagersTest {
+    static EntityManagerFactory entityManagerFactory;
+    static TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    static void init() {
+        entityManagerFactory = Persistence.createEntityManagerFactory("test-db-context");
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+    }
+
+    @AfterEach
+    void cleanDatabase() {
+        Utils.cleanDatabase(entityManagerFactory.createEntityManager());
+    }
+
+    @AfterAll
+    static void purge() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void shouldShareOnePersistenceContextWithinTransaction() {
+        // given
+        var repositoryUnderTest = new ProductTypeRepository(entityManagerFactory);
+
+        var type = new ProductType();
+        type.setName("Bread");
+
+        // when
+        var sameInstance = transactionTemplate.execute(status -> {
+            Integer id = repositoryUnderTest.insert(type);
+            var first = repositoryUnderTest.get(id).orElseThrow();
+            var second = repositoryUnderTest.get(id).orElseThrow();
+            return first == type && second == type;
+        });
+
+        var outsideTransaction = repositoryUnderTest.getPackage(null, null);
+
+        // then
+        assertThat(sameInstance).isTrue();
+        assertThat(outsideTransaction).extracting(ProductType::getName).containsExactly("Bread");
+    }
+
+    @Test
+    void shouldNotCommitRepositoryWritesOfRolledBackTransaction() {
+        // given
+        var repositoryUnderTest = new ProductTypeRepository(entityManagerFactory);
+
+        var type = new ProductType();
+        type.setName("Meat");
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            repositoryUnderTest.insert(type);
+            status.setRollbackOnly();
+        });
+
+        var actual = repositoryUnderTest.getPackage(null, null);
+
+        // then
+        assertThat(actual).isEmpty();
+    }
+}
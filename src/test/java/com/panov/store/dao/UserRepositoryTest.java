@@ -1,5 +1,6 @@
 package com.panov.store.dao;
 
+import com.panov.store.MaxQueries;
 import com.panov.store.Utils;
 import com.panov.store.model.Address;
 import com.panov.store.model.User;
@@ -403,4 +404,85 @@ public class UserRepositoryTest {
         assertThat(upd2.get().getAddress()).isEqualTo(u2.getAddress());
         assertThat(upd2.get().getAccess()).isEqualTo(u2.getAccess());
     }
+
+    @Test
+    @MaxQueries(5)
+    void shouldReturnCredentialsByExactPhoneNumber() {
+        // given
+        var repoTest = new UserRepository(entityManagerFactory);
+
+        var u1 = new User();
+        var u2 = new User();
+
+        var pi1 = new User.PersonalInfo();
+        var pi2 = new User.PersonalInfo();
+
+        pi1.setPhoneNumber("0994824689");
+        pi1.setFirstname("Dmytro");
+
+        u1.setPersonalInfo(pi1);
+        u1.setAddress(new Address());
+        u1.setAccess(Access.ADMINISTRATOR);
+        u1.setHashPassword("hash1");
+
+        pi2.setPhoneNumber("0964269257");
+        pi2.setFirstname("Maksym");
+
+        u2.setPersonalInfo(pi2);
+        u2.setAddress(new Address());
+        u2.setAccess(Access.USER);
+        u2.setHashPassword("hash2");
+
+        // when
+        var id1 = repoTest.insert(u1);
+        repoTest.insert(u2);
+
+        var actual1 = repoTest.getCredentials("0994824689");
+        var actual2 = repoTest.getCredentials("099482468");
+        var actual3 = repoTest.getCredentials("0000000000");
+
+        // then
+        assertThat(actual1.isPresent()).isTrue();
+        assertThat(actual1.get().getUserId()).isEqualTo(id1);
+        assertThat(actual1.get().getPhoneNumber()).isEqualTo("0994824689");
+        assertThat(actual1.get().getHashPassword()).isEqualTo("hash1");
+        assertThat(actual1.get().getAccess()).isEqualTo(Access.ADMINISTRATOR);
+        assertThat(actual2.isPresent()).isFalse();
+        assertThat(actual3.isPresent()).isFalse();
+    }
+
+    @Test
+    @MaxQueries(5)
+    void shouldCheckExistenceByExactPhoneNumberOrEmail() {
+        // given
+        var repoTest = new UserRepository(entityManagerFactory);
+
+        var u1 = new User();
+        var pi1 = new User.PersonalInfo();
+
+        pi1.setPhoneNumber("0994824689");
+        pi1.setEmail("dmytro@gmail.com");
+        pi1.setFirstname("Dmytro");
+
+        u1.setPersonalInfo(pi1);
+        u1.setAddress(new Address());
+        u1.setAccess(Access.USER);
+        u1.setHashPassword("hash1");
+
+        // when
+        var id1 = repoTest.insert(u1);
+
+        var byPhone = repoTest.exists("0994824689", null);
+        var byEmail = repoTest.exists("dmytro@gmail.com", null);
+        var byPartialPhone = repoTest.exists("099482468", null);
+        var byOwnPhone = repoTest.exists("0994824689", id1);
+        var byBlank = repoTest.exists("", null);
+
+        // then
+        assertThat(byPhone).isTrue();
+        assertThat(byEmail).isTrue();
+        assertThat(byPartialPhone).isFalse();
+        assertThat(byOwnPhone).isFalse();
+        assertThat(byBlank).isFalse();
+    }
 }
@@ -0,0 +1,109 @@
+package com.panov.store.dataset;
+
+import com.panov.store.dao.BulkLoader;
+import com.panov.store.dao.OrderRepository;
+import com.panov.store.dao.ProductRepository;
+import com.panov.store.dao.UserRepository;
+import com.panov.store.model.Order;
+import com.panov.store.model.OrderProducts;
+import com.panov.store.model.Product;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DatasetGeneratorTest {
+
+    @Test
+    void shouldGenerateTheSameDatasetFromTheSameSeed(@TempDir Path first, @TempDir Path second,
+                                                      @TempDir Path other) throws Exception {
+        // given
+        var settings = smallSettings(7);
+        var otherSettings = smallSettings(8);
+
+        // when
+        new DatasetGenerator(settings).generate(first);
+        new DatasetGenerator(settings).generate(second);
+        new DatasetGenerator(otherSettings).generate(other);
+
+        // then
+        for (String file : new String[] { "product_types.json", "products.json", "users.json", "orders.json" }) {
+            assertThat(Files.readAllBytes(first.resolve(file))).isEqualTo(Files.readAllBytes(second.resolve(file)));
+        }
+        assertThat(Files.readAllBytes(first.resolve("orders.json")))
+                .isNotEqualTo(Files.readAllBytes(other.resolve("orders.json")));
+    }
+
+    @Test
+    void shouldGenerateDatasetThatBulkLoaderLoads(@TempDir Path directory) throws Exception {
+        // given
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:dataset_generator;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+        EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(
+                "test-db-context",
+                Map.of(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource)
+        );
+
+        var generatorUnderTest = new DatasetGenerator(smallSettings(42));
+
+        try {
+            // when
+            generatorUnderTest.generate(directory);
+            new BulkLoader(dataSource, new DefaultResourceLoader(), 50, 1)
+                    .load(directory.toUri().toString(), directory);
+
+            var products = new ProductRepository(entityManagerFactory).getPackage(null, null);
+            var users = new UserRepository(entityManagerFactory).getPackage(null, null);
+            var orders = new OrderRepository(entityManagerFactory).getPackage(null, null);
+
+            Map<Integer, Long> linesPerProduct = orders.stream()
+                    .flatMap(o -> o.getOrderProducts().stream())
+                    .collect(Collectors.groupingBy(op -> op.getProduct().getProductId(), Collectors.counting()));
+            long mostPopular = linesPerProduct.values().stream().max(Long::compare).orElse(0L);
+            double average = linesPerProduct.values().stream().mapToLong(Long::longValue).average().orElse(0);
+
+            // then
+            assertThat(products).hasSize(200);
+            assertThat(users).hasSize(30);
+            assertThat(orders).hasSize(300);
+            assertThat(orders)
+                    .allMatch(o -> !o.getOrderProducts().isEmpty())
+                    .allMatch(o -> o.getTotal().compareTo(o.getOrderProducts().stream()
+                            .map(OrderProducts::getSum)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add)) == 0);
+            assertThat(orders.stream().map(Order::getUnregisteredCustomer).filter(Objects::nonNull).count())
+                    .isPositive();
+            // skewed popularity: the top product is in many more orders than an average one
+            assertThat(mostPopular).isGreaterThan((long) (average * 5));
+            assertThat(products.stream().collect(Collectors.toMap(Product::getName, Function.identity())))
+                    .hasSize(200);
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+
+    private static DatasetGenerator.Settings smallSettings(long seed) {
+        var settings = new DatasetGenerator.Settings();
+        settings.setSeed(seed);
+        settings.setProductTypes(10);
+        settings.setProducts(200);
+        settings.setUsers(30);
+        settings.setOrders(300);
+        return settings;
+    }
+}
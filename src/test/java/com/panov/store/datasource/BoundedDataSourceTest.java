@@ -0,0 +1,55 @@
+package com.panov.store.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedDataSourceTest {
+
+    @Test
+    void shouldHandOutAtMostPermitsConnectionsAndReturnPermitsOnClose() throws Exception {
+        // given
+        var target = new JdbcDataSource();
+        target.setURL("jdbc:h2:mem:bounded;DB_CLOSE_DELAY=-1");
+        var registry = new SimpleMeterRegistry();
+        var dataSourceUnderTest = new BoundedDataSource(target, "test", 2, 300, registry);
+
+        // when
+        var first = dataSourceUnderTest.getConnection();
+        var second = dataSourceUnderTest.getConnection();
+
+        // then
+        assertThat(dataSourceUnderTest.availablePermits()).isZero();
+        assertThatThrownBy(() -> dataSourceUnderTest.getConnection("sa", ""))
+                .isInstanceOf(SQLTransientConnectionException.class);
+        assertThat(registry.get("db.pool.permits.rejected").counter().count()).isEqualTo(1);
+
+        // when
+        var waiting = CompletableFuture.supplyAsync(() -> {
+            try (var third = dataSourceUnderTest.getConnection()) {
+                return third.isValid(1);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (registry.get("db.pool.permits.waiting").gauge().value() < 1 && !waiting.isDone())
+            Thread.onSpinWait();
+
+        // then
+        first.close();
+        first.close();
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(dataSourceUnderTest.availablePermits()).isEqualTo(1);
+        assertThat(first.isClosed()).isTrue();
+
+        second.close();
+        assertThat(dataSourceUnderTest.availablePermits()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,131 @@
+package com.panov.store.datasource;
+
+import com.panov.store.dao.ProductTypeRepository;
+import com.panov.store.model.ProductType;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReadWriteRoutingDataSourceTest {
+    static JdbcDataSource primary;
+    static JdbcDataSource replica;
+    static EntityManagerFactory replicaEntityManagerFactory;
+
+    @BeforeAll
+    static void init() {
+        primary = h2("routing_primary");
+        replica = h2("routing_replica");
+
+        // creates the schema on the replica and fills it with its own data
+        replicaEntityManagerFactory = createEntityManagerFactory(replica);
+        var type = new ProductType();
+        type.setName("From replica");
+        new ProductTypeRepository(replicaEntityManagerFactory).insert(type);
+        DataSourceRouting.reset();
+    }
+
+    @AfterEach
+    void resetRouting() {
+        DataSourceRouting.reset();
+    }
+
+    @AfterAll
+    static void purge() {
+        replicaEntityManagerFactory.close();
+    }
+
+    @Test
+    void shouldRouteReadsToReplicaAndReadsAfterWriteToPrimary() throws Exception {
+        // given
+        var routing = new ReadWriteRoutingDataSource(primary, List.of(replica), 60_000);
+        var entityManagerFactory = createEntityManagerFactory(routing);
+        var repositoryUnderTest = new ProductTypeRepository(entityManagerFactory);
+
+        var type = new ProductType();
+        type.setName("From primary");
+
+        try {
+            // when
+            var beforeWrite = repositoryUnderTest.getPackage(null, null);
+            repositoryUnderTest.insert(type);
+            var afterWrite = repositoryUnderTest.getPackage(null, null);
+            DataSourceRouting.reset();
+            var nextRequest = repositoryUnderTest.getPackage(null, null);
+
+            // then
+            assertThat(beforeWrite).extracting(ProductType::getName).containsExactly("From replica");
+            assertThat(afterWrite).extracting(ProductType::getName).containsExactly("From primary");
+            assertThat(nextRequest).extracting(ProductType::getName).containsExactly("From replica");
+        } finally {
+            entityManagerFactory.close();
+            routing.destroy();
+        }
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhenReplicaIsUnavailable() throws Exception {
+        // given
+        var broken = mock(DataSource.class);
+        when(broken.getConnection()).thenThrow(new SQLException("Replica is down"));
+        var routing = new ReadWriteRoutingDataSource(primary, List.of(broken, replica), 60_000);
+
+        // when
+        String first;
+        String second;
+        try (var readOnly = DataSourceRouting.readOnly()) {
+            first = databaseName(routing);
+            second = databaseName(routing);
+        }
+        routing.checkReplicas();
+        String afterHealthCheck;
+        try (var readOnly = DataSourceRouting.readOnly()) {
+            afterHealthCheck = databaseName(routing);
+        }
+        String outsideReadOnlyScope = databaseName(routing);
+
+        // then
+        assertThat(first).isIn("ROUTING_PRIMARY", "ROUTING_REPLICA");
+        assertThat(second).isEqualTo("ROUTING_REPLICA");
+        assertThat(afterHealthCheck).isEqualTo("ROUTING_REPLICA");
+        assertThat(outsideReadOnlyScope).isEqualTo("ROUTING_PRIMARY");
+
+        routing.destroy();
+    }
+
+    private static String databaseName(DataSource dataSource) throws SQLException {
+        try (var connection = dataSource.getConnection();
+             var resultSet = connection.createStatement().executeQuery("select database()")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private static JdbcDataSource h2(String name) {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+        return dataSource;
+    }
+
+    private static EntityManagerFactory createEntityManagerFactory(DataSource dataSource) {
+        return Persistence.createEntityManagerFactory(
+                "test-db-context",
+                Map.of(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource)
+        );
+    }
+}
@@ -0,0 +1,133 @@
+package com.panov.store.images;
+
+import com.panov.store.Utils;
+import com.panov.store.dao.ImageRepository;
+import com.panov.store.dao.ProductRepository;
+import com.panov.store.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImageCollectorTest {
+    private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final Duration GRACE_PERIOD = Duration.ofHours(1);
+
+    static EntityManagerFactory entityManagerFactory;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void init() {
+        entityManagerFactory = Persistence.createEntityManagerFactory("test-db-context");
+    }
+
+    @AfterEach
+    void cleanDatabase() {
+        Utils.cleanDatabase(entityManagerFactory.createEntityManager());
+    }
+
+    @AfterAll
+    static void purge() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void shouldDeleteImagesThatStayUnreferencedForGracePeriod() throws Exception {
+        // given
+        var references = new ImageRepository(entityManagerFactory);
+        var productRepository = new ProductRepository(entityManagerFactory);
+        var store = new DirectoryImageStore(directory);
+        var storage = new ImageStorage(references, store, directory, 1024 * 1024);
+        var clock = new MutableClock(Instant.now());
+        var collectorUnderTest = new ImageCollector(
+                storage, store, references, GRACE_PERIOD, 0, 0, clock, new SimpleMeterRegistry());
+
+        String referenced = storage.save(image(1));
+        productRepository.insert(product("Bread", referenced));
+        String leaked = storage.save(image(2));
+        String attachedLater = storage.save(image(3));
+        Files.write(directory.resolve("0a1b.png"), image(4));
+        Path abandoned = Files.write(directory.resolve("upload-1.tmp"), image(5));
+        Files.setLastModifiedTime(abandoned, FileTime.from(clock.instant().minus(Duration.ofDays(1))));
+
+        // when
+        int deletedAtOnce = collectorUnderTest.sweep();
+        productRepository.insert(product("Steak", attachedLater));
+        clock.advance(GRACE_PERIOD.plusMinutes(1));
+        Path inProgress = Files.write(directory.resolve("upload-2.tmp"), image(6));
+        Files.setLastModifiedTime(inProgress, FileTime.from(clock.instant()));
+        int deletedAfterGracePeriod = collectorUnderTest.sweep();
+
+        // then
+        assertThat(deletedAtOnce).isZero();
+        assertThat(deletedAfterGracePeriod).isEqualTo(2);
+        assertThat(store.contains(referenced)).isTrue();
+        assertThat(store.contains(attachedLater)).isTrue();
+        assertThat(store.contains(leaked)).isFalse();
+        assertThat(store.contains("0a1b.png")).isFalse();
+        assertThat(references.getReferenceCount(leaked)).isEmpty();
+        assertThat(abandoned).doesNotExist();
+        assertThat(inProgress).exists();
+    }
+
+    private static byte[] image(int seed) {
+        byte[] image = Arrays.copyOf(PNG, 1000);
+        Arrays.fill(image, PNG.length, image.length, (byte) seed);
+        return image;
+    }
+
+    private static Product product(String name, String image) {
+        var product = new Product();
+        product.setName(name);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStock(1);
+        product.setImage(image);
+        return product;
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.panov.store.images;
+
+import com.panov.store.Utils;
+import com.panov.store.common.Access;
+import com.panov.store.dao.ImageRepository;
+import com.panov.store.dao.ProductRepository;
+import com.panov.store.dao.UserRepository;
+import com.panov.store.model.Address;
+import com.panov.store.model.Product;
+import com.panov.store.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImageMigrationTest {
+    static EntityManagerFactory entityManagerFactory;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void init() {
+        entityManagerFactory = Persistence.createEntityManagerFactory("test-db-context");
+    }
+
+    @AfterEach
+    void cleanDatabase() {
+        Utils.cleanDatabase(entityManagerFactory.createEntityManager());
+    }
+
+    @AfterAll
+    static void purge() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void shouldMoveImagesToContentNamesAndMergeDuplicates() throws Exception {
+        // given
+        var productRepository = new ProductRepository(entityManagerFactory);
+        var userRepository = new UserRepository(entityManagerFactory);
+        var imageRepository = new ImageRepository(entityManagerFactory);
+
+        byte[] png = Arrays.copyOf(new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' }, 1000);
+        byte[] jpeg = Arrays.copyOf(new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF }, 2000);
+        Files.write(directory.resolve("0a1b.png"), png);
+        Files.write(directory.resolve("2c3d.png"), png);
+        Files.write(directory.resolve("4e5f.png"), jpeg);
+        Files.write(directory.resolve("upload-1.tmp"), png);
+
+        int bread = productRepository.insert(product("Bread", "0a1b.png"));
+        int steak = productRepository.insert(product("Steak", "2c3d.png"));
+        int toy = productRepository.insert(product("Toy", "4e5f.png"));
+
+        var user = new User();
+        var info = new User.PersonalInfo();
+        info.setPhoneNumber("0994824689");
+        user.setPersonalInfo(info);
+        user.setAddress(new Address());
+        user.setAccess(Access.USER);
+        user.setImage("0a1b.png");
+        int userId = userRepository.insert(user);
+
+        var migrationUnderTest = new ImageMigration(
+                new DriverManagerDataSource("jdbc:h2:mem:test_db;DB_CLOSE_DELAY=1", "sa", "sa"),
+                directory
+        );
+
+        var updatedBefore = productRepository.get(bread).orElseThrow().getUpdatedAt();
+
+        // when
+        var result = migrationUnderTest.migrate();
+
+        // then
+        assertThat(result).isEqualTo(new ImageMigration.Result(3, 1, 4));
+
+        String pngName = productRepository.get(bread).orElseThrow().getImage();
+        String jpegName = productRepository.get(toy).orElseThrow().getImage();
+        assertThat(pngName).matches("[0-9a-f]{64}\\.png");
+        assertThat(jpegName).matches("[0-9a-f]{64}\\.jpg");
+        assertThat(productRepository.get(steak).orElseThrow().getImage()).isEqualTo(pngName);
+        assertThat(productRepository.get(bread).orElseThrow().getUpdatedAt()).isAfter(updatedBefore);
+        assertThat(userRepository.get(userId).orElseThrow().getImage()).isEqualTo(pngName);
+
+        assertThat(imageRepository.getReferenceCount(pngName)).contains(3);
+        assertThat(imageRepository.getReferenceCount(jpegName)).contains(1);
+        assertThat(Files.readAllBytes(DirectoryImageStore.path(directory, pngName))).isEqualTo(png);
+        assertThat(Files.readAllBytes(DirectoryImageStore.path(directory, jpegName))).isEqualTo(jpeg);
+        try (var files = Files.list(directory)) {
+            assertThat(files.filter(Files::isRegularFile).map(file -> file.getFileName().toString()))
+                    .containsExactly("upload-1.tmp");
+        }
+    }
+
+    private static Product product(String name, String image) {
+        var product = new Product();
+        product.setName(name);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStock(1);
+        product.setImage(image);
+        return product;
+    }
+}
@@ -0,0 +1,161 @@
+package com.panov.store.images;
+
+import com.panov.store.Utils;
+import com.panov.store.dao.ImageRepository;
+import com.panov.store.exceptions.ImageNotAcceptedException;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ImageStorageTest {
+    private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    static EntityManagerFactory entityManagerFactory;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void init() {
+        entityManagerFactory = Persistence.createEntityManagerFactory("test-db-context");
+    }
+
+    @AfterEach
+    void cleanDatabase() {
+        Utils.cleanDatabase(entityManagerFactory.createEntityManager());
+    }
+
+    @AfterAll
+    static void purge() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void shouldStoreEqualImagesOnceAndDeleteThemWithTheLastReference() throws Exception {
+        // given
+        var references = new ImageRepository(entityManagerFactory);
+        var storageUnderTest = new ImageStorage(references, new DirectoryImageStore(directory), directory, 1024 * 1024);
+        byte[] image = Arrays.copyOf(PNG, 300_000);
+        Arrays.fill(image, PNG.length, image.length, (byte) 7);
+        byte[] svg = "\uFEFF\n<?xml version=\"1.0\"?>\n<svg xmlns=\"http://www.w3.org/2000/svg\"/>"
+                .getBytes(StandardCharsets.UTF_8);
+
+        // when
+        String name = storageUnderTest.save(new ByteArrayInputStream(image));
+        String duplicate = storageUnderTest.save(image);
+        String svgName = storageUnderTest.save(svg);
+
+        // then
+        assertThat(name).matches("[0-9a-f]{64}\\.png").isEqualTo(duplicate);
+        assertThat(svgName).endsWith(".svg");
+        assertThat(DirectoryImageStore.path(directory, name))
+                .isEqualTo(directory.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name));
+        assertThat(storageUnderTest.read(name)).isEqualTo(image);
+        assertThat(references.getReferenceCount(name)).contains(2);
+        try (var files = Files.walk(directory)) {
+            assertThat(files.filter(Files::isRegularFile)).hasSize(2);
+        }
+
+        // when
+        storageUnderTest.release(name);
+
+        // then
+        assertThat(DirectoryImageStore.path(directory, name)).exists();
+        assertThat(references.getReferenceCount(name)).contains(1);
+
+        // when
+        storageUnderTest.release(duplicate);
+
+        // then
+        assertThat(DirectoryImageStore.path(directory, name)).doesNotExist();
+        assertThat(references.getReferenceCount(name)).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    void shouldDeleteImageReleasedInTransactionOnlyAfterCommit() throws Exception {
+        // given
+        var references = new ImageRepository(entityManagerFactory);
+        var storageUnderTest = new ImageStorage(references, new DirectoryImageStore(directory), directory, 1024 * 1024);
+        var transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        String name = storageUnderTest.save(PNG);
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            storageUnderTest.release(name);
+            status.setRollbackOnly();
+        });
+
+        // then
+        assertThat(DirectoryImageStore.path(directory, name)).exists();
+        assertThat(references.getReferenceCount(name)).contains(1);
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            storageUnderTest.release(name);
+            assertThat(DirectoryImageStore.path(directory, name)).exists();
+        });
+
+        // then
+        assertThat(DirectoryImageStore.path(directory, name)).doesNotExist();
+        assertThat(references.getReferenceCount(name)).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    void shouldRejectTooLargeAndUnknownImagesWithoutLeavingFiles() throws Exception {
+        // given
+        var references = new ImageRepository(entityManagerFactory);
+        var storageUnderTest = new ImageStorage(references, new DirectoryImageStore(directory), directory, 10_000);
+        byte[] jpeg = new byte[10_001];
+        jpeg[0] = (byte) 0xFF;
+        jpeg[1] = (byte) 0xD8;
+        jpeg[2] = (byte) 0xFF;
+        byte[] text = "GIF89a is not supported".getBytes(StandardCharsets.US_ASCII);
+
+        // then
+        assertThatThrownBy(() -> storageUnderTest.save(new ByteArrayInputStream(jpeg)))
+                .isInstanceOfSatisfying(ImageNotAcceptedException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+        assertThatThrownBy(() -> storageUnderTest.save(new ByteArrayInputStream(text)))
+                .isInstanceOfSatisfying(ImageNotAcceptedException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+        assertThatThrownBy(() -> storageUnderTest.save(failingAfter(Arrays.copyOf(PNG, 4096))))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> storageUnderTest.read("../secret.png"))
+                .isInstanceOf(IllegalArgumentException.class);
+        try (var files = Files.walk(directory)) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    private static InputStream failingAfter(byte[] bytes) {
+        var in = new ByteArrayInputStream(bytes);
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b == -1)
+                    throw new IOException("Connection reset");
+                return b;
+            }
+        };
+    }
+}
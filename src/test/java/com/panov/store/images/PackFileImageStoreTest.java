@@ -0,0 +1,90 @@
+package com.panov.store.images;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PackFileImageStoreTest {
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReadImagesAfterReopening() throws Exception {
+        // given
+        byte[] first = image(1, 1000);
+        byte[] second = image(2, 2000);
+
+        try (var storeUnderTest = new PackFileImageStore(directory, SEGMENT_BYTES, 0.5, 0)) {
+            storeUnderTest.put("first.png", first);
+            storeUnderTest.put("second.png", new ByteArrayInputStream(second));
+            storeUnderTest.put("third.png", image(3, 3000));
+            storeUnderTest.delete("first.png");
+        }
+
+        // when
+        try (var storeUnderTest = new PackFileImageStore(directory, SEGMENT_BYTES, 0.5, 0)) {
+
+            // then
+            assertThat(storeUnderTest.contains("first.png")).isFalse();
+            assertThat(storeUnderTest.read("second.png")).isEqualTo(second);
+            assertThat(storeUnderTest.read("third.png")).isEqualTo(image(3, 3000));
+            assertThat(storeUnderTest.imageCount()).isEqualTo(2);
+            assertThat(storeUnderTest.segmentCount()).isEqualTo(2);
+            assertThatThrownBy(() -> storeUnderTest.read("first.png")).isInstanceOf(NoSuchFileException.class);
+        }
+    }
+
+    @Test
+    void shouldCompactSegmentsWithDeletedImages() throws Exception {
+        // given
+        try (var storeUnderTest = new PackFileImageStore(directory, SEGMENT_BYTES, 0.5, 0)) {
+            for (int i = 0; i < 12; i++)
+                storeUnderTest.put(i + ".png", image(i, 1000));
+            for (int i = 0; i < 12; i++) {
+                if (i % 4 != 0)
+                    storeUnderTest.delete(i + ".png");
+            }
+            int segments = storeUnderTest.segmentCount();
+
+            // when
+            int compacted = storeUnderTest.compact();
+
+            // then
+            assertThat(compacted).isPositive();
+            assertThat(storeUnderTest.segmentCount()).isLessThan(segments);
+            assertThat(storeUnderTest.read("4.png")).isEqualTo(image(4, 1000));
+        }
+
+        try (var storeUnderTest = new PackFileImageStore(directory, SEGMENT_BYTES, 0.5, 0)) {
+            assertThat(storeUnderTest.imageCount()).isEqualTo(3);
+            for (int i = 0; i < 12; i += 4)
+                assertThat(storeUnderTest.read(i + ".png")).isEqualTo(image(i, 1000));
+            assertThat(storeUnderTest.contains("5.png")).isFalse();
+        }
+    }
+
+    @Test
+    void shouldRejectImagesLargerThanSegment() throws Exception {
+        try (var storeUnderTest = new PackFileImageStore(directory, SEGMENT_BYTES, 0.5, 0)) {
+            assertThatThrownBy(() -> storeUnderTest.put("large.png", new ByteArrayInputStream(image(1, SEGMENT_BYTES))))
+                    .isInstanceOf(IOException.class);
+            assertThat(storeUnderTest.contains("large.png")).isFalse();
+        }
+    }
+
+    private static byte[] image(int seed, int length) {
+        byte[] image = new byte[length];
+        Arrays.fill(image, (byte) seed);
+        return image;
+    }
+}
@@ -0,0 +1,168 @@
+package com.panov.store.jwt;
+
+import com.panov.store.common.Access;
+import com.panov.store.controllers.PingController;
+import com.panov.store.services.UserService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static com.panov.store.common.Constants.EXPIRATION;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenRevocationRegistryTest {
+    private static final Duration AFTER_EXPIRATION = Duration.ofMillis(EXPIRATION).plusMinutes(2);
+
+    @Test
+    public void revokeAllForKeepsTokensIssuedInTheSameSecond() {
+        // given
+        var clock = new MutableClock(Instant.parse("2026-01-01T12:00:00.700Z"));
+        var registry = new TokenRevocationRegistry(1_000, clock);
+        var previousSecond = claims("a", 1, Instant.parse("2026-01-01T11:59:59Z"));
+        var sameSecond = claims("b", 1, Instant.parse("2026-01-01T12:00:00Z"));
+        var otherUser = claims("c", 2, Instant.parse("2026-01-01T11:59:59Z"));
+
+        // when
+        registry.revokeAllFor(1);
+
+        // then
+        assertThat(registry.isRevoked(previousSecond)).isTrue();
+        assertThat(registry.isRevoked(sameSecond)).isFalse();
+        assertThat(registry.isRevoked(otherUser)).isFalse();
+    }
+
+    @Test
+    public void revokeWithoutIdentityRevokesAllTokensOfUser() {
+        // given
+        var clock = new MutableClock(Instant.parse("2026-01-01T12:00:00.700Z"));
+        var registry = new TokenRevocationRegistry(1_000, clock);
+        var withoutIdentity = claims(null, 1, Instant.parse("2026-01-01T11:00:00Z"));
+        var other = claims("a", 1, Instant.parse("2026-01-01T11:30:00Z"));
+
+        // when
+        registry.revoke(withoutIdentity);
+
+        // then
+        assertThat(registry.isRevoked(withoutIdentity)).isTrue();
+        assertThat(registry.isRevoked(other)).isTrue();
+    }
+
+    @Test
+    public void everyRevocationPrunesExpiredRevocations() {
+        // given
+        var issuedAt = Instant.parse("2026-01-01T12:00:00Z");
+        var clock = new MutableClock(issuedAt.plusMillis(700));
+        var registry = new TokenRevocationRegistry(1_000, clock);
+        var single = claims("a", 1, issuedAt);
+        var ofUser = claims("b", 2, issuedAt.minusSeconds(1));
+        registry.revoke(single);
+        registry.revokeAllFor(2);
+
+        // when
+        clock.advance(AFTER_EXPIRATION);
+        registry.revokeAllFor(3);
+
+        // then
+        assertThat(registry.isRevoked(single)).isFalse();
+        assertThat(registry.isRevoked(ofUser)).isFalse();
+    }
+
+    @Test
+    public void singleRevocationPrunesRevocationsOfAllTokensOfUser() {
+        // given
+        var issuedAt = Instant.parse("2026-01-01T12:00:00Z");
+        var clock = new MutableClock(issuedAt.plusMillis(700));
+        var registry = new TokenRevocationRegistry(1_000, clock);
+        var ofUser = claims("a", 1, issuedAt.minusSeconds(1));
+        registry.revokeAllFor(1);
+
+        // when
+        clock.advance(AFTER_EXPIRATION);
+        registry.revoke(claims("b", 2, clock.instant()));
+
+        // then
+        assertThat(registry.isRevoked(ofUser)).isFalse();
+    }
+
+    @Test
+    public void pingRejectsTokenAfterLogout() {
+        // given
+        var jwtService = new JwtService();
+        var registry = new TokenRevocationRegistry(1_000);
+        var userService = new UserService(null, jwtService, registry, null, null);
+        var ping = new PingController(jwtService, registry);
+        var loggedOut = jwtService.createToken(1, "+380000000001", Access.MANAGER);
+        var other = jwtService.createToken(1, "+380000000001", Access.MANAGER);
+
+        // when
+        boolean before = ping.checkForManagerAuthority(1, loggedOut).getBody();
+        userService.logout(loggedOut);
+
+        // then
+        assertThat(before).isTrue();
+        assertThat(ping.checkToken(1, loggedOut).getBody()).isFalse();
+        assertThat(ping.checkForManagerAuthority(1, loggedOut).getBody()).isFalse();
+        assertThat(ping.checkForManagerAuthority(1, other).getBody()).isTrue();
+        assertThat(ping.checkForAdminAuthority(1, other).getBody()).isFalse();
+    }
+
+    @Test
+    public void pingRejectsTokensOfUserAfterRevocationOfAllTokens() {
+        // given
+        var jwtService = new JwtService();
+        var clock = new MutableClock(Instant.now().plusSeconds(1));
+        var registry = new TokenRevocationRegistry(1_000, clock);
+        var ping = new PingController(jwtService, registry);
+        var token = jwtService.createToken(1, "+380000000001", Access.USER);
+
+        // when
+        registry.revokeAllFor(1);
+
+        // then
+        assertThat(ping.checkToken(1, token).getBody()).isFalse();
+        assertThat(ping.checkToken(2, jwtService.createToken(2, "+380000000002", Access.USER)).getBody()).isTrue();
+    }
+
+    private static Claims claims(String id, Integer userId, Instant issuedAt) {
+        Claims claims = Jwts.claims();
+        claims.setId(id);
+        claims.put(JwtService.USER_ID_CLAIM, userId);
+        claims.setIssuedAt(Date.from(issuedAt));
+        claims.setExpiration(Date.from(issuedAt.plusMillis(EXPIRATION)));
+        return claims;
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
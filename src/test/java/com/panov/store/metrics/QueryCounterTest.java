@@ -0,0 +1,55 @@
+package com.panov.store.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class QueryCounterTest {
+    private final QueryCountingStatementInspector inspector = new QueryCountingStatementInspector();
+
+    @AfterEach
+    void stopCounting() {
+        QueryCounter.stop();
+    }
+
+    @Test
+    void shouldCountStatementsAndGroupRepeatedOnesByShape() {
+        // given
+        var counter = QueryCounter.start();
+
+        // when
+        for (int i = 0; i < 3; i++)
+            inspector.inspect("select o1_0.orderId from \"Order\" o1_0 where o1_0.userId=?");
+        inspector.inspect("select p1_0.productId from Product p1_0 where p1_0.productId in (?,?)");
+        inspector.inspect("select p1_0.productId\n  from Product p1_0 where p1_0.productId in (?, ?, ?)");
+        inspector.inspect("select u1_0.userId from \"User\" u1_0");
+
+        // then
+        assertThat(counter.getCount()).isEqualTo(6);
+        assertThat(counter.getRepeatedStatements(1)).containsExactly(
+                entry("select o1_0.orderId from \"Order\" o1_0 where o1_0.userId=?", 3),
+                entry("select p1_0.productId from Product p1_0 where p1_0.productId in (?)", 2)
+        );
+        assertThat(counter.getRepeatedStatements(2)).hasSize(1);
+    }
+
+    @Test
+    void shouldNotCountStatementsOfThreadsThatDoNotCount() throws InterruptedException {
+        // given
+        var counter = QueryCounter.start();
+
+        // when
+        var other = new Thread(() -> inspector.inspect("select 1"));
+        other.start();
+        other.join();
+        var stopped = QueryCounter.stop();
+        inspector.inspect("select 1");
+
+        // then
+        assertThat(stopped).isSameAs(counter);
+        assertThat(counter.getCount()).isZero();
+        assertThat(QueryCounter.current()).isNull();
+    }
+}
@@ -0,0 +1,71 @@
+package com.panov.store.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class ServerTimingTest {
+
+    @AfterEach
+    void stopTiming() {
+        ServerTiming.stop();
+    }
+
+    @Test
+    void shouldSumUpSpansWithTheSameNameAndNotCountNestedOnesTwice() {
+        // given
+        var timing = ServerTiming.start();
+
+        // when
+        try (var outer = ServerTiming.span(ServerTiming.MAPPING)) {
+            try (var nested = ServerTiming.span(ServerTiming.MAPPING)) {
+                try (var db = ServerTiming.span(ServerTiming.DATABASE)) {
+                    busyWait();
+                }
+            }
+        }
+        try (var db = ServerTiming.span(ServerTiming.DATABASE)) {
+            busyWait();
+        }
+
+        // then
+        assertThat(timing.getSpans())
+                .extracting(ServerTiming.Span::getName, ServerTiming.Span::getCount)
+                .containsExactly(
+                        tuple(ServerTiming.MAPPING, 1),
+                        tuple(ServerTiming.DATABASE, 2)
+                );
+        assertThat(timing.getSpans().get(1).getNanos()).isGreaterThan(timing.getSpans().get(0).getNanos());
+        assertThat(timing.toHeaderValue()).matches("total;dur=\\d+\\.\\d, map;dur=\\d+\\.\\d, db;dur=\\d+\\.\\d");
+        assertThat(timing.toLogFields())
+                .containsKeys("total_ms", "map_ms", "db_ms")
+                .containsEntry("map_count", "1")
+                .containsEntry("db_count", "2");
+    }
+
+    @Test
+    void shouldNotTimeThreadsWithoutContext() {
+        // given
+        var timing = ServerTiming.start();
+
+        // when
+        var stopped = ServerTiming.stop();
+        try (var span = ServerTiming.span(ServerTiming.DATABASE)) {
+            busyWait();
+        }
+
+        // then
+        assertThat(stopped).isSameAs(timing);
+        assertThat(timing.getSpans()).isEmpty();
+        assertThat(timing.toHeaderValue()).startsWith("total;dur=");
+    }
+
+    private static void busyWait() {
+        long until = System.nanoTime() + 1_000_000;
+        while (System.nanoTime() < until) {
+            Thread.onSpinWait();
+        }
+    }
+}
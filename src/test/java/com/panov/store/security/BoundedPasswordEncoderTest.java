@@ -0,0 +1,111 @@
+package com.panov.store.security;
+
+import com.panov.store.exceptions.ControllerAdvisor;
+import com.panov.store.exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+public class BoundedPasswordEncoderTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoderUnderTest;
+
+    @AfterEach
+    void releaseWorkers() {
+        release.countDown();
+        encoderUnderTest.destroy();
+    }
+
+    @Test
+    void shouldRejectHashingWhenWorkersAndQueueAreBusy() throws Exception {
+        // given
+        encoderUnderTest = new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1, 5000, registry);
+        var running = CompletableFuture.supplyAsync(() -> encoderUnderTest.encode("first"));
+        awaitGauge("auth.password.active", 1);
+        var queued = CompletableFuture.supplyAsync(() -> encoderUnderTest.matches("second", "{hash}second"));
+        awaitGauge("auth.password.queue.size", 1);
+
+        // when
+        var rejected = catchThrowableOfType(
+                () -> encoderUnderTest.encode("third"), ServiceOverloadedException.class);
+
+        // then
+        assertThatThrownBy(() -> encoderUnderTest.matches("fourth", "{hash}fourth"))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThat(registry.get("auth.password.rejected").counter().count()).isEqualTo(2);
+
+        var response = new ControllerAdvisor().serviceOverloadedAdvice(
+                rejected, new ServletWebRequest(new MockHttpServletRequest()));
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+
+        // when
+        release.countDown();
+
+        // then
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("{hash}first");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shouldGiveUpWaitingForHashingAfterTimeout() {
+        // given
+        encoderUnderTest = new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1, 100, registry);
+        long startedAt = System.nanoTime();
+
+        // when
+        var rejected = catchThrowableOfType(
+                () -> encoderUnderTest.encode("slow"), ServiceOverloadedException.class);
+
+        // then
+        assertThat(rejected).isNotNull();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).isGreaterThanOrEqualTo(100);
+        assertThat(registry.get("auth.password.rejected").counter().count()).isEqualTo(1);
+    }
+
+    private void awaitGauge(String name, double value) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get(name).gauge().value() < value && System.nanoTime() < deadline)
+            Thread.onSpinWait();
+        assertThat(registry.get(name).gauge().value()).isEqualTo(value);
+    }
+
+    /**
+     * "Hashes" by prefixing the password, but only after the test releases it.
+     */
+    private class BlockingEncoder implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            await();
+            return "{hash}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+
+        private void await() {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}